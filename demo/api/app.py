@@ -2,10 +2,11 @@ import os
 import re
 import uuid
 import json
+import zlib
 from pathlib import Path
 from typing import List, Dict, Any, Optional
 
-from fastapi import FastAPI, UploadFile, File, HTTPException, Query
+from fastapi import FastAPI, UploadFile, File, HTTPException, Query, Request
 from opensearchpy import OpenSearch
 from pypdf import PdfReader
 from docx import Document
@@ -225,4 +226,86 @@ def search(q: str = Query(..., min_length=1), topK: int = Query(10, ge=1, le=50)
             "contentPreview": (src.get("content", "")[:160] + "...") if src.get("content") else "",
         })
 
-    return {"q": q, "count": len(results), "results": results}
\ No newline at end of file
+    return {"q": q, "count": len(results), "results": results}
+
+
+async def iter_ndjson_gzip(request: Request):
+    """
+    Stream-decode a gzip-compressed NDJSON body line by line
+    (Content-Type: application/x-ndjson, Content-Encoding: gzip).
+    The whole payload is never held in memory.
+    """
+    gzip_encoded = "gzip" in request.headers.get("content-encoding", "").lower()
+    decomp = zlib.decompressobj(16 + zlib.MAX_WBITS) if gzip_encoded else None
+    buf = b""
+    async for part in request.stream():
+        buf += decomp.decompress(part) if decomp else part
+        *lines, buf = buf.split(b"\n")
+        for line in lines:
+            if line.strip():
+                yield json.loads(line)
+    if decomp:
+        buf += decomp.flush()
+    # the flushed tail may still hold several complete lines
+    for line in buf.split(b"\n"):
+        if line.strip():
+            yield json.loads(line)
+
+
+@app.post("/kb/vector/reindexFile")
+async def vector_reindex_file(request: Request):
+    """
+    Reader for the Java vector upsert payload (KbVectorReindexFileReq).
+    Accepts either plain JSON or gzip NDJSON (first line = header, then one chunk per line).
+    The demo has no vector store, so chunks are only validated and counted.
+    """
+    content_type = request.headers.get("content-type", "").lower()
+    received = 0
+
+    if "application/x-ndjson" in content_type:
+        header = None
+        async for obj in iter_ndjson_gzip(request):
+            if header is None:
+                header = obj
+                continue
+            if obj.get("chunkId") is None:
+                raise HTTPException(status_code=400, detail="chunkId is required")
+            received += 1
+        if header is None:
+            raise HTTPException(status_code=400, detail="empty payload")
+        expected = header.get("chunkCount")
+        if expected is not None and expected != received:
+            raise HTTPException(status_code=400, detail=f"chunkCount mismatch: header={expected}, received={received}")
+    elif "application/json" in content_type:
+        body = await request.json()
+        received = len(body.get("chunks") or [])
+    else:
+        raise HTTPException(status_code=415, detail=f"unsupported content-type: {content_type}")
+
+    return {
+        "success": True,
+        "message": f"received {received} chunks (demo has no vector store)",
+        "upsertCount": 0,
+    }
+
+
+@app.post("/kb/vector/cloneFile")
+async def vector_clone_file(request: Request):
+    """
+    Reader for the Java vector clone payload (KbVectorCloneFileReq): copy the vectors of
+    sourceFileId to fileId by the given sourceChunkId -> chunkId mapping, without re-embedding.
+    The demo has no vector store, so the mapping is only validated and counted.
+    """
+    body = await request.json()
+    if body.get("sourceFileId") is None or body.get("fileId") is None:
+        raise HTTPException(status_code=400, detail="sourceFileId and fileId are required")
+    mappings = body.get("chunks") or []
+    for m in mappings:
+        if m.get("sourceChunkId") is None or m.get("chunkId") is None:
+            raise HTTPException(status_code=400, detail="sourceChunkId and chunkId are required")
+
+    return {
+        "success": True,
+        "message": f"received {len(mappings)} chunk mappings (demo has no vector store)",
+        "upsertCount": 0,
+    }
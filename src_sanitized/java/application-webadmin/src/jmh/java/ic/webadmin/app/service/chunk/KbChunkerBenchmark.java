@@ -0,0 +1,132 @@
+/**
+ * 切片器基准（JMH）：比较各 {@link KbChunker} 实现在中文 / 英文语料上的吞吐与分配。
+ *
+ * <p>语料：默认按固定随机种子生成约 2MB 的 Markdown 风格文本（含多级标题、段落与句末标点），
+ * 可用 -Dkb.bench.corpus.zh / -Dkb.bench.corpus.en 指定 UTF-8 文本文件（如导出的提取文本缓存）替换。
+ * 参数取全局默认（maxBytes=1000, overlapBytes=120, maxTokens=256, overlapTokens=32）。</p>
+ *
+ * <p>运行：本目录（src/jmh/java）需先在构建中配置为 JMH 源码集（依赖 jmh-core 与 jmh-generator-annprocess，
+ * 例如 jmh Gradle 插件或单独的基准模块）后，用生成的 JMH 入口运行 {@code KbChunkerBenchmark -prof gc}。
+ * 分配看 gc.alloc.rate.norm（每次切片整篇文本的分配字节数）；分段数见辅助计数器 chunks
+ * （chunks 吞吐 / split 吞吐 = 每次切片的分段数），便于对照分段数量与召回取舍。</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class KbChunkerBenchmark {
+
+    private static final int CORPUS_CHARS_ZH = 700_000;
+    private static final int CORPUS_CHARS_EN = 2_000_000;
+
+    @Param({"zh", "en"})
+    public String corpus;
+
+    @Param({"BYTES", "SENTENCE", "TOKENS", "STRUCTURE"})
+    public String chunker;
+
+    private String text;
+    private KbChunker impl;
+    private KbChunkOptions options;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        text = loadCorpus(corpus);
+        switch (chunker) {
+            case "SENTENCE":
+                impl = new KbSentenceChunker();
+                break;
+            case "TOKENS":
+                impl = new KbTokenBudgetChunker();
+                break;
+            case "STRUCTURE":
+                impl = new KbStructureChunker();
+                break;
+            default:
+                impl = new KbByteWindowChunker();
+                break;
+        }
+        options = new KbChunkOptions();
+        options.setType(chunker);
+        options.setMaxBytes(1000);
+        options.setOverlapBytes(120);
+        options.setMaxTokens(256);
+        options.setOverlapTokens(32);
+    }
+
+    @Benchmark
+    public List<KbChunkPiece> split(ChunkCounter counter) {
+        List<KbChunkPiece> pieces = impl.split(text, options);
+        counter.chunks += pieces.size();
+        return pieces;
+    }
+
+    /**
+     * 分段数辅助计数器（按吞吐口径输出）。
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class ChunkCounter {
+        public long chunks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            chunks = 0;
+        }
+    }
+
+    private static String loadCorpus(String lang) throws IOException {
+        String path = System.getProperty("kb.bench.corpus." + lang);
+        if (path != null && !path.isEmpty()) {
+            return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+        }
+        return "zh".equals(lang) ? generate(ZH_WORDS, "", "。", "！", "？", CORPUS_CHARS_ZH)
+                : generate(EN_WORDS, " ", ".", "!", "?", CORPUS_CHARS_EN);
+    }
+
+    /**
+     * 生成 Markdown 风格语料：每 6~12 段插入一个随机级别（1~3）的标题，段落由 3~8 个句子组成。
+     */
+    private static String generate(String[] words, String sep, String period, String exclaim, String question,
+                                   int targetChars) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(targetChars + 1024);
+        int section = 0;
+        while (sb.length() < targetChars) {
+            int level = 1 + random.nextInt(3);
+            sb.append(StrUtil.repeat('#', level)).append(' ').append("Section ").append(++section).append('\n');
+            int paragraphs = 6 + random.nextInt(7);
+            for (int p = 0; p < paragraphs; p++) {
+                int sentences = 3 + random.nextInt(6);
+                for (int s = 0; s < sentences; s++) {
+                    int len = 6 + random.nextInt(18);
+                    for (int w = 0; w < len; w++) {
+                        if (w > 0) {
+                            sb.append(sep);
+                        }
+                        sb.append(words[random.nextInt(words.length)]);
+                    }
+                    int r = random.nextInt(10);
+                    sb.append(r == 0 ? exclaim : r == 1 ? question : period).append(sep);
+                }
+                sb.append("\n\n");
+            }
+        }
+        return sb.toString().trim();
+    }
+
+    private static final String[] ZH_WORDS = {
+            "知识库", "文档", "解析", "分段", "检索", "向量", "索引", "模型", "用户", "系统", "数据", "配置",
+            "任务", "文件", "上传", "内容", "结果", "查询", "服务", "节点", "缓存", "性能", "召回", "排序",
+            "的", "了", "在", "是", "和", "对", "将", "按", "从", "中", "可以", "需要", "通过", "进行",
+    };
+
+    private static final String[] EN_WORDS = {
+            "knowledge", "base", "document", "parse", "chunk", "search", "vector", "index", "model", "user",
+            "system", "data", "config", "job", "file", "upload", "content", "result", "query", "service",
+            "node", "cache", "throughput", "recall", "ranking", "the", "of", "and", "to", "in", "is", "for",
+            "with", "by", "from", "retrieval", "embedding", "2024", "v2", "API",
+    };
+}
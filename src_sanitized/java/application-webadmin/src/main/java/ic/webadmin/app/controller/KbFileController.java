@@ -17,7 +17,13 @@ public class KbFileController {
     @Autowired
     private KbJobService kbJobService;
     @Autowired
-    private UpDownloaderFactory upDownloaderFactory;
+    private KbJobAdmissionPolicy kbJobAdmissionPolicy;
+    @Autowired
+    private KbFileStorage kbFileStorage;
+    @Autowired
+    private KbUploadSessionService kbUploadSessionService;
+    @Autowired
+    private KbBulkIngestService kbBulkIngestService;
     @org.springframework.beans.factory.annotation.Value("${kb.storage.localBaseDir}")
     private String kbLocalBaseDir;
     /**
@@ -261,18 +267,24 @@ public class KbFileController {
             errorMessage = "数据操作失败，删除的对象不存在，请刷新后重试！";
             return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, errorMessage);
         }
+        // 文件已删除：停止仍在排队/执行的解析与索引任务，避免继续写入已失效的分段和索引
+        kbJobService.cancelByTargetId(id, "文件已删除");
         return ResponseResult.success();
     }
 
     /**
      * KB 文件上传（落库 ic_kb_file）。
+     * 写盘前做准入检查（见 KbJobAdmissionPolicy）：解析队列积压过深或磁盘余量不足时返回 HTTP 429 + Retry-After；
+     * 积压超过软阈值时仍接收，但解析任务进入批量通道（响应头 X-Kb-Admission: DEFER）。
+     * 文件按内容 SHA-256 寻址存储（见 KbFileStorage）；同库已有相同内容且解析成功的文件时，解析任务直接复用其分段与索引。
      */
     @SaCheckPermission("kbFile.add")
     @OperationLog(type = SysOperationLogType.UPLOAD, saveResponse = false)
     @PostMapping("/upload")
     public ResponseResult<Long> upload(
             @RequestParam Long kbId,
-            @RequestParam("uploadFile") MultipartFile uploadFile) throws IOException {
+            @RequestParam("uploadFile") MultipartFile uploadFile,
+            HttpServletResponse response) throws IOException {
 
         if (MyCommonUtil.existBlankArgument(kbId) || uploadFile == null || uploadFile.isEmpty()) {
             return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
@@ -282,58 +294,283 @@ public class KbFileController {
         String ext = org.apache.commons.io.FilenameUtils.getExtension(originalName);
         ext = ext == null ? null : ext.toLowerCase(Locale.ROOT);
 
-        Set<String> allow = new HashSet<>(Arrays.asList("txt", "pdf", "doc", "docx", "md"));
-        if (!allow.contains(ext)) {
+        if (!KbBulkIngestService.ALLOWED_EXTS.contains(ext)) {
             return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, "不支持的文件类型: " + ext);
         }
 
-        // 关键：uriPath 只按 kbId 分目录（落地到 kbLocalBaseDir/kbId/xxx）
-        String uriPath = "/" + kbId;
+        KbJobAdmissionPolicy.Decision admission = kbJobAdmissionPolicy.admit(uploadFile.getSize());
+        if (KbJobAdmissionPolicy.REJECT.equals(admission.getOutcome())) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(admission.getRetryAfterSeconds()));
+            return ResponseResult.error(ErrorCodeEnum.UPLOAD_FAILED, admission.getReason());
+        }
+        boolean deferred = KbJobAdmissionPolicy.DEFER.equals(admission.getOutcome());
 
-        BaseUpDownloader upDownloader = upDownloaderFactory.get(UploadStoreTypeEnum.LOCAL_SYSTEM);
+        // 内容寻址落盘：边写边算 SHA-256，相同内容只存一份（STORAGE_PATH = cas/ab/cd/<sha256>）
+        KbFileStorage.StoredContent stored;
+        try (InputStream in = uploadFile.getInputStream()) {
+            stored = kbFileStorage.store(in);
+        }
 
-        UploadResponseInfo info = upDownloader.doUpload(
-                null,
-                kbLocalBaseDir,   // ✅ 关键：用 KB 专用根目录，不要再用 appConfig.getUploadFileBaseDir()
-                uriPath,
-                uploadFile
-        );
+        if (deferred) {
+            response.setHeader("X-Kb-Admission", KbJobAdmissionPolicy.DEFER);
+        }
+        // 落库 ic_kb_file 并创建解析任务 ic_kb_job（同一事务）
+        KbFile kbFile = saveUploadedFile(kbId, originalName, ext, uploadFile.getContentType(),
+                stored, deferred ? admission.getReason() : null);
+        return ResponseResult.success(kbFile.getId());
+    }
 
-        if (Boolean.TRUE.equals(info.getUploadFailed())) {
-            return ResponseResult.error(ErrorCodeEnum.UPLOAD_FAILED, info.getErrorMessage());
+    /**
+     * 分片上传：创建会话（大文件、弱网环境使用，可续传）。
+     * 与 /upload 相同的类型校验与准入检查，准入结果随会话保存，complete 时据此决定解析任务通道。
+     *
+     * @param kbId     知识库Id。
+     * @param fileName 文件名。
+     * @param fileSize 文件字节数。
+     * @param mimeType 文件类型(MIME)，可选。
+     * @param sha256   整文件 SHA-256，可选（complete 时校验）。
+     * @return 会话（uploadId、partSize、partCount）。
+     */
+    @SaCheckPermission("kbFile.add")
+    @PostMapping("/upload/initiate")
+    public ResponseResult<KbUploadSession> initiateUpload(
+            @MyRequestBody Long kbId,
+            @MyRequestBody String fileName,
+            @MyRequestBody Long fileSize,
+            @MyRequestBody String mimeType,
+            @MyRequestBody String sha256,
+            HttpServletResponse response) {
+        if (MyCommonUtil.existBlankArgument(kbId, fileName, fileSize)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        String ext = org.apache.commons.io.FilenameUtils.getExtension(fileName);
+        ext = ext == null ? null : ext.toLowerCase(Locale.ROOT);
+        if (!KbBulkIngestService.ALLOWED_EXTS.contains(ext)) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, "不支持的文件类型: " + ext);
+        }
+        if (sha256 != null && !sha256.isEmpty() && !sha256.matches("[0-9a-fA-F]{64}")) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, "sha256格式不正确");
         }
 
-        // DB 里只存相对路径：kbId/filename
-        String storagePath = kbId + "/" + info.getFilename();
+        KbJobAdmissionPolicy.Decision admission = kbJobAdmissionPolicy.admit(fileSize);
+        if (KbJobAdmissionPolicy.REJECT.equals(admission.getOutcome())) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(admission.getRetryAfterSeconds()));
+            return ResponseResult.error(ErrorCodeEnum.UPLOAD_FAILED, admission.getReason());
+        }
+        boolean deferred = KbJobAdmissionPolicy.DEFER.equals(admission.getOutcome());
+        if (deferred) {
+            response.setHeader("X-Kb-Admission", KbJobAdmissionPolicy.DEFER);
+        }
+
+        KbUploadSession session = new KbUploadSession();
+        session.setKbId(kbId);
+        session.setFileName(fileName);
+        session.setFileExt(ext);
+        session.setMimeType(mimeType);
+        session.setFileSize(fileSize);
+        session.setSha256(sha256);
+        session.setDeferReason(deferred ? admission.getReason() : null);
+        session.setCreateUserId(TokenData.takeFromRequest().getUserId());
+        try {
+            return ResponseResult.success(kbUploadSessionService.initiate(session));
+        } catch (RuntimeException e) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 分片上传：上传一个分片（请求体即分片原始字节，Content-Type: application/octet-stream）。
+     * 请求头 X-Part-Sha256 可携带分片 SHA-256，服务端写入时校验。重传同一分片号会覆盖。
+     *
+     * @param uploadId   会话Id。
+     * @param partNumber 分片号（从 1 开始）。
+     * @return 已写入的分片（大小、SHA-256）。
+     */
+    @SaCheckPermission("kbFile.add")
+    @PutMapping("/upload/part")
+    public ResponseResult<KbUploadSession.Part> uploadPart(
+            @RequestParam String uploadId,
+            @RequestParam Integer partNumber,
+            HttpServletRequest request) throws IOException {
+        KbUploadSession session = getOwnUploadSession(uploadId);
+        if (session == null) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "上传会话不存在或已过期");
+        }
+        try (InputStream in = request.getInputStream()) {
+            return ResponseResult.success(
+                    kbUploadSessionService.writePart(session, partNumber, in, request.getHeader("X-Part-Sha256")));
+        } catch (RuntimeException e) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, e.getMessage());
+        }
+    }
 
+    /**
+     * 分片上传：查询会话与已上传分片（断线续传时据此补传缺失分片）。
+     *
+     * @param uploadId 会话Id。
+     * @return 会话及已上传分片列表。
+     */
+    @SaCheckPermission("kbFile.add")
+    @GetMapping("/upload/status")
+    public ResponseResult<KbUploadSession> uploadStatus(@RequestParam String uploadId) {
+        KbUploadSession session = getOwnUploadSession(uploadId);
+        if (session == null) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "上传会话不存在或已过期");
+        }
+        return ResponseResult.success(kbUploadSessionService.status(uploadId));
+    }
+
+    /**
+     * 分片上传：完成。校验分片齐全后合并、按内容寻址落盘，并在同一事务内创建文件记录与解析任务。
+     * 重复调用返回同一文件Id。
+     *
+     * @param uploadId 会话Id。
+     * @return 文件Id。
+     */
+    @SaCheckPermission("kbFile.add")
+    @OperationLog(type = SysOperationLogType.UPLOAD)
+    @PostMapping("/upload/complete")
+    public ResponseResult<Long> completeUpload(@MyRequestBody String uploadId) throws IOException {
+        KbUploadSession session = getOwnUploadSession(uploadId);
+        if (session == null) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "上传会话不存在或已过期");
+        }
+        try {
+            Long fileId = kbUploadSessionService.complete(session, stored ->
+                    saveUploadedFile(session.getKbId(), session.getFileName(), session.getFileExt(),
+                            session.getMimeType(), stored, session.getDeferReason()).getId());
+            return ResponseResult.success(fileId);
+        } catch (RuntimeException e) {
+            return ResponseResult.error(ErrorCodeEnum.UPLOAD_FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 分片上传：放弃，删除会话与已上传分片。
+     *
+     * @param uploadId 会话Id。
+     * @return 应答结果对象。
+     */
+    @SaCheckPermission("kbFile.add")
+    @PostMapping("/upload/abort")
+    public ResponseResult<Void> abortUpload(@MyRequestBody String uploadId) {
+        KbUploadSession session = getOwnUploadSession(uploadId);
+        if (session == null) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "上传会话不存在或已过期");
+        }
+        if (session.getFileId() == null) {
+            kbUploadSessionService.abort(uploadId);
+        }
+        return ResponseResult.success();
+    }
+
+    /**
+     * 批量导入：上传一个 zip / tar（可 gzip 等压缩）压缩包，流式解包后导入其中所有支持类型的文档。
+     * 请求体即压缩包原始字节（Content-Type: application/octet-stream），不经过 multipart 缓存。
+     * 文件与解析任务分批在同一事务内批量写入，解析任务进入批量通道。
+     *
+     * @param kbId 知识库Id。
+     * @return 导入结果（导入数、跳过数、复用存储数、总字节数）。
+     */
+    @SaCheckPermission("kbFile.add")
+    @OperationLog(type = SysOperationLogType.UPLOAD)
+    @PostMapping("/ingest/archive")
+    public ResponseResult<KbIngestResult> ingestArchive(
+            @RequestParam Long kbId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (MyCommonUtil.existBlankArgument(kbId)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        KbJobAdmissionPolicy.Decision admission = kbJobAdmissionPolicy.admit(Math.max(0L, request.getContentLengthLong()));
+        if (KbJobAdmissionPolicy.REJECT.equals(admission.getOutcome())) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(admission.getRetryAfterSeconds()));
+            return ResponseResult.error(ErrorCodeEnum.UPLOAD_FAILED, admission.getReason());
+        }
+        try (InputStream in = request.getInputStream()) {
+            return ResponseResult.success(kbBulkIngestService.ingestArchive(kbId, in));
+        } catch (RuntimeException e) {
+            return ResponseResult.error(ErrorCodeEnum.UPLOAD_FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 批量导入：导入服务器本地目录（相对 kb.storage.localBaseDir，递归）下所有支持类型的文档。
+     *
+     * @param kbId 知识库Id。
+     * @param path 相对 kb.storage.localBaseDir 的目录。
+     * @return 导入结果。
+     */
+    @SaCheckPermission("kbFile.add")
+    @OperationLog(type = SysOperationLogType.UPLOAD)
+    @PostMapping("/ingest/directory")
+    public ResponseResult<KbIngestResult> ingestDirectory(
+            @MyRequestBody Long kbId,
+            @MyRequestBody String path,
+            HttpServletResponse response) throws IOException {
+        if (MyCommonUtil.existBlankArgument(kbId, path)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        try {
+            // 按目录内待导入文件的总字节数做准入（整批导入，磁盘余量与积压都按总量评估）
+            long totalBytes = kbBulkIngestService.measureDirectory(path);
+            KbJobAdmissionPolicy.Decision admission = kbJobAdmissionPolicy.admit(totalBytes);
+            if (KbJobAdmissionPolicy.REJECT.equals(admission.getOutcome())) {
+                response.setStatus(429);
+                response.setHeader("Retry-After", String.valueOf(admission.getRetryAfterSeconds()));
+                return ResponseResult.error(ErrorCodeEnum.UPLOAD_FAILED, admission.getReason());
+            }
+            return ResponseResult.success(kbBulkIngestService.ingestDirectory(kbId, path));
+        } catch (RuntimeException e) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 当前用户创建的上传会话，不存在、已过期或属于其他用户时返回 null。
+     */
+    private KbUploadSession getOwnUploadSession(String uploadId) {
+        KbUploadSession session = kbUploadSessionService.getSession(uploadId);
+        if (session == null || !Objects.equals(session.getCreateUserId(), TokenData.takeFromRequest().getUserId())) {
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * 已落盘内容 → ic_kb_file + PARSE_FILE 任务（同一事务）。
+     *
+     * @param deferReason 准入判定为 DEFER 时的说明（任务进入批量通道），否则为 null。
+     */
+    private KbFile saveUploadedFile(Long kbId, String fileName, String ext, String mimeType,
+                                    KbFileStorage.StoredContent stored, String deferReason) {
         KbFile kbFile = new KbFile();
         kbFile.setKbId(kbId);
-        kbFile.setFileName(originalName);
-        kbFile.setFileSize(uploadFile.getSize());
+        kbFile.setFileName(fileName);
+        kbFile.setFileSize(stored.getSize());
         kbFile.setFileExt(ext);
-        kbFile.setMimeType(uploadFile.getContentType());
+        kbFile.setMimeType(mimeType);
 
         kbFile.setStorageType("LOCAL");
-        kbFile.setStoragePath(storagePath);
+        kbFile.setStoragePath(stored.getStoragePath());
+        kbFile.setContentSha256(stored.getSha256());
 
         kbFile.setParseStatus("PENDING");
         kbFile.setParseProgress(0);
         kbFile.setParseMessage(null);
         kbFile.setParsedTime(null);
 
-        // 1) 落库 ic_kb_file
-        kbFile = kbFileService.saveNew(kbFile);
-
-        // 2) 创建解析任务 ic_kb_job
         KbJob job = new KbJob();
         job.setKbId(kbId);
         job.setJobType("PARSE_FILE");
-        job.setTargetId(kbFile.getId());
+        job.setPriority(deferReason != null ? KbJobPriority.BULK : KbJobPriority.INTERACTIVE);
         job.setStatus("PENDING");
         job.setProgress(0);
-
-        kbJobService.saveNew(job);
-        return ResponseResult.success(kbFile.getId());
+        job.setMessage(deferReason);
+        return kbFileService.saveNewWithParseJob(kbFile, job);
     }
 
     /**
@@ -348,7 +585,7 @@ public class KbFileController {
     @SaCheckPermission("kbFile.view")
     @OperationLog(type = SysOperationLogType.DOWNLOAD, saveResponse = false)
     @GetMapping("/download")
-    public void download(@RequestParam Long id, HttpServletResponse response) {
+    public void download(@RequestParam Long id, HttpServletRequest request, HttpServletResponse response) {
         if (id == null) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             return;
@@ -381,25 +618,160 @@ public class KbFileController {
                 return;
             }
 
-            response.setHeader("content-type", "application/octet-stream");
+            long length = file.length();
+            long lastModified = file.lastModified();
+            // 文件 id + 大小 + 修改时间，磁盘文件被替换后随之变化
+            String etag = "\"" + id + "-" + length + "-" + lastModified + "\"";
+
+            response.setHeader("ETag", etag);
+            response.setDateHeader("Last-Modified", lastModified);
+            response.setHeader("Accept-Ranges", "bytes");
+
+            // 条件请求：If-None-Match 优先，其次 If-Modified-Since（秒级精度）
+            String ifNoneMatch = request.getHeader("If-None-Match");
+            if (ifNoneMatch != null) {
+                if (etagMatches(ifNoneMatch, etag)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            } else {
+                long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+                if (ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+
+            long start = 0;
+            long end = length - 1;
+            String range = request.getHeader("Range");
+            if (range != null && ifRangeMatches(request.getHeader("If-Range"), etag, lastModified)) {
+                long[] r = parseRange(range, length);
+                if (r == null) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader("Content-Range", "bytes */" + length);
+                    return;
+                }
+                if (r.length == 2) {
+                    start = r[0];
+                    end = r[1];
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+                }
+            }
+            long count = end - start + 1;
+
             response.setContentType("application/octet-stream");
             response.setHeader("Content-Disposition", "attachment;filename=" + kbFile.getFileName());
+            response.setContentLengthLong(count);
+            if ("HEAD".equalsIgnoreCase(request.getMethod()) || count <= 0) {
+                return;
+            }
 
-            byte[] buff = new byte[2048];
-            try (OutputStream os = response.getOutputStream();
-                 BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file))) {
-                int i = bis.read(buff);
-                while (i != -1) {
-                    os.write(buff, 0, i);
-                    os.flush();
-                    i = bis.read(buff);
+            // 容器支持 sendfile（Tomcat NIO/NIO2）时交给容器零拷贝发送，否则 FileChannel.transferTo 写入响应通道
+            if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+                request.setAttribute("org.apache.tomcat.sendfile.filename", file.getAbsolutePath());
+                request.setAttribute("org.apache.tomcat.sendfile.start", start);
+                request.setAttribute("org.apache.tomcat.sendfile.end", end + 1);
+                return;
+            }
+            try (FileChannel in = FileChannel.open(absPath, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long pos = start;
+                long remaining = count;
+                while (remaining > 0) {
+                    long n = in.transferTo(pos, remaining, out);
+                    if (n <= 0) {
+                        break;
+                    }
+                    pos += n;
+                    remaining -= n;
                 }
             }
+        } catch (ClientAbortException e) {
+            // 客户端中断（暂停/取消下载、浏览器只取前几个字节）属正常情况
+            log.debug("kb file download aborted by client, id={}", id);
         } catch (Exception e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            if (!response.isCommitted()) {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
             log.error(e.getMessage(), e);
         }
     }
 
+    /**
+     * If-None-Match 是否命中（支持 "*"、多个 ETag 以及弱校验前缀 W/）。
+     */
+    private boolean etagMatches(String header, String etag) {
+        for (String candidate : header.split(",")) {
+            String c = candidate.trim();
+            if (c.startsWith("W/")) {
+                c = c.substring(2);
+            }
+            if ("*".equals(c) || etag.equals(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Range 为空或与当前版本一致时 Range 才生效，否则返回完整文件（文件已变化，拼接旧片段会损坏）。
+     */
+    private boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        String v = ifRange.trim();
+        if (v.startsWith("\"") || v.startsWith("W/")) {
+            return etag.equals(v);
+        }
+        try {
+            long date = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return lastModified / 1000 <= date / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
 
+    /**
+     * 解析单个字节区间（bytes=a-b / bytes=a- / bytes=-n）。
+     *
+     * @return {start, end}；多区间或无法识别时返回空数组（按完整文件返回）；区间不可满足时返回 null。
+     */
+    private long[] parseRange(String header, long length) {
+        String h = header.trim();
+        if (!h.startsWith("bytes=") || h.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = h.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀区间：最后 n 个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
 }
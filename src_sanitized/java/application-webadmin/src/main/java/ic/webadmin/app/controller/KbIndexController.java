@@ -1,3 +1,9 @@
+/**
+ * KB 索引维护接口（文件级/库级重建、失败后端重试）。
+ *
+ * <p>索引同步统一经 {@link KbIndexBackendRegistry} 分发：按知识库 INDEX_MODE 选出启用的后端（TEXT / VECTOR）并发执行，
+ * 返回各后端的执行结果；某个后端失败不影响其他后端，可通过 /retry/file 只重试失败的后端。</p>
+ */
 @Slf4j
 @RestController
 @RequestMapping("/admin/app/kbIndex")
@@ -5,13 +11,16 @@ public class KbIndexController {
 
     @Autowired private KbLibraryService kbLibraryService;
     @Autowired private KbFileService kbFileService;
-    @Autowired private KbChunkIndexService kbChunkIndexService;
-    @Autowired private KbVectorIndexService kbVectorIndexService;
+    @Autowired private KbIndexBackendRegistry kbIndexBackendRegistry;
+    @Autowired private KbJobService kbJobService;
 
+    /**
+     * 手动重建（文件级）：启用的全部后端并发执行（含向量后端，同步执行不入队）。
+     */
     @SaCheckPermission("kbLibrary.update")
     @OperationLog(type = SysOperationLogType.UPDATE)
     @PostMapping("/reindex/file/{fileId}")
-    public ResponseResult<Void> reindexFile(@PathVariable Long fileId) {
+    public ResponseResult<KbIndexBackendRegistry.SyncReport> reindexFile(@PathVariable Long fileId) {
         if (MyCommonUtil.existBlankArgument(fileId)) {
             return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
         }
@@ -26,16 +35,35 @@ public class KbIndexController {
             return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "知识库不存在，请刷新后重试！");
         }
 
-        String mode = normalizeIndexMode(lib.getIndexMode());
-        dispatchReindexByMode(mode, file.getKbId(), fileId);
+        return ResponseResult.success(kbIndexBackendRegistry.syncFile(file, true));
+    }
+
+    /**
+     * 重试（文件级）：只执行该文件状态不是 SUCCESS 的后端，已成功的后端不会重做。
+     */
+    @SaCheckPermission("kbLibrary.update")
+    @OperationLog(type = SysOperationLogType.UPDATE)
+    @PostMapping("/retry/file/{fileId}")
+    public ResponseResult<KbIndexBackendRegistry.SyncReport> retryFile(@PathVariable Long fileId) {
+        if (MyCommonUtil.existBlankArgument(fileId)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+
+        KbFile file = kbFileService.getById(fileId);
+        if (file == null) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "文件不存在，请刷新后重试！");
+        }
 
-        return ResponseResult.success();
+        return ResponseResult.success(kbIndexBackendRegistry.retryFailed(fileId));
     }
 
+    /**
+     * 手动重建（库级）：入队 REINDEX_KB 任务（启用的全部后端），立即返回任务Id，进度通过 /kbJob 接口查询。
+     */
     @SaCheckPermission("kbLibrary.update")
     @OperationLog(type = SysOperationLogType.UPDATE)
     @PostMapping("/reindex/kb/{kbId}")
-    public ResponseResult<Void> reindexKb(@PathVariable Long kbId) {
+    public ResponseResult<Long> reindexKb(@PathVariable Long kbId) {
         if (MyCommonUtil.existBlankArgument(kbId)) {
             return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
         }
@@ -45,53 +73,45 @@ public class KbIndexController {
             return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "知识库不存在，请刷新后重试！");
         }
 
-        String mode = normalizeIndexMode(lib.getIndexMode());
-        // 库级分发：TEXT 用 reindexKb；VECTOR 用 reindexKb
-        if ("TEXT_OS".equals(mode)) {
-            kbChunkIndexService.reindexKb(kbId);
-        } else if ("VECTOR".equals(mode)) {
-            kbVectorIndexService.reindexKb(kbId);
-        } else if ("HYBRID".equals(mode)) {
-            kbChunkIndexService.reindexKb(kbId);
-            kbVectorIndexService.reindexKb(kbId);
-        } else {
-            // 兜底
-            kbChunkIndexService.reindexKb(kbId);
-        }
-
-        return ResponseResult.success();
+        return ResponseResult.success(kbJobService.enqueueReindexKb(kbId, null));
     }
 
-    private void dispatchReindexByMode(String mode, Long kbId, Long fileId) {
-        log.info("[kb-index] reindex dispatch, mode={}, kbId={}, fileId={}", mode, kbId, fileId);
-
-        if ("TEXT_OS".equals(mode)) {
-            kbChunkIndexService.reindexFile(fileId);
-            return;
-        }
-        if ("VECTOR".equals(mode)) {
-            kbVectorIndexService.upsertFile(fileId);
-            return;
+    /**
+     * 重新切片（库级）：调整切片配置（知识库 CONFIG_TEXT 的 chunker 或全局 kb.parse.chunk.*）后，为库内解析成功的文件入队 RECHUNK_FILE 任务（批量通道），
+     * 从提取文本缓存重新切片并同步索引，不再重新提取文本。返回入队任务数，进度通过 /kbJob 接口查询。
+     */
+    @SaCheckPermission("kbLibrary.update")
+    @OperationLog(type = SysOperationLogType.UPDATE)
+    @PostMapping("/rechunk/kb/{kbId}")
+    public ResponseResult<Integer> rechunkKb(@PathVariable Long kbId) {
+        if (MyCommonUtil.existBlankArgument(kbId)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
         }
-        if ("HYBRID".equals(mode)) {
-            kbChunkIndexService.reindexFile(fileId);
-            kbVectorIndexService.upsertFile(fileId);
-            return;
+
+        KbLibrary lib = kbLibraryService.getById(kbId);
+        if (lib == null) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "知识库不存在，请刷新后重试！");
         }
-        // default
-        kbChunkIndexService.reindexFile(fileId);
+
+        return ResponseResult.success(kbJobService.enqueueRechunk(kbId, null));
     }
 
-    private String normalizeIndexMode(String m) {
-        if (m == null || m.trim().isEmpty()) return "TEXT_OS";
-        m = m.trim().toUpperCase(java.util.Locale.ROOT);
-        switch (m) {
-            case "BM25": return "TEXT_OS";
-            case "EMBEDDING": return "VECTOR";
-            case "TEXT_OS":
-            case "VECTOR":
-            case "HYBRID": return m;
-            default: return "TEXT_OS";
+    /**
+     * 重新切片（文件级）：入队 RECHUNK_FILE 任务，文件需已解析成功。
+     */
+    @SaCheckPermission("kbLibrary.update")
+    @OperationLog(type = SysOperationLogType.UPDATE)
+    @PostMapping("/rechunk/file/{fileId}")
+    public ResponseResult<Integer> rechunkFile(@PathVariable Long fileId) {
+        if (MyCommonUtil.existBlankArgument(fileId)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+
+        KbFile file = kbFileService.getById(fileId);
+        if (file == null) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_NOT_EXIST, "文件不存在，请刷新后重试！");
         }
+
+        return ResponseResult.success(kbJobService.enqueueRechunk(file.getKbId(), Collections.singletonList(fileId)));
     }
 }
@@ -13,6 +13,10 @@ public class KbJobController {
     private ApplicationConfig appConfig;
     @Autowired
     private KbJobService kbJobService;
+    @Autowired
+    private KbJobProgressReporter kbJobProgressReporter;
+    @Autowired
+    private KbJobAdmissionPolicy kbJobAdmissionPolicy;
 
     /**
      * 新增知识库文件解析进度数据。
@@ -118,9 +122,92 @@ public class KbJobController {
         KbJob kbJobFilter = MyModelUtil.copyTo(kbJobDtoFilter, KbJob.class);
         String orderBy = MyOrderParam.buildOrderBy(orderParam, KbJob.class);
         List<KbJob> kbJobList = kbJobService.getKbJobListWithRelation(kbJobFilter, orderBy);
+        this.overlayLiveProgress(kbJobList);
         return ResponseResult.success(MyPageUtil.makeResponseData(kbJobList, KbJobVo.class));
     }
 
+    /**
+     * 死信任务（DEAD）批量重新排队：重置重试预算后重新进入调度。
+     *
+     * @param kbId   知识库Id（可选）。
+     * @param idList 任务Id列表（可选，为空表示该知识库/全部 DEAD 任务）。
+     * @return 应答结果对象，包含重新排队的任务数。
+     */
+    @SaCheckPermission("kbJob.update")
+    @OperationLog(type = SysOperationLogType.UPDATE)
+    @PostMapping("/requeueDead")
+    public ResponseResult<Integer> requeueDead(
+            @MyRequestBody Long kbId, @MyRequestBody List<Long> idList) {
+        return ResponseResult.success(kbJobService.requeueDead(kbId, idList));
+    }
+
+    /**
+     * 取消任务。排队中的任务立即取消；执行中的任务在下一个检查点（阶段之间、批量写入之间、文本提取过程中）停止，
+     * 并清理已写入的部分分段与索引文档。
+     *
+     * @param idList 任务Id列表。
+     * @return 应答结果对象，包含受理取消的任务数（已结束的任务不计入）。
+     */
+    @SaCheckPermission("kbJob.update")
+    @OperationLog(type = SysOperationLogType.UPDATE)
+    @PostMapping("/cancel")
+    public ResponseResult<Integer> cancel(@MyRequestBody List<Long> idList) {
+        if (MyCommonUtil.existBlankArgument(idList)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        return ResponseResult.success(kbJobService.cancel(idList, "手动取消"));
+    }
+
+    /**
+     * 批量获取运行中任务的实时进度（来自 Redis，可能比数据库中的进度更新）。
+     *
+     * @param jobIdList 任务Id列表。
+     * @return 应答结果对象，jobId -> 实时进度（已结束或未开始的任务不返回）。
+     */
+    @SaCheckPermission("kbJob.view")
+    @PostMapping("/liveProgress")
+    public ResponseResult<Map<Long, KbJobProgress>> liveProgress(@MyRequestBody List<Long> jobIdList) {
+        if (MyCommonUtil.existBlankArgument(jobIdList)) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        return ResponseResult.success(kbJobProgressReporter.getLive(jobIdList));
+    }
+
+    /**
+     * 解析队列统计：排队/执行中任务数、待解析字节数、磁盘余量、最近完成速率与估算排空时间。
+     * 客户端可据此自行限流（批量导入前先查询，排空时间过长时延后提交）。
+     *
+     * @return 应答结果对象，包含队列统计。
+     */
+    @SaCheckPermission("kbJob.view")
+    @GetMapping("/queueStats")
+    public ResponseResult<KbQueueStats> queueStats() {
+        return ResponseResult.success(kbJobAdmissionPolicy.queueStats());
+    }
+
+    /**
+     * 运行中任务的进度按节流间隔落库，列表展示时用 Redis 中的实时进度覆盖。
+     */
+    private void overlayLiveProgress(List<KbJob> kbJobList) {
+        List<Long> runningIds = new ArrayList<>();
+        for (KbJob job : kbJobList) {
+            if ("RUNNING".equals(job.getStatus())) {
+                runningIds.add(job.getId());
+            }
+        }
+        if (runningIds.isEmpty()) {
+            return;
+        }
+        Map<Long, KbJobProgress> live = kbJobProgressReporter.getLive(runningIds);
+        for (KbJob job : kbJobList) {
+            KbJobProgress p = live.get(job.getId());
+            if (p != null) {
+                job.setProgress(p.getProgress());
+                job.setMessage(p.getMessage());
+            }
+        }
+    }
+
     /**
      * 导入主表数据列表。
      *
@@ -184,7 +271,7 @@ public class KbJobController {
         headerMap.put("updateTime", "更新时间");
         headerMap.put("deletedFlag", "删除标记(1: 正常 0: 已删除)");
         headerMap.put("kbId", "知识库Id(关联ic_kb_library.id)");
-        headerMap.put("jobType", "任务类型(REBUILD_INDEX: 重建索引 PARSE_FILE: 解析文件)");
+        headerMap.put("jobType", "任务类型(REBUILD_INDEX: 重建索引 PARSE_FILE: 解析文件 VECTOR_INDEX: 向量索引)");
         headerMap.put("targetId", "关联目标Id(如file_id/为空表示全库任务)");
         headerMap.put("status", "任务状态(PENDING: 排队 RUNNING: 运行 SUCCESS: 成功 FAILED: 失败)");
         headerMap.put("progress", "任务进度(0-100/用于进度条)");
@@ -14,6 +14,8 @@ public class KbLibraryController {
     private ApplicationConfig appConfig;
     @Autowired
     private KbLibraryService kbLibraryService;
+    @Autowired
+    private KbChunkerRegistry kbChunkerRegistry;
 
     /**
      * 新增知识库数据。
@@ -244,7 +246,7 @@ public class KbLibraryController {
      *
      * @param kbId 知识库Id
      * @param indexMode 索引模式(TEXT_OS/VECTOR/HYBRID 或兼容 BM25/EMBEDDING/HYBRID)
-     * @param configText 文本索引配置（可选，继续复用你现有 CONFIG_TEXT）
+     * @param configText 文本索引配置（可选，继续复用你现有 CONFIG_TEXT；其中 chunker 节点为切片配置，见 KbChunkerRegistry）
      * @param vectorIndexConfig 向量索引配置（可选）
      */
     @SaCheckPermission("kbLibrary.update")
@@ -275,6 +277,13 @@ public class KbLibraryController {
                     "数据验证失败，索引模式不合法，仅支持 TEXT_OS/VECTOR/HYBRID（兼容 BM25/EMBEDDING/HYBRID）");
         }
 
+        // 切片配置（chunker 节点）不合法时拒绝保存，避免解析时静默退回默认
+        try {
+            kbChunkerRegistry.validate(configText);
+        } catch (MyRuntimeException e) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, "数据验证失败，切片配置不合法：" + e.getMessage());
+        }
+
         // VECTOR/HYBRID 模式下，向量配置为空就给一个最小默认（也可以留空由后端默认）
         if (("VECTOR".equals(normalizedMode) || "HYBRID".equals(normalizedMode))
                 && (vectorIndexConfig == null || vectorIndexConfig.trim().isEmpty())) {
@@ -1,9 +1,10 @@
 /**
- * KB 文本检索（OpenSearch）相关接口。
+ * KB 检索相关接口（文本检索 OpenSearch / 向量检索）。
  *
  * <p>说明：
  * <ul>
- *   <li>本 Controller 对应 TEXT_OS（文本索引）检索能力，不涉及向量检索（VECTOR）。</li>
+ *   <li>/chunk 对应 TEXT_OS（文本索引）检索能力；/vector、/vector/batch 对应 VECTOR（向量索引）检索能力。</li>
+ *   <li>/hybrid 为混合检索：文本与向量两路并发召回后融合排序（按 kb 的 INDEX_MODE 决定启用哪几路）。</li>
  *   <li>检索数据源为 OpenSearch 索引（默认索引名由配置 kbSearchProperties.opensearch.index 指定）。</li>
  *   <li>返回结构统一：ResponseResult.success(data)，其中 data 包含 dataList + totalCount。</li>
  * </ul>
@@ -17,7 +18,11 @@ public class KbSearchController {
 
     private final KbSearchClient kbSearchClient;
     private final KbChunkIndexService kbChunkIndexService;
+    private final KbVectorIndexService kbVectorIndexService;
+    private final KbHybridSearchService kbHybridSearchService;
     private final KbSearchProperties kbSearchProperties;
+    private final KbJobService kbJobService;
+    private final KbChunkContextService kbChunkContextService;
 
     /**
      * 文本检索：按关键词搜索分段（chunk）。
@@ -67,6 +72,137 @@ public class KbSearchController {
         return ResponseResult.success(data);
     }
 
+    /**
+     * 向量检索：按 query 文本检索语义相似的分段（chunk）。
+     *
+     * <p>入参说明：
+     * <ul>
+     *   <li>keyword：必填，query 文本（会做规范化，并命中 query embedding 缓存）。</li>
+     *   <li>kbId/fileId：至少传一个，用于确定向量配置与检索范围。</li>
+     *   <li>topK：可选，缺省 10。</li>
+     * </ul>
+     *
+     * <p>返回结构与 /chunk 一致：dataList 为 SearchHit（chunkId/fileId/chunkIndex/score，highlight 为空），
+     * totalCount 为本次返回条数（向量检索没有“命中总数”的概念）。</p>
+     */
+    @PostMapping("/vector")
+    public ResponseResult searchVector(@RequestBody VectorSearchReq req) {
+        if (req.getKeyword() == null || req.getKeyword().trim().isEmpty()) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        if (req.getKbId() == null && req.getFileId() == null) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+
+        List<List<KbSearchClient.SearchHit>> r = kbVectorIndexService.search(
+                req.getKbId(),
+                req.getFileId(),
+                Collections.singletonList(req.getKeyword()),
+                req.getTopK() == null ? 10 : req.getTopK()
+        );
+        List<KbSearchClient.SearchHit> hits = r.get(0);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("dataList", hits);
+        data.put("totalCount", hits.size());
+
+        return ResponseResult.success(data);
+    }
+
+    /**
+     * 向量检索（批量）：一次请求检索多个 query，结果按 keywords 下标一一对应。
+     *
+     * <p>用途：RAG 多路召回（问题改写/多子问题）时减少 HTTP 往返；embedding 与向量检索均在客户端按批合并调用。</p>
+     */
+    @PostMapping("/vector/batch")
+    public ResponseResult searchVectorBatch(@RequestBody VectorSearchReq req) {
+        if (req.getKeywords() == null || req.getKeywords().isEmpty()) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        if (req.getKbId() == null && req.getFileId() == null) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+
+        List<List<KbSearchClient.SearchHit>> r = kbVectorIndexService.search(
+                req.getKbId(),
+                req.getFileId(),
+                req.getKeywords(),
+                req.getTopK() == null ? 10 : req.getTopK()
+        );
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("dataList", r);
+        data.put("totalCount", r.size());
+
+        return ResponseResult.success(data);
+    }
+
+    /**
+     * 混合检索：文本（BM25）与向量两路并发召回，按 chunkId 去重后融合排序返回 topK。
+     *
+     * <p>入参说明：
+     * <ul>
+     *   <li>keyword：必填。</li>
+     *   <li>kbId/fileId：至少传一个。</li>
+     *   <li>topK：可选，缺省 10。</li>
+     *   <li>fusion：可选，RRF（默认，倒数排名融合）/ WEIGHTED（分数归一化加权）。</li>
+     * </ul>
+     *
+     * <p>降级：任一路失败/超时时仅返回另一路结果，textOk/vectorOk/message 标识降级情况；两路都失败才报错。</p>
+     */
+    @PostMapping("/hybrid")
+    public ResponseResult searchHybrid(@RequestBody HybridSearchReq req) {
+        if (req.getKeyword() == null || req.getKeyword().trim().isEmpty()) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        if (req.getKbId() == null && req.getFileId() == null) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+
+        KbHybridSearchService.HybridResult r = kbHybridSearchService.search(
+                req.getKbId(),
+                req.getFileId(),
+                req.getKeyword(),
+                req.getTopK() == null ? 10 : req.getTopK(),
+                req.getFusion()
+        );
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("dataList", r.getHits());
+        data.put("totalCount", r.getHits().size());
+        data.put("textOk", r.isTextOk());
+        data.put("vectorOk", r.isVectorOk());
+        data.put("message", r.getMessage());
+
+        return ResponseResult.success(data);
+    }
+
+    /**
+     * 分段上下文：按分段的字节区间从提取文本缓存直接读取分段文本，或前后各扩展 expandBytes 字节的窗口（RAG 拼装上下文）。
+     *
+     * <p>入参说明：
+     * <ul>
+     *   <li>chunkIds：必填，一次可取多个分段（上限 kb.context.maxChunks）。</li>
+     *   <li>expandBytes：可选，缺省 0（只取分段本身），上限 kb.context.maxExpandBytes。</li>
+     *   <li>includeParent：可选，缺省 false；为 true 时按结构切片的分段附带父分段文本（parentText）。</li>
+     * </ul>
+     *
+     * <p>返回按入参顺序排列；source=TEXT_CACHE 表示按字节区间读取，source=DB 表示该文件没有文本缓存，退回数据库内容（不扩展）。</p>
+     */
+    @PostMapping("/context")
+    public ResponseResult<List<KbChunkContext>> chunkContext(@RequestBody ContextReq req) {
+        if (req.getChunkIds() == null || req.getChunkIds().isEmpty()) {
+            return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
+        }
+        try {
+            return ResponseResult.success(kbChunkContextService.getContexts(
+                    req.getChunkIds(), req.getExpandBytes() == null ? 0 : req.getExpandBytes(),
+                    Boolean.TRUE.equals(req.getIncludeParent())));
+        } catch (RuntimeException e) {
+            return ResponseResult.error(ErrorCodeEnum.DATA_VALIDATED_FAILED, e.getMessage());
+        }
+    }
+
     /**
      * 手动重建（文件级）：将某个 fileId 对应的 chunk 全量重建到 OpenSearch。
      *
@@ -88,13 +224,22 @@ public class KbSearchController {
     /**
      * 手动重建（库级）：前端“重建索引”按钮对应接口。
      *
-     * <p>功能：对指定 kbId 下的所有文件/分段进行全量重建索引。</p>
-     * <p>注意：该操作可能耗时较长；如需进度与异步化，建议后续接入 ic_kb_job 任务化执行。</p>
+     * <p>功能：对指定 kbId 下的所有文件/分段进行全量重建索引（仅文本索引）。</p>
+     * <p>异步执行：入队 REINDEX_KB 任务后立即返回任务Id，进度与断点续跑见 KbReindexJobTimer。</p>
      */
     @PostMapping("/reindex/kb/{kbId}")
-    public ResponseResult reindexKb(@PathVariable("kbId") Long kbId) {
-        kbChunkIndexService.reindexKb(kbId);
-        return ResponseResult.success();
+    public ResponseResult<Long> reindexKb(@PathVariable("kbId") Long kbId) {
+        return ResponseResult.success(kbJobService.enqueueReindexKb(kbId, "TEXT"));
+    }
+
+    /**
+     * 分段上下文请求体。
+     */
+    @Data
+    public static class ContextReq {
+        private List<Long> chunkIds;
+        private Integer expandBytes;
+        private Boolean includeParent;
     }
 
     /**
@@ -116,4 +261,37 @@ public class KbSearchController {
         private Integer pageNum;
         private Integer pageSize;
     }
+
+    /**
+     * 向量检索请求体。
+     *
+     * <p>说明：
+     * <ul>
+     *   <li>keyword：单条检索（/vector）使用</li>
+     *   <li>keywords：批量检索（/vector/batch）使用</li>
+     *   <li>kbId/fileId：至少传一个</li>
+     *   <li>topK：可选（Controller 默认 10）</li>
+     * </ul>
+     */
+    @Data
+    public static class VectorSearchReq {
+        private String keyword;
+        private List<String> keywords;
+        private Long kbId;
+        private Long fileId;
+        private Integer topK;
+    }
+
+    /**
+     * 混合检索请求体。
+     */
+    @Data
+    public static class HybridSearchReq {
+        private String keyword;
+        private Long kbId;
+        private Long fileId;
+        private Integer topK;
+        /** RRF（默认）/ WEIGHTED */
+        private String fusion;
+    }
 }
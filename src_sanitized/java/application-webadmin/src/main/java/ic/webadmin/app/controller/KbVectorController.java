@@ -29,6 +29,8 @@ public class KbVectorController {
      */
     @Autowired
     private KbVectorIndexService kbVectorIndexService;
+    @Autowired
+    private KbJobService kbJobService;
 
     /**
      * 手动重建（文件级 / 向量索引）。
@@ -66,16 +68,15 @@ public class KbVectorController {
      *   <li>遍历库下文件 → 查询 chunk → embedding → 批量写入向量库</li>
      * </ul>
      *
-     * <p>注意：库级重建更耗时，建议后续接入任务化执行并返回 jobId 供前端轮询进度。</p>
+     * <p>异步执行：入队 REINDEX_KB 任务后立即返回任务Id，任务逐文件入队 VECTOR_INDEX（按限流速率写入），前端轮询任务进度。</p>
      */
     @SaCheckPermission("kbLibrary.update")
     @OperationLog(type = SysOperationLogType.UPDATE)
     @PostMapping("/reindex/kb/{kbId}")
-    public ResponseResult<Void> reindexKb(@PathVariable Long kbId) {
+    public ResponseResult<Long> reindexKb(@PathVariable Long kbId) {
         if (MyCommonUtil.existBlankArgument(kbId)) {
             return ResponseResult.error(ErrorCodeEnum.ARGUMENT_NULL_EXIST);
         }
-        kbVectorIndexService.reindexKb(kbId);
-        return ResponseResult.success();
+        return ResponseResult.success(kbJobService.enqueueReindexKb(kbId, "VECTOR"));
     }
 }
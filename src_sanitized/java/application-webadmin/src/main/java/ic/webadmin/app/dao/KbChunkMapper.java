@@ -30,6 +30,63 @@ public interface KbChunkMapper {
      */
     int batchInsert(@Param("list") List<KbChunk> list);
 
+    /**
+     * 将源文件的有效分段复制到目标文件（INSERT ... SELECT，内容与字节偏移原样复制）。
+     *
+     * @param sourceFileId 源文件Id。
+     * @param kbId         目标文件所属知识库Id。
+     * @param fileId       目标文件Id。
+     * @param userId       操作用户Id。
+     * @param now          创建/更新时间。
+     * @return 复制条数。
+     */
+    int cloneByFileId(@Param("sourceFileId") Long sourceFileId,
+                      @Param("kbId") Long kbId,
+                      @Param("fileId") Long fileId,
+                      @Param("userId") Long userId,
+                      @Param("now") Date now);
+
+    /**
+     * 复制分段后换算父分段Id（由源文件分段改为目标文件中 chunkIndex 相同的分段）。
+     *
+     * @param sourceFileId 源文件Id。
+     * @param fileId       目标文件Id。
+     * @return 受影响行数。
+     */
+    int remapParentChunkIdByFileId(@Param("sourceFileId") Long sourceFileId, @Param("fileId") Long fileId);
+
+    /**
+     * 批量回填父分段Id。
+     *
+     * @param list 分段列表（仅 id / parentChunkId）。
+     * @return 受影响行数。
+     */
+    int batchUpdateParentChunkId(@Param("list") List<KbChunk> list);
+
+    /**
+     * 查询指定文件有效分段的 id 与 chunkIndex（不含内容，按 chunkIndex 升序）。
+     *
+     * @param fileId 文件Id。
+     * @return 分段列表（仅 id / fileId / chunkIndex）。
+     */
+    List<KbChunk> selectIdIndexByFileIdActive(@Param("fileId") Long fileId);
+
+    /**
+     * 按 id 查询有效分段的定位字段（不含内容）。
+     *
+     * @param ids 分段Id列表。
+     * @return 分段列表（仅 id / fileId / chunkIndex / byteStart / byteEnd）。
+     */
+    List<KbChunk> selectRangesByIdsActive(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 按 id 查询有效分段的内容。
+     *
+     * @param ids 分段Id列表。
+     * @return 分段列表（仅 id / content）。
+     */
+    List<KbChunk> selectContentByIdsActive(@Param("ids") Collection<Long> ids);
+
     /**
      * 根据文件Id获取该文件下所有分段记录列表（仅查询deleted_flag=1）。
      *
@@ -50,6 +107,30 @@ public interface KbChunkMapper {
      */
     List<KbChunk> selectByFileIdActive(@Param("fileId") Long fileId);
 
+    /**
+     * 统计指定文件下的有效 chunk 数（仅 deleted_flag=1）。
+     *
+     * <p>用途：向量任务按 chunk 数申请限流配额，避免为计数而拉取全部分段内容。</p>
+     *
+     * @param fileId 文件Id。
+     * @return 有效 chunk 数。
+     */
+    int countByFileIdActive(@Param("fileId") Long fileId);
+
+    /**
+     * 按 chunkIndex 游标分页查询指定文件下的有效 chunk（仅 deleted_flag=1，chunkIndex 升序）。
+     *
+     * <p>用途：文件级索引分批写入、库级重建任务从断点续跑，避免一次拉取整个文件的分段。</p>
+     *
+     * @param fileId          文件Id。
+     * @param afterChunkIndex 只返回 chunkIndex 大于该值的记录（从头开始传 -1）。
+     * @param limit           最多返回条数。
+     * @return chunk 列表（有效记录）。
+     */
+    List<KbChunk> selectByFileIdActiveAfter(@Param("fileId") Long fileId,
+                                            @Param("afterChunkIndex") int afterChunkIndex,
+                                            @Param("limit") int limit);
+
     /**
      * 查询指定知识库下的有效 chunk（仅 deleted_flag=1）。
      *
@@ -38,6 +38,36 @@ public interface KbFileMapper extends BaseDaoMapper<KbFile> {
      */
     int updateParseStatusProgressMessageById(KbFile file);
 
+    /**
+     * 批量更新解析进度/消息（CASE WHEN 单语句），仅对 PARSE_STATUS=PARSING 的文件生效。
+     *
+     * <p>用途：进度写后合并（KbJobProgressReporter）按节流间隔批量落库，终态仍由
+     * updateParseStatusProgressMessageById 直接写入。</p>
+     *
+     * @param list 进度列表（fileId 不为空且不重复）。
+     * @return 受影响行数。
+     */
+    int batchUpdateParseProgress(@Param("list") List<KbJobProgress> list);
+
+    /**
+     * 按主键更新文本索引状态/消息/完成时间（部分字段更新，传 null 不覆盖原值）。
+     *
+     * @param file 包含 id 以及 textIndexStatus / textIndexMessage / textIndexedTime 等需要更新的字段。
+     * @return 受影响行数（1 表示更新成功，0 表示未找到或已被删除）。
+     */
+    int updateTextIndexStatusById(KbFile file);
+
+    /**
+     * 按主键更新向量索引状态/消息/完成时间（部分字段更新，传 null 不覆盖原值）。
+     *
+     * <p>说明：由 VECTOR_INDEX 任务执行器维护，与解析状态（parseStatus）互相独立：
+     * 文本检索在分段落库后即可用，向量状态单独反映 embedding 追赶进度。</p>
+     *
+     * @param file 包含 id 以及 vectorIndexStatus / vectorIndexMessage / vectorIndexedTime 等需要更新的字段。
+     * @return 受影响行数（1 表示更新成功，0 表示未找到或已被删除）。
+     */
+    int updateVectorIndexStatusById(KbFile file);
+
     /**
      * 查询指定知识库下的有效文件列表（仅 deleted_flag=1）。
      *
@@ -47,4 +77,39 @@ public interface KbFileMapper extends BaseDaoMapper<KbFile> {
      * @return 文件列表（有效记录）。
      */
     List<KbFile> selectByKbIdActive(@Param("kbId") Long kbId);
+
+    /**
+     * 查询同一知识库内内容相同（SHA-256 一致）且已解析成功的有效文件（取最早的一个）。
+     *
+     * @param kbId          知识库Id。
+     * @param contentSha256 文件内容 SHA-256。
+     * @param excludeId     排除的文件Id（当前文件自身）。
+     * @return 文件，没有时返回 null。
+     */
+    KbFile selectParsedByContentSha256(@Param("kbId") Long kbId,
+                                       @Param("contentSha256") String contentSha256,
+                                       @Param("excludeId") Long excludeId);
+
+    /**
+     * 按 id 游标分页查询指定知识库下解析成功的有效文件Id（id 升序）。
+     *
+     * <p>用途：库级重建任务逐文件处理并从断点续跑。</p>
+     *
+     * @param kbId    知识库Id。
+     * @param afterId 只返回 id 大于该值的文件（从头开始传 0）。
+     * @param limit   最多返回条数。
+     * @return 文件Id列表。
+     */
+    List<Long> selectIdsByKbIdActiveAfter(@Param("kbId") Long kbId,
+                                          @Param("afterId") Long afterId,
+                                          @Param("limit") int limit);
+
+    /**
+     * 统计指定知识库下解析成功的有效文件数。
+     *
+     * @param kbId      知识库Id。
+     * @param maxFileId 可选：只统计 id 小于等于该值的文件（计算续跑时的已完成数）。
+     * @return 文件数。
+     */
+    int countByKbIdActive(@Param("kbId") Long kbId, @Param("maxFileId") Long maxFileId);
 }
@@ -43,4 +43,270 @@ public interface KbJobMapper extends BaseDaoMapper<KbJob> {
      * @return 受影响行数（1 表示更新成功，0 表示未找到或已被删除）。
      */
     int updateStatusProgressMessageById(KbJob job);
+
+    /**
+     * 领取任务（CAS）：仅当任务仍为 PENDING 时置为 RUNNING，并写入持有节点与租约到期时间。
+     * 到期时间按数据库时钟计算（NOW() + leaseMs），与回收扫描使用同一时钟，不受节点时钟偏差影响。
+     *
+     * @param id           任务Id。
+     * @param ownerNode    持有节点标识。
+     * @param leaseMs      租约时长（毫秒）。
+     * @param updateUserId 更新用户Id。
+     * @return 1 表示领取成功，0 表示已被其他节点领取或状态已变化。
+     */
+    int claimById(@Param("id") Long id,
+                  @Param("ownerNode") String ownerNode,
+                  @Param("leaseMs") long leaseMs,
+                  @Param("updateUserId") Long updateUserId);
+
+    /**
+     * 按租约持有者更新任务状态/进度/消息（部分字段更新）。
+     *
+     * <p>仅当任务仍为 RUNNING 且 OWNER_NODE 等于 ownerNode 时生效；租约已被回收（重新排队/被其他节点领取）时返回 0，
+     * 调用方应放弃后续写入，避免旧持有者覆盖新持有者的结果。终态（非 RUNNING）会同时清空租约到期时间。</p>
+     *
+     * @param job       包含 id 以及需要更新的字段。
+     * @param ownerNode 持有节点标识。
+     * @return 受影响行数（1 表示仍持有租约并更新成功）。
+     */
+    int updateStatusProgressMessageByIdAndOwner(@Param("job") KbJob job, @Param("ownerNode") String ownerNode);
+
+    /**
+     * 心跳续期：批量延长指定节点持有的 RUNNING 任务租约（到期时间按数据库时钟 NOW() + leaseMs 计算）。
+     *
+     * @param ownerNode 持有节点标识。
+     * @param ids       任务Id列表。
+     * @param leaseMs   租约时长（毫秒）。
+     * @return 续期成功的任务数。
+     */
+    int renewLease(@Param("ownerNode") String ownerNode,
+                   @Param("ids") Collection<Long> ids,
+                   @Param("leaseMs") long leaseMs);
+
+    /**
+     * 查询指定通道内游标之后第一个有可领取任务的知识库（按索引有序取一条，代价与排队总量无关）。
+     *
+     * @param jobType   任务类型。
+     * @param priority  优先级。
+     * @param afterKbId 只返回大于该值的知识库Id（从头开始传 0）。
+     * @return 知识库Id，没有时返回 null。
+     */
+    Long selectNextPendingKbId(@Param("jobType") String jobType,
+                               @Param("priority") Integer priority,
+                               @Param("afterKbId") Long afterKbId);
+
+    /**
+     * 查询指定通道内最早排队的可领取任务（PENDING、未请求取消、已到最早可执行时间）。
+     *
+     * @param jobType  任务类型。
+     * @param priority 优先级。
+     * @param limit    最多返回条数。
+     * @return 任务列表（按 id 升序）。
+     */
+    List<KbJob> selectNextClaimable(@Param("jobType") String jobType,
+                                    @Param("priority") Integer priority,
+                                    @Param("limit") int limit);
+
+    /**
+     * 查询指定通道、指定知识库内最早排队的任务。
+     *
+     * @param jobType  任务类型。
+     * @param priority 优先级。
+     * @param kbId     知识库Id。
+     * @param limit    最多返回条数。
+     * @return 任务列表（按 id 升序）。
+     */
+    List<KbJob> selectPendingByKb(@Param("jobType") String jobType,
+                                  @Param("priority") Integer priority,
+                                  @Param("kbId") Long kbId,
+                                  @Param("limit") int limit);
+
+    /**
+     * 记录任务断点（按持有者条件，租约被回收后不生效）。
+     *
+     * @param id         任务Id。
+     * @param ownerNode  持有节点标识。
+     * @param fileId     最后处理的文件Id。
+     * @param chunkIndex 该文件内最后写入的 chunkIndex（为空表示该文件已处理完）。
+     * @return 1 表示仍持有租约并记录成功。
+     */
+    int updateCheckpointByOwner(@Param("id") Long id,
+                                @Param("ownerNode") String ownerNode,
+                                @Param("fileId") Long fileId,
+                                @Param("chunkIndex") Integer chunkIndex);
+
+    /**
+     * 请求取消：为 PENDING / RUNNING 任务打上取消标记。
+     *
+     * @param ids          任务Id列表。
+     * @param updateUserId 更新用户Id。
+     * @return 受影响行数。
+     */
+    int markCancelRequestedByIds(@Param("ids") Collection<Long> ids, @Param("updateUserId") Long updateUserId);
+
+    /**
+     * 已请求取消且仍在排队的任务直接置为 CANCELLED。
+     *
+     * @param ids          任务Id列表。
+     * @param message      说明。
+     * @param updateUserId 更新用户Id。
+     * @return 受影响行数。
+     */
+    int cancelPendingByIds(@Param("ids") Collection<Long> ids,
+                           @Param("message") String message,
+                           @Param("updateUserId") Long updateUserId);
+
+    /**
+     * 查询指定目标（文件）上未结束（PENDING / RUNNING）的任务。
+     *
+     * @param targetId 目标Id。
+     * @return 任务列表。
+     */
+    List<KbJob> selectActiveByTargetId(@Param("targetId") Long targetId);
+
+    /**
+     * 查询知识库内有未结束（PENDING / RUNNING）解析或重新切片任务的文件Id。
+     *
+     * @param kbId 知识库Id。
+     * @return 文件Id列表。
+     */
+    List<Long> selectActiveParseTargetIds(@Param("kbId") Long kbId);
+
+    /**
+     * 查询指定节点持有且已请求取消的 RUNNING 任务Id。
+     *
+     * @param ownerNode 持有节点标识。
+     * @param ids       待确认的任务Id列表。
+     * @return 已请求取消的任务Id列表。
+     */
+    List<Long> selectCancelRequestedIds(@Param("ownerNode") String ownerNode, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 统计解析队列积压（PENDING / RUNNING 的 PARSE_FILE 任务数及对应文件总字节数）。
+     *
+     * @return 队列统计（仅填充 pendingJobs / runningJobs / pendingBytes）。
+     */
+    KbQueueStats selectParseQueueStats();
+
+    /**
+     * 统计指定时间之后完成（SUCCESS / FAILED / DEAD）的解析任务数，用于估算排空速率。
+     *
+     * @param since 起始时间。
+     * @return 完成任务数。
+     */
+    Long countParseFinishedSince(@Param("since") Date since);
+
+    /**
+     * 查询指定节点仍持有的 RUNNING 任务Id（心跳续期数量不足时用于定位已丢失租约的任务）。
+     *
+     * @param ownerNode 持有节点标识。
+     * @param ids       待确认的任务Id列表。
+     * @return 仍持有的任务Id列表。
+     */
+    List<Long> selectOwnedRunningIds(@Param("ownerNode") String ownerNode, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量更新运行中任务的进度/消息（CASE WHEN 单语句），仅对 ownerNode 仍持有的 RUNNING 任务生效。
+     *
+     * @param list      进度列表（jobId 不重复）。
+     * @param ownerNode 持有节点标识。
+     * @return 受影响行数。
+     */
+    int batchUpdateProgressByOwner(@Param("list") List<KbJobProgress> list, @Param("ownerNode") String ownerNode);
+
+    /**
+     * 查询租约已过期的 RUNNING 任务（持有节点宕机/长时间卡死）。
+     *
+     * @param limit 单次最多返回条数。
+     * @return 过期任务列表。
+     */
+    List<KbJob> selectLeaseExpired(@Param("limit") int limit);
+
+    /**
+     * 回收过期租约（CAS：仍为原持有者且仍过期）。
+     *
+     * @param id        任务Id。
+     * @param ownerNode 原持有节点标识。
+     * @param status    回收后的状态（PENDING：重新排队；DEAD：重试预算已耗尽）。
+     * @param message   回收说明。
+     * @return 1 表示回收成功。
+     */
+    int requeueExpiredById(@Param("id") Long id,
+                           @Param("ownerNode") String ownerNode,
+                           @Param("status") String status,
+                           @Param("message") String message);
+
+    /**
+     * 退避重试：按持有者条件将 RUNNING 任务放回 PENDING，并设置最早可执行时间（已请求取消时置为 CANCELLED）。
+     *
+     * @param id          任务Id。
+     * @param ownerNode   持有节点标识。
+     * @param nextRunTime 最早可执行时间。
+     * @param errorClass  错误分类。
+     * @param message     失败说明。
+     * @return 1 表示仍持有租约并重排成功。
+     */
+    int rescheduleByOwner(@Param("id") Long id,
+                          @Param("ownerNode") String ownerNode,
+                          @Param("nextRunTime") Date nextRunTime,
+                          @Param("errorClass") String errorClass,
+                          @Param("message") String message);
+
+    /**
+     * 领取后未开始执行的任务放回 PENDING（按持有者条件），并回退领取时增加的执行次数。
+     *
+     * @param id        任务Id。
+     * @param ownerNode 持有节点标识。
+     * @param message   说明。
+     * @return 1 表示仍持有租约并放回成功。
+     */
+    int requeueUnstartedByOwner(@Param("id") Long id,
+                                @Param("ownerNode") String ownerNode,
+                                @Param("message") String message);
+
+    /**
+     * 查询并锁定 DEAD 任务（SELECT ... FOR UPDATE，须在事务内调用），锁定期间其状态不会被并发修改。
+     *
+     * @param kbId 知识库Id（为空表示不限）。
+     * @param ids  任务Id列表（为空表示该范围内全部 DEAD 任务）。
+     * @return 任务列表（仅 id / kbId / jobType / targetId）。
+     */
+    List<KbJob> selectDeadForUpdate(@Param("kbId") Long kbId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * 死信任务重新排队（重置执行次数、最早可执行时间与错误分类），仅对 DEAD 状态生效。
+     *
+     * @param ids          任务Id列表。
+     * @param message      说明。
+     * @param updateUserId 更新用户Id。
+     * @return 受影响行数。
+     */
+    int requeueDeadByIds(@Param("ids") Collection<Long> ids,
+                         @Param("message") String message,
+                         @Param("updateUserId") Long updateUserId);
+
+    /**
+     * 查询可归档任务Id：SUCCESS / FAILED / CANCELLED 且结束时间早于截止时间。
+     *
+     * @param cutoff 截止时间。
+     * @param limit  最多返回条数。
+     * @return 任务Id列表。
+     */
+    List<Long> selectArchivableIds(@Param("cutoff") Date cutoff, @Param("limit") int limit);
+
+    /**
+     * 将指定终态任务复制到历史表 ic_kb_job_history。
+     *
+     * @param ids 任务Id列表。
+     * @return 复制行数。
+     */
+    int insertHistoryByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 物理删除已归档的终态任务。
+     *
+     * @param ids 任务Id列表。
+     * @return 删除行数。
+     */
+    int deleteArchivedByIds(@Param("ids") Collection<Long> ids);
 }
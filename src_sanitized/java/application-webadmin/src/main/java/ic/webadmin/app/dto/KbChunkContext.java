@@ -0,0 +1,41 @@
+/**
+ * 分段上下文（按字节区间读取的分段文本或其扩展窗口）。
+ */
+@Data
+public class KbChunkContext {
+
+    /** 来源：按字节区间读取提取文本缓存。 */
+    public static final String SOURCE_TEXT_CACHE = "TEXT_CACHE";
+    /** 来源：数据库 CONTENT（没有文本缓存时的兜底，不支持扩展窗口）。 */
+    public static final String SOURCE_DB = "DB";
+
+    /** 分段Id。 */
+    private Long chunkId;
+
+    /** 文件Id。 */
+    private Long fileId;
+
+    /** 分段序号。 */
+    private Integer chunkIndex;
+
+    /** 返回文本的起始 UTF-8 字节偏移（含）。 */
+    private Long byteStart;
+
+    /** 返回文本的结束 UTF-8 字节偏移（不含）。 */
+    private Long byteEnd;
+
+    /** 文本。 */
+    private String text;
+
+    /** 来源（TEXT_CACHE / DB）。 */
+    private String source;
+
+    /** 章节路径（按结构切片时有值）。 */
+    private String sectionPath;
+
+    /** 父分段Id（按结构切片时有值）。 */
+    private Long parentChunkId;
+
+    /** 父分段文本（请求 includeParent 且存在父分段时有值）。 */
+    private String parentText;
+}
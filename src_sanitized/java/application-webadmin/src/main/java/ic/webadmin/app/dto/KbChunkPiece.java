@@ -10,4 +10,9 @@ public class KbChunkPiece {
 
     private Integer contentByteLen;
     private String contentHash;
+
+    /** 章节路径（各级标题以 " > " 连接），字节窗口切片时为空 */
+    private String sectionPath;
+    /** 父分段的 chunkIndex（落库后换算为 PARENT_CHUNK_ID），没有父分段时为空 */
+    private Integer parentChunkIndex;
 }
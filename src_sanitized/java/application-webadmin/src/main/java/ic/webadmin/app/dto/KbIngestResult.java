@@ -0,0 +1,24 @@
+/**
+ * 批量导入结果（压缩包 / 服务器目录）。
+ */
+@Data
+public class KbIngestResult {
+
+    /** 导入的文件数（每个文件一条 PARSE_FILE 任务，批量通道）。 */
+    private Integer fileCount = 0;
+
+    /** 跳过的条目数（目录、不支持的类型、无法读取的条目）。 */
+    private Integer skippedCount = 0;
+
+    /** 导入文件的总字节数。 */
+    private Long totalBytes = 0L;
+
+    /** 其中按内容寻址复用已有存储的文件数。 */
+    private Integer dedupCount = 0;
+
+    /** 耗时（毫秒）。 */
+    private Long costMs;
+
+    /** 跳过条目示例（最多 kb.ingest.maxSkippedSamples 条）。 */
+    private List<String> skippedSamples = new ArrayList<>();
+}
@@ -20,9 +20,9 @@ public class KbJobDto {
     private Long kbId;
 
     /**
-     * 任务类型(REBUILD_INDEX: 重建索引 PARSE_FILE: 解析文件)。
+     * 任务类型(REBUILD_INDEX: 重建索引 PARSE_FILE: 解析文件 VECTOR_INDEX: 向量索引)。
      */
-    @NotBlank(message = "数据验证失败，任务类型(REBUILD_INDEX: 重建索引 PARSE_FILE: 解析文件)不能为空！")
+    @NotBlank(message = "数据验证失败，任务类型(REBUILD_INDEX: 重建索引 PARSE_FILE: 解析文件 VECTOR_INDEX: 向量索引)不能为空！")
     private String jobType;
 
     /**
@@ -31,9 +31,14 @@ public class KbJobDto {
     private Long targetId;
 
     /**
-     * 任务状态(PENDING: 排队 RUNNING: 运行 SUCCESS: 成功 FAILED: 失败)。
+     * 优先级(0: 交互式 5: 普通 9: 批量，数值越小越优先，为空时按普通)。
      */
-    @NotBlank(message = "数据验证失败，任务状态(PENDING: 排队 RUNNING: 运行 SUCCESS: 成功 FAILED: 失败)不能为空！")
+    private Integer priority;
+
+    /**
+     * 任务状态(PENDING: 排队 RUNNING: 运行 SUCCESS: 成功 FAILED: 失败 DEAD: 重试耗尽)。
+     */
+    @NotBlank(message = "数据验证失败，任务状态(PENDING: 排队 RUNNING: 运行 SUCCESS: 成功 FAILED: 失败 DEAD: 重试耗尽)不能为空！")
     private String status;
 
     /**
@@ -0,0 +1,26 @@
+/**
+ * 任务实时进度（写后合并：运行中进度先写 Redis 供前端轮询，再按节流间隔批量落库）。
+ */
+@Data
+public class KbJobProgress implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 任务Id（ic_kb_job.id）。 */
+    private Long jobId;
+
+    /** 文件Id（PARSE_FILE 时同步回写 ic_kb_file 解析进度，其他任务为空）。 */
+    private Long fileId;
+
+    /** 任务类型。 */
+    private String jobType;
+
+    /** 进度（0-100）。 */
+    private Integer progress;
+
+    /** 阶段说明。 */
+    private String message;
+
+    /** 最近一次上报时间（毫秒时间戳）。 */
+    private Long reportTime;
+}
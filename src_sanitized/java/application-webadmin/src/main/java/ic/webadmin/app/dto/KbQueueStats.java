@@ -0,0 +1,27 @@
+/**
+ * 解析队列统计（准入控制与客户端自我限流使用）。
+ */
+@Data
+public class KbQueueStats {
+
+    /** 排队中的解析任务数。 */
+    private Long pendingJobs;
+
+    /** 执行中的解析任务数。 */
+    private Long runningJobs;
+
+    /** 排队 + 执行中任务对应文件的总字节数（ic_kb_file.FILE_SIZE 之和）。 */
+    private Long pendingBytes;
+
+    /** KB 存储目录所在磁盘的可用字节数。 */
+    private Long freeDiskBytes;
+
+    /** 最近统计窗口内完成（成功/失败）的解析任务数。 */
+    private Long finishedInWindow;
+
+    /** 统计窗口（秒）。 */
+    private Long windowSeconds;
+
+    /** 估算排空时间（秒）：(排队+执行中) / 最近窗口的完成速率；窗口内无完成时为空。 */
+    private Long estimatedDrainSeconds;
+}
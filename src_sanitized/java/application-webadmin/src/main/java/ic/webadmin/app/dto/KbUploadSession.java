@@ -0,0 +1,71 @@
+/**
+ * 分片上传会话（可续传）：initiate 创建，按分片号上传，complete 合并后创建文件与解析任务。
+ *
+ * <p>会话与已上传分片记录存 Redis（带 TTL），分片内容写在 kb.storage.localBaseDir/.tmp/uploads/{uploadId}/ 下；
+ * 客户端断线后可通过 status 查询已上传的分片，只补传缺失部分。</p>
+ */
+@Data
+public class KbUploadSession implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 上传会话Id。 */
+    private String uploadId;
+
+    /** 知识库Id。 */
+    private Long kbId;
+
+    /** 原始文件名。 */
+    private String fileName;
+
+    /** 文件扩展名（小写）。 */
+    private String fileExt;
+
+    /** 文件类型(MIME)。 */
+    private String mimeType;
+
+    /** 文件总字节数。 */
+    private Long fileSize;
+
+    /** 客户端声明的整文件 SHA-256（可选，合并后校验）。 */
+    private String sha256;
+
+    /** 分片大小（最后一片可以更小）。 */
+    private Long partSize;
+
+    /** 分片数。 */
+    private Integer partCount;
+
+    /** 准入判定为 DEFER 时的说明（解析任务进入批量通道），ACCEPT 时为空。 */
+    private String deferReason;
+
+    /** 创建用户Id。 */
+    private Long createUserId;
+
+    /** 创建时间（毫秒时间戳）。 */
+    private Long createTime;
+
+    /** 完成后创建的文件Id（重复调用 complete 时直接返回）。 */
+    private Long fileId;
+
+    /** 已上传分片（status 接口返回）。 */
+    private List<Part> parts;
+
+    /**
+     * 已上传分片。
+     */
+    @Data
+    public static class Part implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /** 分片号（从 1 开始）。 */
+        private Integer partNumber;
+
+        /** 分片字节数。 */
+        private Long size;
+
+        /** 分片 SHA-256（十六进制小写）。 */
+        private String sha256;
+    }
+}
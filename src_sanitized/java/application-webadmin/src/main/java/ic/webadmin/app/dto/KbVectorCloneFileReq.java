@@ -0,0 +1,33 @@
+/**
+ * 向量文件级复制请求 DTO（Java -> 向量服务）。
+ *
+ * <p>用途：重复上传的文件复用了同库相同内容文件的分段后，把源文件已有的向量按 chunkId 对应关系复制到新文件，
+ * 不再重新 embedding。对应关系由 Java 侧按 chunkIndex 计算。</p>
+ */
+@Data
+public class KbVectorCloneFileReq {
+
+    private Long kbId;
+    /** 源文件Id（向量已写入） */
+    private Long sourceFileId;
+    /** 目标文件Id */
+    private Long fileId;
+
+    /**
+     * 向量配置（ic_kb_library.vectorIndexConfig 原样透传，用于定位集合/分区）。
+     */
+    private String vectorIndexConfig;
+
+    /** 分段对应关系 */
+    private List<ChunkMapping> chunks;
+
+    /**
+     * 分段对应关系（源 chunkId -> 目标 chunkId）。
+     */
+    @Data
+    public static class ChunkMapping {
+        private Long sourceChunkId;
+        private Long chunkId;
+        private Integer chunkIndex;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * 文本向量化请求 DTO（Java -> 向量服务/Embedding 服务）。
+ *
+ * <p>用途：为 query 文本生成 embedding（检索侧使用），返回向量与 texts 按下标一一对应。</p>
+ */
+@Data
+public class KbVectorEmbedReq {
+
+    /**
+     * 向量配置（ic_kb_library.vectorIndexConfig 原样透传），保证 query 与入库时使用同一模型。
+     */
+    private String vectorIndexConfig;
+
+    /** 待向量化文本（批量）。 */
+    private List<String> texts;
+}
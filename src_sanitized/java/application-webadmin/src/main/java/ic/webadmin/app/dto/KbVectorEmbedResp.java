@@ -0,0 +1,18 @@
+@Data
+public class KbVectorEmbedResp {
+
+    /**
+     * Python 返回是否成功
+     */
+    private Boolean success;
+
+    /**
+     * 错误信息（失败时）
+     */
+    private String message;
+
+    /**
+     * 向量列表，与请求 texts 按下标一一对应
+     */
+    private List<float[]> vectors;
+}
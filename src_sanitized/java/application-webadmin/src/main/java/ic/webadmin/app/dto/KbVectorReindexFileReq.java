@@ -19,6 +19,8 @@
  *   <li>kbId 与 fileId 在一次请求中通常应保持一致（fileId 所属 kbId = kbId）。</li>
  *   <li>vectorIndexConfig 为“配置文本”，不强制 JSON；对接服务若需要结构化可自行解析。</li>
  *   <li>content 建议使用“解析后的清洗文本”（与入 OpenSearch 的 cleanText 保持一致），并注意长度上限。</li>
+ *   <li>传输格式由 kb.vector.wireFormat 决定：JSON（本对象整包）或 NDJSON_GZIP
+ *       （首行文件头 kbId/fileId/vectorIndexConfig/chunkCount，之后每行一个 ChunkItem，整体 gzip）。</li>
  * </ul>
  */
 @Data
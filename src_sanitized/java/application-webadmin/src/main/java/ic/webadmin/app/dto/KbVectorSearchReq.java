@@ -0,0 +1,38 @@
+/**
+ * 向量检索请求 DTO（Java -> 向量服务）。
+ *
+ * <p>用途：
+ * <ul>
+ *   <li>searchByVector：携带 queryVectors（已生成好的 query embedding）直接做相似度检索。</li>
+ *   <li>searchByText：携带 queries（原始问题文本），由客户端先查 embedding 缓存/调用 embed，再转为 searchByVector。</li>
+ * </ul>
+ *
+ * <p>批量约定：
+ * <ul>
+ *   <li>queries / queryVectors 为批量入参，响应 results 与其一一对应（同下标）。</li>
+ *   <li>单次请求的批量大小由客户端按 kb.vector.search.maxBatch 切分，调用方无需关心。</li>
+ * </ul>
+ */
+@Data
+public class KbVectorSearchReq {
+
+    /** 知识库Id（向量库分区/过滤条件）。 */
+    private Long kbId;
+
+    /** 可选：文件过滤条件。 */
+    private Long fileId;
+
+    /**
+     * 向量配置（ic_kb_library.vectorIndexConfig 原样透传，决定 embedding 模型/维度等）。
+     */
+    private String vectorIndexConfig;
+
+    /** 每个 query 返回的命中数。 */
+    private Integer topK;
+
+    /** 批量 query 文本（searchByText 使用）。 */
+    private List<String> queries;
+
+    /** 批量 query 向量（searchByVector 使用）。 */
+    private List<float[]> queryVectors;
+}
@@ -0,0 +1,41 @@
+@Data
+public class KbVectorSearchResp {
+
+    /**
+     * Python 返回是否成功
+     */
+    private Boolean success;
+
+    /**
+     * 错误信息（失败时）
+     */
+    private String message;
+
+    /**
+     * 检索结果，与请求中的 queries/queryVectors 按下标一一对应
+     */
+    private List<QueryResult> results;
+
+    /**
+     * 单个 query 的检索结果。
+     */
+    @Data
+    public static class QueryResult {
+        /** 命中列表（按 score 降序）。 */
+        private List<Hit> hits;
+    }
+
+    /**
+     * 向量命中项（字段口径与 ic_kb_chunk 保持一致）。
+     */
+    @Data
+    public static class Hit {
+        /** 分段Id（ic_kb_chunk.id）。 */
+        private Long chunkId;
+        private Long kbId;
+        private Long fileId;
+        private Integer chunkIndex;
+        /** 相似度得分（越大越相似）。 */
+        private Double score;
+    }
+}
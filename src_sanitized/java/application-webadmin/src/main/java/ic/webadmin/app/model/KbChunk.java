@@ -85,4 +85,14 @@ public class KbChunk {
      * 分段内容字节长度(UTF-8)。
      */
     private Integer contentByteLen;
+
+    /**
+     * 章节路径(各级标题以 " > " 连接，按结构切片时填写)。
+     */
+    private String sectionPath;
+
+    /**
+     * 父分段Id(上级章节的首个分段；同一章节的后续分段指向本章节首个分段)。
+     */
+    private Long parentChunkId;
 }
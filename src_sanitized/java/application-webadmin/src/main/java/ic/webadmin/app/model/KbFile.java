@@ -66,7 +66,13 @@ public class KbFile extends BaseModel {
     private String storagePath;
 
     /**
-     * 解析状态(PENDING: 待解析 PARSING: 解析中 SUCCESS: 成功 FAILED: 失败)。
+     * 文件内容 SHA-256(十六进制小写，上传写盘时计算，用于内容寻址存储与重复上传复用分段)。
+     */
+    @TableField(value = "CONTENT_SHA256")
+    private String contentSha256;
+
+    /**
+     * 解析状态(PENDING: 待解析 PARSING: 解析中 SUCCESS: 成功 FAILED: 失败 CANCELLED: 已取消)。
      */
     @TableField(value = "PARSE_STATUS")
     private String parseStatus;
@@ -89,6 +95,42 @@ public class KbFile extends BaseModel {
     @TableField(value = "PARSED_TIME")
     private Date parsedTime;
 
+    /**
+     * 文本索引状态(PENDING: 排队 INDEXING: 写入中 SUCCESS: 成功 FAILED: 失败)。
+     */
+    @TableField(value = "TEXT_INDEX_STATUS")
+    private String textIndexStatus;
+
+    /**
+     * 文本索引结果说明(失败原因/提示信息)。
+     */
+    @TableField(value = "TEXT_INDEX_MESSAGE")
+    private String textIndexMessage;
+
+    /**
+     * 文本索引完成时间。
+     */
+    @TableField(value = "TEXT_INDEXED_TIME")
+    private Date textIndexedTime;
+
+    /**
+     * 向量索引状态(NONE: 无需向量 PENDING: 排队 INDEXING: 写入中 SUCCESS: 成功 FAILED: 失败 CANCELLED: 已取消)。
+     */
+    @TableField(value = "VECTOR_INDEX_STATUS")
+    private String vectorIndexStatus;
+
+    /**
+     * 向量索引结果说明(失败原因/提示信息)。
+     */
+    @TableField(value = "VECTOR_INDEX_MESSAGE")
+    private String vectorIndexMessage;
+
+    /**
+     * 向量索引完成时间。
+     */
+    @TableField(value = "VECTOR_INDEXED_TIME")
+    private Date vectorIndexedTime;
+
     @RelationDict(
             masterIdField = "id",
             slaveModelClass = KbJob.class,
@@ -29,7 +29,7 @@ public class KbJob extends BaseModel {
     private Long kbId;
 
     /**
-     * 任务类型(REBUILD_INDEX: 重建索引 PARSE_FILE: 解析文件)。
+     * 任务类型(REINDEX_KB: 库级重建索引 PARSE_FILE: 解析文件 RECHUNK_FILE: 重新切片 VECTOR_INDEX: 向量索引)。
      */
     @TableField(value = "JOB_TYPE")
     private String jobType;
@@ -41,7 +41,13 @@ public class KbJob extends BaseModel {
     private Long targetId;
 
     /**
-     * 任务状态(PENDING: 排队 RUNNING: 运行 SUCCESS: 成功 FAILED: 失败)。
+     * 优先级(0: 交互式 5: 普通 9: 批量，数值越小越优先，见 KbJobPriority)。
+     */
+    @TableField(value = "PRIORITY")
+    private Integer priority;
+
+    /**
+     * 任务状态(PENDING: 排队 RUNNING: 运行 SUCCESS: 成功 FAILED: 失败 DEAD: 重试耗尽 CANCELLED: 已取消)。
      */
     @TableField(value = "STATUS")
     private String status;
@@ -69,4 +75,58 @@ public class KbJob extends BaseModel {
      */
     @TableField(value = "END_TIME")
     private Date endTime;
+
+    /**
+     * 已执行次数(每次领取加 1，用于重试预算)。
+     */
+    @TableField(value = "ATTEMPT_COUNT")
+    private Integer attemptCount;
+
+    /**
+     * 最早可执行时间(退避重试时设置，为空表示立即可执行)。
+     */
+    @TableField(value = "NEXT_RUN_TIME")
+    private Date nextRunTime;
+
+    /**
+     * 最近一次失败的错误分类(TRANSIENT: 瞬时可重试 PERMANENT: 永久失败)。
+     */
+    @TableField(value = "ERROR_CLASS")
+    private String errorClass;
+
+    /**
+     * 取消请求标记(1: 已请求取消，执行中的任务在下一个检查点停止并清理 0: 无)。
+     */
+    @TableField(value = "CANCEL_REQUESTED")
+    private Integer cancelRequested;
+
+    /**
+     * 任务参数(REINDEX_KB: 指定后端名称，逗号分隔，为空表示按 INDEX_MODE 启用的全部后端)。
+     */
+    @TableField(value = "JOB_PARAM")
+    private String jobParam;
+
+    /**
+     * 断点：最后处理的文件Id(REINDEX_KB 续跑用)。
+     */
+    @TableField(value = "CHECKPOINT_FILE_ID")
+    private Long checkpointFileId;
+
+    /**
+     * 断点：断点文件内最后写入的 chunkIndex(为空表示该文件已处理完)。
+     */
+    @TableField(value = "CHECKPOINT_CHUNK_INDEX")
+    private Integer checkpointChunkIndex;
+
+    /**
+     * 持有租约的节点标识(RUNNING 时有效)。
+     */
+    @TableField(value = "OWNER_NODE")
+    private String ownerNode;
+
+    /**
+     * 租约到期时间(心跳续期，过期未续则由清扫任务重新排队)。
+     */
+    @TableField(value = "LEASE_EXPIRE_TIME")
+    private Date leaseExpireTime;
 }
@@ -0,0 +1,37 @@
+/**
+ * 知识库任务优先级(ic_kb_job.PRIORITY)，数值越小越优先。
+ *
+ * <p>调度口径：先取有排队任务的最高优先级通道，通道内按 kbId 轮转（见 KbJobScheduler），
+ * 交互式单文件上传不会被批量导入/库级重建的积压阻塞。</p>
+ */
+public final class KbJobPriority {
+
+    /**
+     * 交互式(前端单文件上传等，用户在等待结果)。
+     */
+    public static final int INTERACTIVE = 0;
+    /**
+     * 普通(派生任务，如解析完成后的向量索引)。
+     */
+    public static final int NORMAL = 5;
+    /**
+     * 批量(批量导入、库级重建等后台任务)。
+     */
+    public static final int BULK = 9;
+
+    /**
+     * 判断参数是否为合法常量值。
+     *
+     * @param value 待验证的参数值。
+     * @return 合法返回true，否则false。
+     */
+    public static boolean isValid(Integer value) {
+        return value != null && (value == INTERACTIVE || value == NORMAL || value == BULK);
+    }
+
+    /**
+     * 私有构造函数，明确标识该常量类的作用。
+     */
+    private KbJobPriority() {
+    }
+}
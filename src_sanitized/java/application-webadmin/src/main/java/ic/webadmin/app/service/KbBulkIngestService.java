@@ -0,0 +1,231 @@
+/**
+ * KB 批量导入：一次请求导入整批文档（压缩包流或服务器本地目录），用于知识库初始语料加载。
+ *
+ * <p>压缩包：zip / tar（含 tar.gz、tar.bz2 等，自动识别压缩格式）按条目顺序流式读取，
+ * 不落地整个压缩包；每个条目直接经 {@link KbFileStorage#store} 边写边算 SHA-256 按内容寻址落盘。
+ * 目录：仅允许 kb.storage.localBaseDir 之下的相对路径（防路径穿越），递归遍历后同样复制进内容寻址存储。</p>
+ *
+ * <p>只导入允许的类型（txt / pdf / doc / docx / md），其他条目计入跳过。
+ * 文件记录与解析任务每 kb.ingest.batchSize 个一批，经 insertList 在同一事务内批量写入，
+ * 解析任务一律进入批量通道（BULK），不挤占交互上传。</p>
+ */
+@Slf4j
+@Service
+public class KbBulkIngestService {
+
+    public static final Set<String> ALLOWED_EXTS =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("txt", "pdf", "doc", "docx", "md")));
+
+    /**
+     * 每批写库的文件数
+     */
+    @Value("${kb.ingest.batchSize:500}")
+    private int batchSize;
+
+    /**
+     * 单次导入最多文件数（防止误传超大包）
+     */
+    @Value("${kb.ingest.maxFiles:100000}")
+    private int maxFiles;
+
+    /**
+     * 跳过条目示例数上限
+     */
+    @Value("${kb.ingest.maxSkippedSamples:50}")
+    private int maxSkippedSamples;
+
+    @Autowired
+    private KbFileService kbFileService;
+    @Autowired
+    private KbFileStorage kbFileStorage;
+
+    /**
+     * 从压缩包流导入。
+     *
+     * @param kbId 知识库Id。
+     * @param in   压缩包内容（由调用方关闭）。
+     * @return 导入结果。
+     */
+    public KbIngestResult ingestArchive(Long kbId, InputStream in) throws IOException {
+        long begin = System.currentTimeMillis();
+        KbIngestResult result = new KbIngestResult();
+        List<KbFile> batch = new ArrayList<>(batchSize);
+        InputStream bis = new BufferedInputStream(in);
+        try {
+            String compressor = CompressorStreamFactory.detect(bis);
+            bis = new BufferedInputStream(new CompressorStreamFactory().createCompressorInputStream(compressor, bis));
+        } catch (CompressorException e) {
+            // 未压缩（zip 或裸 tar）
+        }
+        try (ArchiveInputStream ais = new ArchiveStreamFactory().createArchiveInputStream(bis)) {
+            ArchiveEntry entry;
+            while ((entry = ais.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || isIgnoredEntry(name)
+                        || (entry instanceof TarArchiveEntry && !((TarArchiveEntry) entry).isFile())) {
+                    continue;
+                }
+                String ext = extOf(name);
+                if (!ALLOWED_EXTS.contains(ext) || !ais.canReadEntryData(entry)) {
+                    skip(result, name);
+                    continue;
+                }
+                checkLimit(result);
+                // store 读到当前条目末尾即停止，不关闭压缩包流
+                KbFileStorage.StoredContent stored = kbFileStorage.store(ais);
+                batch.add(buildFile(kbId, name, ext, stored, result));
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+            }
+        } catch (ArchiveException e) {
+            throw new RuntimeException("无法识别的压缩包格式（支持 zip / tar / tar.gz）: " + e.getMessage(), e);
+        }
+        flush(batch);
+        result.setCostMs(System.currentTimeMillis() - begin);
+        log.info("[kb-ingest] archive kbId={}, files={}, skipped={}, dedup={}, bytes={}, costMs={}",
+                kbId, result.getFileCount(), result.getSkippedCount(), result.getDedupCount(),
+                result.getTotalBytes(), result.getCostMs());
+        return result;
+    }
+
+    /**
+     * 统计目录（递归）下待导入文件的总字节数，用于导入前的准入判定。只读取文件属性，不读内容。
+     *
+     * @param dirPath 相对 kb.storage.localBaseDir 的目录。
+     * @return 支持类型的普通文件字节数之和。
+     */
+    public long measureDirectory(String dirPath) throws IOException {
+        Path dir = kbFileStorage.resolve(dirPath);
+        if (!Files.isDirectory(dir)) {
+            throw new RuntimeException("目录不存在: " + dirPath);
+        }
+        Path tmpDir = kbFileStorage.tmpDir();
+        long total = 0L;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            Iterator<Path> it = paths.iterator();
+            while (it.hasNext()) {
+                Path p = it.next();
+                if (p.startsWith(tmpDir) || !Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                String name = dir.relativize(p).toString().replace("\\", "/");
+                if (isIgnoredEntry(name) || !ALLOWED_EXTS.contains(extOf(name))) {
+                    continue;
+                }
+                total += Files.size(p);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 从服务器本地目录导入（递归）。
+     *
+     * @param kbId    知识库Id。
+     * @param dirPath 相对 kb.storage.localBaseDir 的目录。
+     * @return 导入结果。
+     */
+    public KbIngestResult ingestDirectory(Long kbId, String dirPath) throws IOException {
+        long begin = System.currentTimeMillis();
+        Path dir = kbFileStorage.resolve(dirPath);
+        if (!Files.isDirectory(dir)) {
+            throw new RuntimeException("目录不存在: " + dirPath);
+        }
+        Path tmpDir = kbFileStorage.tmpDir();
+        KbIngestResult result = new KbIngestResult();
+        List<KbFile> batch = new ArrayList<>(batchSize);
+        try (Stream<Path> paths = Files.walk(dir)) {
+            Iterator<Path> it = paths.iterator();
+            while (it.hasNext()) {
+                Path p = it.next();
+                if (p.startsWith(tmpDir) || !Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                String name = dir.relativize(p).toString().replace("\\", "/");
+                if (isIgnoredEntry(name)) {
+                    continue;
+                }
+                String ext = extOf(name);
+                if (!ALLOWED_EXTS.contains(ext)) {
+                    skip(result, name);
+                    continue;
+                }
+                checkLimit(result);
+                KbFileStorage.StoredContent stored;
+                try (InputStream in = Files.newInputStream(p)) {
+                    stored = kbFileStorage.store(in);
+                }
+                batch.add(buildFile(kbId, name, ext, stored, result));
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+            }
+        }
+        flush(batch);
+        result.setCostMs(System.currentTimeMillis() - begin);
+        log.info("[kb-ingest] directory kbId={}, dir={}, files={}, skipped={}, dedup={}, bytes={}, costMs={}",
+                kbId, dirPath, result.getFileCount(), result.getSkippedCount(), result.getDedupCount(),
+                result.getTotalBytes(), result.getCostMs());
+        return result;
+    }
+
+    private KbFile buildFile(Long kbId, String entryName, String ext,
+                             KbFileStorage.StoredContent stored, KbIngestResult result) {
+        KbFile kbFile = new KbFile();
+        kbFile.setKbId(kbId);
+        kbFile.setFileName(FilenameUtils.getName(entryName));
+        kbFile.setFileSize(stored.getSize());
+        kbFile.setFileExt(ext);
+        kbFile.setMimeType(null);
+        kbFile.setStorageType("LOCAL");
+        kbFile.setStoragePath(stored.getStoragePath());
+        kbFile.setContentSha256(stored.getSha256());
+        kbFile.setParseStatus("PENDING");
+        kbFile.setParseProgress(0);
+
+        result.setFileCount(result.getFileCount() + 1);
+        result.setTotalBytes(result.getTotalBytes() + stored.getSize());
+        if (stored.isExisted()) {
+            result.setDedupCount(result.getDedupCount() + 1);
+        }
+        return kbFile;
+    }
+
+    /**
+     * 一批文件 + 解析任务在同一事务内写入（insertList）。
+     */
+    private void flush(List<KbFile> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        kbFileService.saveNewBatchWithParseJobs(batch, KbJobPriority.BULK);
+        batch.clear();
+    }
+
+    private void checkLimit(KbIngestResult result) {
+        if (result.getFileCount() >= maxFiles) {
+            throw new RuntimeException("单次导入文件数超过上限 " + maxFiles + "，已导入的文件保留");
+        }
+    }
+
+    private void skip(KbIngestResult result, String name) {
+        result.setSkippedCount(result.getSkippedCount() + 1);
+        if (result.getSkippedSamples().size() < maxSkippedSamples) {
+            result.getSkippedSamples().add(name);
+        }
+    }
+
+    private String extOf(String name) {
+        String ext = FilenameUtils.getExtension(name);
+        return ext == null ? "" : ext.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 系统生成的伴随文件（macOS 资源分叉、隐藏文件）不导入也不计入跳过。
+     */
+    private boolean isIgnoredEntry(String name) {
+        String fileName = FilenameUtils.getName(name);
+        return name.startsWith("__MACOSX/") || fileName.startsWith(".") || fileName.isEmpty();
+    }
+}
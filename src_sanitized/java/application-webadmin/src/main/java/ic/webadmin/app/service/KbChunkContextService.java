@@ -0,0 +1,206 @@
+/**
+ * KB 分段上下文：按分段的 BYTE_START / BYTE_END 从提取文本缓存按位置读取分段文本或其前后扩展窗口（RAG 拼装上下文用）。
+ *
+ * <p>分段偏移是清洗后全文的 UTF-8 字节偏移，与提取文本缓存（{@link KbTextCache#rangeView}）逐字节一致；
+ * 读取使用 FileChannel 定位读，一次请求内同一文件只打开一次、按偏移升序读取。
+ * 扩展窗口的边界落在多字节字符中间时向内收缩到完整字符。</p>
+ *
+ * <p>文件没有文本缓存（缓存功能上线前解析、或缓存被清理）或偏移越界时，退回数据库 CONTENT（不扩展窗口），
+ * 结果中的 source 标识实际来源。</p>
+ *
+ * <p>按结构切片的分段带章节路径与父分段Id；请求父分段时一次性补查父分段内容（数据库 CONTENT）。</p>
+ */
+@Slf4j
+@Service
+public class KbChunkContextService {
+
+    /**
+     * 单侧扩展字节数上限
+     */
+    @Value("${kb.context.maxExpandBytes:65536}")
+    private int maxExpandBytes;
+
+    /**
+     * 单次请求最多分段数
+     */
+    @Value("${kb.context.maxChunks:200}")
+    private int maxChunks;
+
+    @Autowired
+    private KbChunkMapper kbChunkMapper;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+    @Autowired
+    private KbTextCache kbTextCache;
+
+    /**
+     * 批量读取分段上下文。
+     *
+     * @param chunkIdList 分段Id列表。
+     * @param expandBytes   分段前后各扩展的字节数（0 表示只取分段本身）。
+     * @param includeParent 是否附带父分段文本。
+     * @return 按入参顺序返回（不存在或已删除的分段跳过）。
+     */
+    public List<KbChunkContext> getContexts(List<Long> chunkIdList, int expandBytes, boolean includeParent) {
+        if (CollUtil.isEmpty(chunkIdList)) {
+            return Collections.emptyList();
+        }
+        if (chunkIdList.size() > maxChunks) {
+            throw new RuntimeException("单次最多读取 " + maxChunks + " 个分段");
+        }
+        int expand = Math.max(0, Math.min(expandBytes, maxExpandBytes));
+        // 只取定位字段，内容按需（退回数据库时）再查
+        Map<Long, KbChunk> chunkMap = new HashMap<>();
+        for (KbChunk c : kbChunkMapper.selectRangesByIdsActive(new HashSet<>(chunkIdList))) {
+            chunkMap.put(c.getId(), c);
+        }
+        Map<Long, List<KbChunk>> byFile = chunkMap.values().stream()
+                .collect(Collectors.groupingBy(KbChunk::getFileId));
+
+        Map<Long, KbChunkContext> resultMap = new HashMap<>(chunkMap.size());
+        for (Map.Entry<Long, List<KbChunk>> e : byFile.entrySet()) {
+            List<KbChunk> chunks = e.getValue();
+            chunks.sort(Comparator.comparing(c -> c.getByteStart() == null ? 0L : c.getByteStart()));
+            readFileContexts(e.getKey(), chunks, expand, resultMap);
+        }
+        fillDbContent(resultMap);
+        if (includeParent) {
+            fillParentText(resultMap);
+        }
+
+        List<KbChunkContext> result = new ArrayList<>(resultMap.size());
+        for (Long id : chunkIdList) {
+            KbChunkContext ctx = resultMap.get(id);
+            if (ctx != null) {
+                result.add(ctx);
+            }
+        }
+        return result;
+    }
+
+    private void readFileContexts(Long fileId, List<KbChunk> chunks, int expand, Map<Long, KbChunkContext> resultMap) {
+        KbFile file = kbFileMapper.selectById(fileId);
+        Path view = file == null ? null : kbTextCache.rangeView(file);
+        if (view == null) {
+            chunks.forEach(c -> resultMap.put(c.getId(), fromDb(c)));
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(view, StandardOpenOption.READ)) {
+            long size = ch.size();
+            for (KbChunk c : chunks) {
+                Long start = c.getByteStart();
+                Long end = c.getByteEnd();
+                if (start == null || end == null || start < 0 || end <= start || end > size) {
+                    resultMap.put(c.getId(), fromDb(c));
+                    continue;
+                }
+                long winStart = Math.max(0L, start - expand);
+                long winEnd = Math.min(size, end + expand);
+                byte[] bytes = readFully(ch, winStart, (int) (winEnd - winStart));
+                // 扩展边界可能落在多字节字符中间：起点跳过续字节，终点去掉不完整的尾部序列
+                int from = 0;
+                if (winStart < start) {
+                    while (from < bytes.length && (bytes[from] & 0xC0) == 0x80) {
+                        from++;
+                    }
+                }
+                int to = winEnd > end ? completeUtf8End(bytes, from) : bytes.length;
+
+                KbChunkContext ctx = new KbChunkContext();
+                ctx.setChunkId(c.getId());
+                ctx.setFileId(c.getFileId());
+                ctx.setChunkIndex(c.getChunkIndex());
+                ctx.setByteStart(winStart + from);
+                ctx.setByteEnd(winStart + to);
+                ctx.setText(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+                ctx.setSource(KbChunkContext.SOURCE_TEXT_CACHE);
+                ctx.setSectionPath(c.getSectionPath());
+                ctx.setParentChunkId(c.getParentChunkId());
+                resultMap.put(c.getId(), ctx);
+            }
+        } catch (IOException ex) {
+            log.warn("[kb-context] read text cache failed, fallback to db, fileId={}, path={}", fileId, view, ex);
+            chunks.forEach(c -> resultMap.putIfAbsent(c.getId(), fromDb(c)));
+        }
+    }
+
+    private byte[] readFully(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) {
+                break;
+            }
+        }
+        return buf.array();
+    }
+
+    /**
+     * 去掉末尾不完整的 UTF-8 序列，返回截止位置（不含）。
+     */
+    private int completeUtf8End(byte[] bytes, int from) {
+        int end = bytes.length;
+        // 向前找最后一个非续字节（最多 3 个续字节）
+        int lead = end - 1;
+        while (lead >= from && lead > end - 4 && (bytes[lead] & 0xC0) == 0x80) {
+            lead--;
+        }
+        if (lead < from) {
+            return end;
+        }
+        int b = bytes[lead] & 0xFF;
+        int need = b < 0x80 ? 1 : b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+        return lead + need <= end ? end : lead;
+    }
+
+    /**
+     * 退回数据库的分段一次性补查内容。
+     */
+    private void fillDbContent(Map<Long, KbChunkContext> resultMap) {
+        List<Long> ids = resultMap.values().stream()
+                .filter(ctx -> KbChunkContext.SOURCE_DB.equals(ctx.getSource()))
+                .map(KbChunkContext::getChunkId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (KbChunk c : kbChunkMapper.selectContentByIdsActive(ids)) {
+            resultMap.get(c.getId()).setText(c.getContent());
+        }
+    }
+
+    /**
+     * 父分段内容一次性补查（多个分段共用同一父分段时只查一次）。
+     */
+    private void fillParentText(Map<Long, KbChunkContext> resultMap) {
+        Set<Long> parentIds = resultMap.values().stream()
+                .map(KbChunkContext::getParentChunkId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (parentIds.isEmpty()) {
+            return;
+        }
+        Map<Long, String> contentMap = new HashMap<>(parentIds.size());
+        for (KbChunk c : kbChunkMapper.selectContentByIdsActive(parentIds)) {
+            contentMap.put(c.getId(), c.getContent());
+        }
+        for (KbChunkContext ctx : resultMap.values()) {
+            if (ctx.getParentChunkId() != null) {
+                ctx.setParentText(contentMap.get(ctx.getParentChunkId()));
+            }
+        }
+    }
+
+    private KbChunkContext fromDb(KbChunk c) {
+        KbChunkContext ctx = new KbChunkContext();
+        ctx.setChunkId(c.getId());
+        ctx.setFileId(c.getFileId());
+        ctx.setChunkIndex(c.getChunkIndex());
+        ctx.setByteStart(c.getByteStart());
+        ctx.setByteEnd(c.getByteEnd());
+        ctx.setSource(KbChunkContext.SOURCE_DB);
+        ctx.setSectionPath(c.getSectionPath());
+        ctx.setParentChunkId(c.getParentChunkId());
+        return ctx;
+    }
+}
@@ -4,4 +4,20 @@ public interface KbChunkIndexService {
     void reindexFile(Long fileId);
 
     void reindexKb(Long kbId);        //（库级）
+
+    /**
+     * 可续跑的文件级写入：只写 chunkIndex 大于 afterChunkIndex 的 chunk，每写完一批回调该批最后一个 chunkIndex（库级重建任务据此记录断点）。
+     *
+     * @return 写入文档数
+     */
+    int reindexFileFrom(Long fileId, int afterChunkIndex, IntConsumer onBatch);
+
+    /** 按 kbId 删除该知识库的全部索引文档（库级重建前清旧） */
+    void deleteKb(Long kbId);
+
+    /** 刷新索引，使写入结果立即可搜 */
+    void refresh();
+
+    /** 按 fileId 删除该文件的全部索引文档（任务取消/文件删除后的清理） */
+    void deleteFile(Long fileId);
 }
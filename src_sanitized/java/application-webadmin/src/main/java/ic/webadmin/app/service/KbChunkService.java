@@ -92,12 +92,66 @@ public class KbChunkService {
                 byteLen = (content == null) ? 0 : content.getBytes(StandardCharsets.UTF_8).length;
             }
             c.setContentByteLen(byteLen);
+            c.setSectionPath(it.getSectionPath());
 
             list.add(c);
         }
 
         if (!list.isEmpty()) {
             kbChunkMapper.batchInsert(list);
+            updateParentChunkIds(fileId, pieces);
+        }
+    }
+
+    /**
+     * 按文件维度软删除全部分段（任务取消时清理已写入的部分结果）。
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void removeChunksByFileId(Long fileId, Long userId) {
+        kbChunkMapper.softDeleteByFileId(fileId, userId, new Date());
+    }
+
+    /**
+     * 从内容相同的源文件复制分段（replace 语义：先软删除目标文件旧分段）。
+     *
+     * @return 复制的分段数（0 表示源文件没有有效分段，调用方应改为正常解析）。
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int cloneChunksByFileId(Long kbId, Long sourceFileId, Long fileId, Long userId) {
+        Date now = new Date();
+        kbChunkMapper.softDeleteByFileId(fileId, userId, now);
+        int count = kbChunkMapper.cloneByFileId(sourceFileId, kbId, fileId, userId, now);
+        if (count > 0) {
+            kbChunkMapper.remapParentChunkIdByFileId(sourceFileId, fileId);
+        }
+        return count;
+    }
+
+    /**
+     * 按结构切片时回填父分段Id：切片阶段只知道父分段的 chunkIndex，插入后按 chunkIndex 换算为主键。
+     */
+    private void updateParentChunkIds(Long fileId, List<KbChunkPiece> pieces) {
+        if (pieces.stream().noneMatch(p -> p.getParentChunkIndex() != null)) {
+            return;
+        }
+        Map<Integer, Long> idByIndex = new HashMap<>();
+        for (KbChunk c : kbChunkMapper.selectIdIndexByFileIdActive(fileId)) {
+            idByIndex.put(c.getChunkIndex(), c.getId());
+        }
+        List<KbChunk> updates = new ArrayList<>();
+        for (KbChunkPiece p : pieces) {
+            Long id = idByIndex.get(p.getChunkIndex());
+            Long parentId = p.getParentChunkIndex() == null ? null : idByIndex.get(p.getParentChunkIndex());
+            if (id == null || parentId == null) {
+                continue;
+            }
+            KbChunk u = new KbChunk();
+            u.setId(id);
+            u.setParentChunkId(parentId);
+            updates.add(u);
+        }
+        for (List<KbChunk> part : CollUtil.split(updates, 500)) {
+            kbChunkMapper.batchUpdateParentChunkId(part);
         }
     }
 
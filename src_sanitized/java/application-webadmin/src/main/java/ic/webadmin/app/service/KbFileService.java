@@ -92,4 +92,21 @@ public interface KbFileService extends IBaseService<KbFile, Long> {
      * @return 有效文件列表。
      */
     List<KbFile> selectByKbIdActive(Long kbId);
+
+    /**
+     * 在同一事务内保存新文件并创建其解析任务（PARSE_FILE），任一失败整体回滚，不会留下没有任务的 PENDING 文件。
+     *
+     * @param kbFile 新增文件对象。
+     * @param job    解析任务（targetId 由本方法回填）。
+     * @return 返回新增文件对象。
+     */
+    KbFile saveNewWithParseJob(KbFile kbFile, KbJob job);
+
+    /**
+     * 批量导入：在同一事务内批量插入文件（insertList，回填主键）并为每个文件创建解析任务（PARSE_FILE）。
+     *
+     * @param kbFileList 新增文件列表。
+     * @param priority   解析任务优先级（见 KbJobPriority）。
+     */
+    void saveNewBatchWithParseJobs(List<KbFile> kbFileList, Integer priority);
 }
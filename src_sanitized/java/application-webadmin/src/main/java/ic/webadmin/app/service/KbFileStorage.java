@@ -0,0 +1,127 @@
+/**
+ * KB 文件本地存储（内容寻址）。
+ *
+ * <p>上传流边写临时文件边计算 SHA-256，写完后按摘要落到 {@code cas/<sha[0,2]>/<sha[2,4]>/<sha>}；
+ * 相同内容（不论所属知识库、文件名）只保留一份，已存在时直接丢弃临时文件。
+ * STORAGE_PATH 保存相对 kb.storage.localBaseDir 的路径，下载与解析按原方式解析。</p>
+ *
+ * <p>同一份内容可能被多条 ic_kb_file 引用，文件记录删除（软删除）时不删除磁盘内容。</p>
+ */
+@Slf4j
+@Service
+public class KbFileStorage {
+
+    private static final String CAS_DIR = "cas";
+    private static final String TMP_DIR = ".tmp";
+
+    @Value("${kb.storage.localBaseDir}")
+    private String kbLocalBaseDir;
+
+    private Path baseDir;
+
+    @PostConstruct
+    public void init() {
+        baseDir = Paths.get(kbLocalBaseDir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 写入结果。
+     */
+    @Data
+    public static class StoredContent {
+        /** 内容 SHA-256（十六进制小写） */
+        private String sha256;
+        /** 字节数 */
+        private long size;
+        /** 相对 localBaseDir 的存储路径 */
+        private String storagePath;
+        /** 是否复用了已存在的相同内容 */
+        private boolean existed;
+    }
+
+    /**
+     * 流式写入并计算 SHA-256，按内容寻址落盘。
+     *
+     * @param in 内容输入流（由调用方关闭）。
+     * @return 写入结果。
+     */
+    public StoredContent store(InputStream in) throws IOException {
+        Path tmp = Files.createTempFile(tmpDir(), "upload-", ".part");
+        try {
+            MessageDigest md = newDigest();
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), md)) {
+                size = IoUtil.copy(in, out, 64 * 1024);
+            }
+            return commit(tmp, HexUtil.encodeHexStr(md.digest()), size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 将已写好的临时文件按内容寻址落盘（摘要已由调用方边写边算好）。
+     *
+     * @param tmp    临时文件（成功后被移动或删除）。
+     * @param sha256 内容 SHA-256。
+     * @param size   字节数。
+     * @return 写入结果。
+     */
+    public StoredContent commit(Path tmp, String sha256, long size) throws IOException {
+        String storagePath = CAS_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+        Path target = resolve(storagePath);
+        StoredContent result = new StoredContent();
+        result.setSha256(sha256);
+        result.setSize(size);
+        result.setStoragePath(storagePath);
+        if (Files.exists(target)) {
+            result.setExisted(true);
+            Files.deleteIfExists(tmp);
+            return result;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 并发上传同一内容：另一方已落盘，内容相同直接复用
+            result.setExisted(true);
+            Files.deleteIfExists(tmp);
+        }
+        return result;
+    }
+
+    /**
+     * 存储路径转绝对路径（防路径穿越）。
+     */
+    public Path resolve(String storagePath) {
+        if (StrUtil.isBlank(storagePath)) {
+            throw new RuntimeException("storagePath为空");
+        }
+        String sp = storagePath.replace("\\", "/").trim();
+        while (sp.startsWith("/")) {
+            sp = sp.substring(1);
+        }
+        Path abs = baseDir.resolve(sp).normalize();
+        if (!abs.startsWith(baseDir)) {
+            throw new RuntimeException("非法storagePath(疑似路径穿越): " + storagePath);
+        }
+        return abs;
+    }
+
+    /**
+     * 临时目录（与内容目录同一文件系统，落盘为原子移动）。
+     */
+    public Path tmpDir() throws IOException {
+        Path tmpDir = baseDir.resolve(TMP_DIR);
+        Files.createDirectories(tmpDir);
+        return tmpDir;
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * KB 混合检索服务（HYBRID）。
+ *
+ * <p>职责：
+ * <ul>
+ *   <li>并发发起文本检索（OpenSearch BM25）与向量检索，两路各自独立超时。</li>
+ *   <li>按 chunkId 去重并融合排序（RRF 倒数排名融合 / WEIGHTED 归一化加权），返回融合后的 topK。</li>
+ *   <li>任一路失败或超时则降级为另一路结果；两路都失败才抛异常。</li>
+ * </ul>
+ *
+ * <p>耗时口径：两路并发执行，整体耗时约等于较慢一路（受各自超时上限约束），而不是两路之和。</p>
+ */
+public interface KbHybridSearchService {
+
+    /**
+     * 混合检索。
+     *
+     * <p>索引模式处理：kb 的 INDEX_MODE 为 TEXT_OS 时只走文本检索，为 VECTOR 时只走向量检索，HYBRID 两路并发。</p>
+     *
+     * @param kbId    知识库Id（kbId 与 fileId 至少传一个）
+     * @param fileId  文件Id（可选过滤）
+     * @param keyword query 文本
+     * @param topK    融合后返回条数
+     * @param fusion  融合策略：RRF（默认）/ WEIGHTED
+     * @return 融合结果（含两路是否成功，便于前端/调用方感知降级）
+     */
+    HybridResult search(Long kbId, Long fileId, String keyword, int topK, String fusion);
+
+    /**
+     * 混合检索结果。
+     */
+    @Data
+    class HybridResult {
+        /** 融合后的命中列表（score 为融合分）。 */
+        private List<KbSearchClient.SearchHit> hits;
+        /** 文本检索是否成功（未启用该路时为 false）。 */
+        private boolean textOk;
+        /** 向量检索是否成功（未启用该路时为 false）。 */
+        private boolean vectorOk;
+        /** 降级说明（某一路失败/超时的原因，正常时为空）。 */
+        private String message;
+    }
+}
@@ -67,4 +67,64 @@ public interface KbJobService extends IBaseService<KbJob, Long> {
      * @return 查询结果集。
      */
     List<KbJob> getKbJobListWithRelation(KbJob filter, String orderBy);
+
+    /**
+     * 死信任务（DEAD：瞬时错误重试耗尽）批量重新排队，重置重试预算，并将关联文件状态回退为 PENDING。
+     *
+     * @param kbId   知识库Id（可选，为空表示不限）。
+     * @param idList 任务Id列表（可选，为空表示该范围内全部 DEAD 任务）。
+     * @return 重新排队的任务数。
+     */
+    int requeueDead(Long kbId, List<Long> idList);
+
+    /**
+     * 取消任务：排队中的任务直接置为 CANCELLED；执行中的任务打上取消标记并广播，
+     * 由执行节点在下一个检查点停止并清理已写入的部分结果（chunk、索引文档）。
+     *
+     * @param idList 任务Id列表。
+     * @param reason 取消原因（写入任务与文件的消息）。
+     * @return 受理取消的任务数。
+     */
+    int cancel(List<Long> idList, String reason);
+
+    /**
+     * 取消指定目标（文件）上未结束的全部任务（文件删除时调用）。
+     *
+     * @param targetId 目标Id。
+     * @param reason   取消原因。
+     * @return 受理取消的任务数。
+     */
+    int cancelByTargetId(Long targetId, String reason);
+
+    /**
+     * 库级重建任务入队（REINDEX_KB）：由任务执行器异步执行，按（文件Id, chunkIndex）记录断点，中断后续跑。
+     * 同一知识库、同一后端范围已有未结束（排队中或执行中）的重建任务时直接返回该任务Id，不再新建：
+     * 执行中的任务从断点继续覆盖全库，同一范围不会有两个重建任务并行执行。
+     *
+     * @param kbId     知识库Id。
+     * @param backends 指定后端名称（TEXT / VECTOR，逗号分隔），为空表示按 INDEX_MODE 启用的全部后端。
+     * @return 任务Id。
+     */
+    Long enqueueReindexKb(Long kbId, String backends);
+
+    /**
+     * 重新切片入队（库级 / 指定文件）：为解析成功的文件各创建一条 RECHUNK_FILE 任务（批量通道），
+     * 执行时从提取文本缓存按当前切片参数重新切片并同步索引（缓存缺失的文件退回完整提取）。
+     * 已有未结束解析 / 重新切片任务的文件跳过。
+     *
+     * @param kbId       知识库Id。
+     * @param fileIdList 指定文件Id，为空表示知识库下全部解析成功的文件。
+     * @return 入队的任务数。
+     */
+    int enqueueRechunk(Long kbId, List<Long> fileIdList);
+
+    /**
+     * 归档一批终态任务：SUCCESS / FAILED / CANCELLED 且结束时间早于截止时间的任务复制到 ic_kb_job_history 后从主表删除
+     * （同一事务内完成）。DEAD 任务保留在主表，仍可重新排队。
+     *
+     * @param cutoff    截止时间。
+     * @param batchSize 本批最多归档条数。
+     * @return 本批归档的任务数（小于 batchSize 表示已无待归档任务）。
+     */
+    int archiveFinished(Date cutoff, int batchSize);
 }
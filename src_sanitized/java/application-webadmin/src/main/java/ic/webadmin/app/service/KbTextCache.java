@@ -0,0 +1,200 @@
+/**
+ * KB 提取文本缓存：按 内容 SHA-256 + 提取器版本 保存清洗后的全文（gzip），重新切片 / 重新解析时跳过 Tika 提取。
+ *
+ * <p>路径：{@code text-cache/<sha[0,2]>/<sha[2,4]>/<sha>-<version>.txt.gz}（相对 kb.storage.localBaseDir）。
+ * 内容寻址，相同内容的文件（不论所属知识库）共用一份；提取或清洗逻辑变化时调整 kb.parse.textCache.extractorVersion，
+ * 旧版本缓存自然失效（不再命中），可按目录手动清理。</p>
+ *
+ * <p>写入先落临时文件再原子移动，读写失败只记日志并视为未命中，不影响解析。</p>
+ *
+ * <p>按字节区间取上下文（{@link KbChunkContextService}）需要随机读，gzip 不支持定位，
+ * 首次使用时在同目录解压出未压缩的 UTF-8 视图（{@code <sha>-<version>.txt}），之后按位置直接读取。
+ * 视图只是 gzip 缓存的派生副本：写入 gzip 时删除旧视图；超过 kb.parse.textCache.rangeViewIdleHours 未使用的视图
+ * 由定时清理删除（使用时按小时粒度刷新修改时间），下次使用时重新解压。</p>
+ */
+@Slf4j
+@Service
+public class KbTextCache {
+
+    private static final String CACHE_DIR = "text-cache";
+
+    @Value("${kb.parse.textCache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 提取器版本（提取 / 清洗逻辑变化时调整，使旧缓存失效）
+     */
+    @Value("${kb.parse.textCache.extractorVersion:tika2-v2}")
+    private String extractorVersion;
+
+    /**
+     * 未压缩视图的空闲保留时长（小时），超过后被定时清理
+     */
+    @Value("${kb.parse.textCache.rangeViewIdleHours:24}")
+    private long rangeViewIdleHours;
+
+    @Autowired
+    private KbFileStorage kbFileStorage;
+
+    /**
+     * 读取缓存文本。
+     *
+     * @param file 文件（需含 contentSha256）。
+     * @return 清洗后的全文；未启用、无摘要或未命中时返回 null。
+     */
+    public String get(KbFile file) {
+        Path path = pathOf(file);
+        if (path == null || !Files.exists(path)) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path), 64 * 1024), StandardCharsets.UTF_8)) {
+            return IoUtil.read(reader);
+        } catch (IOException e) {
+            log.warn("[kb-text-cache] read failed, treat as miss, fileId={}, path={}", file.getId(), path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入缓存文本（已存在时跳过）。
+     *
+     * @param file 文件（需含 contentSha256）。
+     * @param text 清洗后的全文。
+     */
+    public void put(KbFile file, String text) {
+        Path path = pathOf(file);
+        if (path == null || text == null || Files.exists(path)) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(kbFileStorage.tmpDir(), "text-", ".gz");
+            try (Writer writer = new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024), StandardCharsets.UTF_8)) {
+                writer.write(text);
+            }
+            Files.createDirectories(path.getParent());
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            // 旧视图（gzip 曾被手动清理后残留）与新内容不再对应
+            Files.deleteIfExists(viewOf(path));
+        } catch (FileAlreadyExistsException e) {
+            // 并发解析相同内容：另一方已写入
+        } catch (IOException e) {
+            log.warn("[kb-text-cache] write failed, fileId={}, path={}", file.getId(), path, e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 未压缩的 UTF-8 文本视图（按字节偏移随机读），不存在时由 gzip 缓存解压生成。
+     *
+     * @param file 文件（需含 contentSha256）。
+     * @return 视图路径；未启用、无摘要或没有缓存时返回 null。
+     */
+    public Path rangeView(KbFile file) {
+        Path gz = pathOf(file);
+        if (gz == null) {
+            return null;
+        }
+        Path view = viewOf(gz);
+        if (Files.exists(view)) {
+            touch(view);
+            return view;
+        }
+        if (!Files.exists(gz)) {
+            return null;
+        }
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(kbFileStorage.tmpDir(), "text-view-", ".txt");
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(gz), 64 * 1024)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, view, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 并发生成：另一方已写入
+        } catch (IOException e) {
+            log.warn("[kb-text-cache] build range view failed, fileId={}, path={}", file.getId(), view, e);
+            return null;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignore) {
+                }
+            }
+        }
+        return view;
+    }
+
+    /**
+     * 清理空闲超时的未压缩视图（gzip 缓存本身保留）。
+     */
+    @Scheduled(cron = "${kb.parse.textCache.rangeViewCleanupCron:0 40 * * * ?}")
+    public void cleanupRangeViews() {
+        if (!enabled) {
+            return;
+        }
+        Path root = kbFileStorage.resolve(CACHE_DIR);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(rangeViewIdleHours);
+        int removed = 0;
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> it = paths.iterator();
+            while (it.hasNext()) {
+                Path p = it.next();
+                if (!p.getFileName().toString().endsWith(".txt") || !Files.isRegularFile(p)) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(p).toMillis() < idleBefore && Files.deleteIfExists(p)) {
+                        removed++;
+                    }
+                } catch (IOException e) {
+                    log.warn("[kb-text-cache] delete range view failed, path={}", p, e);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[kb-text-cache] range view cleanup failed", e);
+        }
+        if (removed > 0) {
+            log.info("[kb-text-cache] cleanup removed {} idle range views", removed);
+        }
+    }
+
+    /**
+     * 使用视图时刷新修改时间（超过一小时才写，避免每次读取都改元数据）。
+     */
+    private void touch(Path view) {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - Files.getLastModifiedTime(view).toMillis() > TimeUnit.HOURS.toMillis(1)) {
+                Files.setLastModifiedTime(view, FileTime.fromMillis(now));
+            }
+        } catch (IOException ignore) {
+            // 并发清理：本次读取失败时调用方退回数据库内容
+        }
+    }
+
+    private Path viewOf(Path gz) {
+        return gz.resolveSibling(gz.getFileName().toString().replace(".txt.gz", ".txt"));
+    }
+
+    private Path pathOf(KbFile file) {
+        String sha256 = file.getContentSha256();
+        if (!enabled || StrUtil.isBlank(sha256) || sha256.length() < 4) {
+            return null;
+        }
+        return kbFileStorage.resolve(CACHE_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4)
+                + "/" + sha256 + "-" + extractorVersion + ".txt.gz");
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ * KB 分片上传会话（可续传）。
+ *
+ * <p>流程：initiate 按文件大小确定分片大小与分片数并创建会话 → 客户端按分片号上传（可并发、可乱序、可重传）→
+ * complete 校验分片齐全后用 FileChannel 顺序拼接，计算整文件 SHA-256 并交给 {@link KbFileStorage#commit} 按内容寻址落盘。
+ * 断线后通过 status 查询已上传分片，只补传缺失部分。</p>
+ *
+ * <p>存储：会话与分片记录存 Redis（kb.upload.sessionTtlHours 小时无活动过期）；分片内容直接写入
+ * {@link KbFileStorage#tmpDir()}/uploads/{uploadId}/{partNumber}.part，不经过 multipart 解析，不占用堆内存。
+ * 每个分片边写边算 SHA-256，请求头带了期望摘要时当场校验，写完原子替换（重传同一分片时覆盖）。
+ * 会话过期、放弃或完成后分片目录被删除；过期会话遗留的目录由定时清理回收。</p>
+ *
+ * <p>并发：每个会话一把读写锁。分片落位（原子替换 + 登记）持读锁，多个分片可并发；complete / abort 持写锁，
+ * 合并期间或放弃之后到达的分片在落位前重新检查会话状态并被拒绝，不会混入正在拼接的文件或写进已删除的目录。
+ * 分片内容的接收（耗时部分）在锁外进行。</p>
+ */
+@Slf4j
+@Service
+public class KbUploadSessionService {
+
+    private static final String SESSION_KEY_PREFIX = "KB_UPLOAD_SESSION:";
+    private static final String PARTS_KEY_PREFIX = "KB_UPLOAD_PARTS:";
+    private static final String LOCK_KEY_PREFIX = "KB_UPLOAD_LOCK:";
+    private static final String UPLOAD_DIR = "uploads";
+    private static final String PART_SUFFIX = ".part";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** uploadId 同时用作目录名，只接受 IdUtil.fastSimpleUUID 格式 */
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    /**
+     * 默认分片大小（默认 8MB）
+     */
+    @Value("${kb.upload.partSize:8388608}")
+    private long partSize;
+
+    /**
+     * 最大分片数（文件过大时放大分片，保证不超过该值）
+     */
+    @Value("${kb.upload.maxParts:10000}")
+    private int maxParts;
+
+    /**
+     * 单文件最大字节数（默认 4GB）
+     */
+    @Value("${kb.upload.maxFileSize:4294967296}")
+    private long maxFileSize;
+
+    /**
+     * 会话无活动过期时间（小时）
+     */
+    @Value("${kb.upload.sessionTtlHours:24}")
+    private long sessionTtlHours;
+
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private KbFileStorage kbFileStorage;
+
+    /**
+     * 创建上传会话。
+     *
+     * @param session 会话（kbId、fileName、fileExt、mimeType、fileSize、sha256、deferReason 由调用方填写）。
+     * @return 补全 uploadId、partSize、partCount 后的会话。
+     */
+    public KbUploadSession initiate(KbUploadSession session) {
+        long fileSize = session.getFileSize();
+        if (fileSize <= 0 || fileSize > maxFileSize) {
+            throw new RuntimeException("文件大小不合法: " + fileSize + "（上限 " + maxFileSize + "）");
+        }
+        long size = Math.max(partSize, (fileSize + maxParts - 1) / maxParts);
+        session.setUploadId(IdUtil.fastSimpleUUID());
+        session.setPartSize(size);
+        session.setPartCount((int) ((fileSize + size - 1) / size));
+        session.setSha256(StrUtil.isBlank(session.getSha256()) ? null : session.getSha256().toLowerCase(Locale.ROOT));
+        session.setCreateTime(System.currentTimeMillis());
+        session.setParts(null);
+        sessionBucket(session.getUploadId()).set(session, sessionTtlHours, TimeUnit.HOURS);
+        log.info("[kb-upload] initiate uploadId={}, kbId={}, fileName={}, fileSize={}, partSize={}, partCount={}",
+                session.getUploadId(), session.getKbId(), session.getFileName(), fileSize, size, session.getPartCount());
+        return session;
+    }
+
+    /**
+     * 获取会话（不含分片列表），不存在或已过期返回 null。
+     */
+    public KbUploadSession getSession(String uploadId) {
+        if (!isValidUploadId(uploadId)) {
+            return null;
+        }
+        return sessionBucket(uploadId).get();
+    }
+
+    /**
+     * 查询会话与已上传分片（按分片号排序），不存在或已过期返回 null。
+     */
+    public KbUploadSession status(String uploadId) {
+        KbUploadSession session = getSession(uploadId);
+        if (session == null) {
+            return null;
+        }
+        List<KbUploadSession.Part> parts = new ArrayList<>(partsMap(uploadId).readAllValues());
+        parts.sort(Comparator.comparing(KbUploadSession.Part::getPartNumber));
+        session.setParts(parts);
+        return session;
+    }
+
+    /**
+     * 写入一个分片。
+     *
+     * @param session        会话。
+     * @param partNumber     分片号（1..partCount）。
+     * @param in             分片内容（由调用方关闭）。
+     * @param expectedSha256 客户端声明的分片 SHA-256（可选）。
+     * @return 分片记录。
+     */
+    public KbUploadSession.Part writePart(KbUploadSession session, int partNumber,
+                                          InputStream in, String expectedSha256) throws IOException {
+        if (session.getFileId() != null) {
+            throw new RuntimeException("上传会话已完成: " + session.getUploadId());
+        }
+        if (partNumber < 1 || partNumber > session.getPartCount()) {
+            throw new RuntimeException("分片号超出范围: " + partNumber + "（共 " + session.getPartCount() + " 片）");
+        }
+        long expectedSize = partNumber < session.getPartCount()
+                ? session.getPartSize()
+                : session.getFileSize() - session.getPartSize() * (session.getPartCount() - 1);
+
+        Path dir = partDir(session.getUploadId());
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, partNumber + "-", ".tmp");
+        try {
+            MessageDigest md = KbFileStorage.newDigest();
+            long written = 0;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), md)) {
+                byte[] buf = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    written += n;
+                    if (written > expectedSize) {
+                        throw new RuntimeException("分片 " + partNumber + " 超出预期大小 " + expectedSize);
+                    }
+                    out.write(buf, 0, n);
+                }
+            }
+            if (written != expectedSize) {
+                throw new RuntimeException("分片 " + partNumber + " 大小不符，期望 " + expectedSize + "，实际 " + written);
+            }
+            String sha256 = HexUtil.encodeHexStr(md.digest());
+            if (StrUtil.isNotBlank(expectedSha256) && !sha256.equalsIgnoreCase(expectedSha256.trim())) {
+                throw new RuntimeException("分片 " + partNumber + " 校验失败，期望 " + expectedSha256 + "，实际 " + sha256);
+            }
+            KbUploadSession.Part part = new KbUploadSession.Part();
+            part.setPartNumber(partNumber);
+            part.setSize(written);
+            part.setSha256(sha256);
+
+            // 落位与 complete / abort 互斥：持读锁后重新确认会话仍在上传中
+            RLock lock = sessionLock(session.getUploadId()).readLock();
+            acquire(lock, 30, "上传会话正在合并，请稍后重试: " + session.getUploadId());
+            try {
+                KbUploadSession current = sessionBucket(session.getUploadId()).get();
+                if (current == null) {
+                    throw new RuntimeException("上传会话不存在或已放弃: " + session.getUploadId());
+                }
+                if (current.getFileId() != null) {
+                    throw new RuntimeException("上传会话已完成: " + session.getUploadId());
+                }
+                Files.move(tmp, dir.resolve(partNumber + PART_SUFFIX),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                RMap<Integer, KbUploadSession.Part> parts = partsMap(session.getUploadId());
+                parts.fastPut(partNumber, part);
+                // 有活动即续期
+                parts.expire(sessionTtlHours, TimeUnit.HOURS);
+                sessionBucket(session.getUploadId()).expire(sessionTtlHours, TimeUnit.HOURS);
+            } finally {
+                release(lock);
+            }
+            return part;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 完成上传：校验分片齐全，拼接并按内容寻址落盘，再由回调创建文件记录。
+     * 同一会话重复调用（如客户端超时重试）直接返回首次创建的文件Id。
+     *
+     * @param session     会话。
+     * @param onAssembled 落盘后的回调，创建文件记录并返回文件Id。
+     * @return 文件Id。
+     */
+    public Long complete(KbUploadSession session, Function<KbFileStorage.StoredContent, Long> onAssembled) throws IOException {
+        String uploadId = session.getUploadId();
+        RLock lock = sessionLock(uploadId).writeLock();
+        acquire(lock, 600, "上传会话正在合并，请稍后重试: " + uploadId);
+        try {
+            KbUploadSession current = sessionBucket(uploadId).get();
+            if (current == null) {
+                throw new RuntimeException("上传会话不存在或已过期: " + uploadId);
+            }
+            if (current.getFileId() != null) {
+                return current.getFileId();
+            }
+            Map<Integer, KbUploadSession.Part> parts = partsMap(uploadId).readAllMap();
+            List<Integer> missing = new ArrayList<>();
+            for (int i = 1; i <= current.getPartCount(); i++) {
+                if (!parts.containsKey(i)) {
+                    missing.add(i);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new RuntimeException("分片未上传完整，缺失: " + CollUtil.join(CollUtil.sub(missing, 0, 20), ","));
+            }
+
+            long begin = System.currentTimeMillis();
+            Path assembled = assemble(current);
+            KbFileStorage.StoredContent stored;
+            try {
+                String sha256 = digest(assembled);
+                if (current.getSha256() != null && !current.getSha256().equals(sha256)) {
+                    throw new RuntimeException("文件校验失败，期望 " + current.getSha256() + "，实际 " + sha256);
+                }
+                stored = kbFileStorage.commit(assembled, sha256, current.getFileSize());
+            } finally {
+                Files.deleteIfExists(assembled);
+            }
+
+            Long fileId = onAssembled.apply(stored);
+            current.setFileId(fileId);
+            // 保留会话一段时间用于幂等返回，分片记录与内容立即回收
+            sessionBucket(uploadId).set(current, sessionTtlHours, TimeUnit.HOURS);
+            partsMap(uploadId).delete();
+            deletePartDir(uploadId);
+            log.info("[kb-upload] complete uploadId={}, fileId={}, size={}, sha256={}, existed={}, costMs={}",
+                    uploadId, fileId, stored.getSize(), stored.getSha256(), stored.isExisted(),
+                    System.currentTimeMillis() - begin);
+            return fileId;
+        } finally {
+            release(lock);
+        }
+    }
+
+    /**
+     * 放弃上传：删除会话、分片记录与分片内容（与分片落位、合并互斥）。
+     */
+    public void abort(String uploadId) {
+        RLock lock = sessionLock(uploadId).writeLock();
+        acquire(lock, 600, "上传会话正在合并，请稍后重试: " + uploadId);
+        try {
+            sessionBucket(uploadId).delete();
+            partsMap(uploadId).delete();
+            deletePartDir(uploadId);
+        } finally {
+            release(lock);
+        }
+        log.info("[kb-upload] abort uploadId={}", uploadId);
+    }
+
+    private RReadWriteLock sessionLock(String uploadId) {
+        return redissonClient.getReadWriteLock(LOCK_KEY_PREFIX + uploadId);
+    }
+
+    /**
+     * 加锁（等待 30 秒，leaseSeconds 后自动释放防止节点宕机后死锁）。
+     */
+    private void acquire(RLock lock, long leaseSeconds, String busyMessage) {
+        try {
+            if (!lock.tryLock(30, leaseSeconds, TimeUnit.SECONDS)) {
+                throw new RuntimeException(busyMessage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("上传会话加锁被中断", e);
+        }
+    }
+
+    private void release(RLock lock) {
+        try {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        } catch (Exception ignore) {
+        }
+    }
+
+    /**
+     * 清理会话已过期（Redis 中不存在）且超过一小时无写入的分片目录。
+     */
+    @Scheduled(cron = "${kb.upload.cleanup.cron:0 30 * * * ?}")
+    public void cleanupOrphans() {
+        Path root;
+        try {
+            root = kbFileStorage.tmpDir().resolve(UPLOAD_DIR);
+            if (!Files.isDirectory(root)) {
+                return;
+            }
+        } catch (IOException e) {
+            log.warn("[kb-upload] cleanup skipped, tmpDir unavailable", e);
+            return;
+        }
+        long idleBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        int removed = 0;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root)) {
+            for (Path dir : dirs) {
+                String uploadId = dir.getFileName().toString();
+                if (Files.getLastModifiedTime(dir).toMillis() > idleBefore
+                        || (isValidUploadId(uploadId) && sessionBucket(uploadId).isExists())) {
+                    continue;
+                }
+                FileUtil.del(dir.toFile());
+                removed++;
+            }
+        } catch (Exception e) {
+            log.warn("[kb-upload] cleanup failed", e);
+        }
+        if (removed > 0) {
+            log.info("[kb-upload] cleanup removed {} orphan upload dirs", removed);
+        }
+    }
+
+    public static boolean isValidUploadId(String uploadId) {
+        return uploadId != null && UPLOAD_ID_PATTERN.matcher(uploadId).matches();
+    }
+
+    /**
+     * 按分片号顺序拼接到临时文件（FileChannel.transferTo，内核态拷贝）。
+     */
+    private Path assemble(KbUploadSession session) throws IOException {
+        Path dir = partDir(session.getUploadId());
+        Path target = Files.createTempFile(kbFileStorage.tmpDir(), "assemble-", ".part");
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            for (int i = 1; i <= session.getPartCount(); i++) {
+                try (FileChannel in = FileChannel.open(dir.resolve(i + PART_SUFFIX), StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long pos = 0;
+                    while (pos < size) {
+                        pos += in.transferTo(pos, size - pos, out);
+                    }
+                }
+            }
+            if (out.size() != session.getFileSize()) {
+                throw new RuntimeException("合并后大小不符，期望 " + session.getFileSize() + "，实际 " + out.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return target;
+    }
+
+    private String digest(Path file) throws IOException {
+        MessageDigest md = KbFileStorage.newDigest();
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (ch.read(buf) != -1) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+        }
+        return HexUtil.encodeHexStr(md.digest());
+    }
+
+    private Path partDir(String uploadId) throws IOException {
+        if (!isValidUploadId(uploadId)) {
+            throw new RuntimeException("非法uploadId: " + uploadId);
+        }
+        return kbFileStorage.tmpDir().resolve(UPLOAD_DIR).resolve(uploadId);
+    }
+
+    private void deletePartDir(String uploadId) {
+        try {
+            FileUtil.del(partDir(uploadId).toFile());
+        } catch (Exception e) {
+            // 遗留目录由定时清理回收
+            log.warn("[kb-upload] delete part dir failed, uploadId={}", uploadId, e);
+        }
+    }
+
+    private RBucket<KbUploadSession> sessionBucket(String uploadId) {
+        return redissonClient.getBucket(SESSION_KEY_PREFIX + uploadId);
+    }
+
+    private RMap<Integer, KbUploadSession.Part> partsMap(String uploadId) {
+        return redissonClient.getMap(PARTS_KEY_PREFIX + uploadId);
+    }
+}
@@ -48,6 +48,33 @@ public interface KbVectorIndexService {
      * @param fileId 文件Id（不能为空）
      */
     void upsertFile(Long fileId);
+
+    /**
+     * 文件级异步入队：为指定文件创建 VECTOR_INDEX 任务，由向量任务执行器在独立线程池中按限流速率执行 upsertFile。
+     *
+     * <p>说明：
+     * <ul>
+     *   <li>解析任务只负责分段落库 + 文本索引，向量写入不再占用解析线程；文件的 vectorIndexStatus 置为 PENDING。</li>
+     *   <li>同一文件已存在 PENDING 的 VECTOR_INDEX 任务时直接复用（合并重复入队），返回已有任务Id。</li>
+     * </ul>
+     *
+     * @param fileId 文件Id（不能为空）
+     * @return VECTOR_INDEX 任务Id
+     */
+    Long enqueueFile(Long fileId);
+
+    /**
+     * 从内容相同的源文件复制向量（重复上传复用分段时调用，跳过 embedding）。
+     *
+     * <p>两个文件的分段按 chunkIndex 一一对应（目标文件分段由源文件复制而来）；
+     * 向量服务未配置复制接口（kb.vector.cloneFilePath 置空）或分段无法对应时返回 false，调用方改为常规入队；
+     * 向量服务未实现该接口（如 HTTP 404）时抛出异常，调用方同样改为常规入队。</p>
+     *
+     * @param sourceFileId 源文件Id（向量索引已成功）
+     * @param fileId       目标文件Id
+     * @return 复制成功返回 true
+     */
+    boolean cloneFile(Long sourceFileId, Long fileId);
     /**
      * 库级重建：对指定 kbId 下所有文件的 chunk 执行向量索引全量重建。
      *
@@ -62,4 +89,21 @@ public interface KbVectorIndexService {
      * @param kbId 知识库Id（不能为空）
      */
     void reindexKb(Long kbId);
+
+    /**
+     * 向量检索：在指定知识库（可选限定文件）范围内按 query 文本检索相似 chunk，支持批量 query。
+     *
+     * <p>说明：
+     * <ul>
+     *   <li>kbId 与 fileId 至少传一个；只传 fileId 时按文件所属 kbId 取向量配置。</li>
+     *   <li>返回命中项复用文本检索的 SearchHit 结构（chunkId/kbId/fileId/chunkIndex/score），highlight 为空。</li>
+     * </ul>
+     *
+     * @param kbId    知识库Id（可选）
+     * @param fileId  文件Id（可选）
+     * @param queries query 文本列表（不能为空）
+     * @param topK    每个 query 的返回条数
+     * @return 与 queries 按下标一一对应的命中列表
+     */
+    List<List<KbSearchClient.SearchHit>> search(Long kbId, Long fileId, List<String> queries, int topK);
 }
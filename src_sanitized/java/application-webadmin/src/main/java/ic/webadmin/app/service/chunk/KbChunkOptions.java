@@ -0,0 +1,21 @@
+/**
+ * 切片参数（知识库 CONFIG_TEXT 中的 chunker 配置，缺省项取 kb.parse.chunk.* 全局默认）。
+ */
+@Data
+public class KbChunkOptions {
+
+    /** 切片方式（BYTES / SENTENCE / TOKENS / STRUCTURE）。 */
+    private String type;
+
+    /** 单个分段最大 UTF-8 字节数（BYTES / SENTENCE / STRUCTURE）。 */
+    private Integer maxBytes;
+
+    /** 相邻分段重叠 UTF-8 字节数（BYTES / SENTENCE / STRUCTURE）。 */
+    private Integer overlapBytes;
+
+    /** 单个分段最大估算 token 数（TOKENS）。 */
+    private Integer maxTokens;
+
+    /** 相邻分段重叠估算 token 数（TOKENS）。 */
+    private Integer overlapTokens;
+}
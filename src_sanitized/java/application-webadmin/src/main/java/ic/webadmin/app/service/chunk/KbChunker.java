@@ -0,0 +1,28 @@
+/**
+ * KB 切片器（切片方式的扩展点）。
+ *
+ * <p>每个实现对应一种切片方式（BYTES / SENTENCE / TOKENS / STRUCTURE），
+ * 由 {@link KbChunkerRegistry} 按知识库 CONFIG_TEXT 中的 chunker 配置选出并传入参数。</p>
+ *
+ * <p>约定：
+ * <ul>
+ *   <li>无状态、线程安全（多个解析线程共用同一实例，参数全部经 {@link KbChunkOptions} 传入）。</li>
+ *   <li>产出的 byteStart/byteEnd 为入参文本的 UTF-8 字节偏移（左闭右开），与提取文本缓存逐字节对齐；
+ *       content 为该区间的文本，chunkIndex 从 0 连续编号。</li>
+ *   <li>不产生空分段；入参为空时返回空列表。</li>
+ * </ul>
+ */
+public interface KbChunker {
+
+    /** 切片方式名称（BYTES / SENTENCE / TOKENS / STRUCTURE），与配置中的 type 对应。 */
+    String name();
+
+    /**
+     * 切片。
+     *
+     * @param text    清洗后的全文。
+     * @param options 切片参数（已校验）。
+     * @return 分段列表。
+     */
+    List<KbChunkPiece> split(String text, KbChunkOptions options);
+}
@@ -0,0 +1,175 @@
+/**
+ * KB 切片器注册中心：按知识库 CONFIG_TEXT 选出 {@link KbChunker} 并确定切片参数。
+ *
+ * <p>配置格式（CONFIG_TEXT 为 JSON 时读取其中的 chunker 节点，其余内容不受影响）：
+ * <pre>
+ * {"chunker": {"type": "SENTENCE", "maxBytes": 800, "overlapBytes": 100}}
+ * {"chunker": {"type": "TOKENS", "maxTokens": 256, "overlapTokens": 32}}
+ * </pre>
+ * 未配置的项取全局默认（kb.parse.chunk.mode / maxBytes / overlapBytes / maxTokens / overlapTokens）；
+ * CONFIG_TEXT 为空或不是 JSON 时整体使用全局默认。</p>
+ *
+ * <p>保存索引配置时经 {@link #validate} 校验；解析时配置不合法（历史数据）只记日志并退回全局默认，不使任务失败。
+ * 修改切片配置只影响之后的解析，已有分段需对该库执行重新切片（RECHUNK_FILE）。</p>
+ */
+@Slf4j
+@Component
+public class KbChunkerRegistry {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private List<KbChunker> chunkers;
+    @Autowired
+    private KbLibraryService kbLibraryService;
+
+    /**
+     * 默认切片方式
+     */
+    @Value("${kb.parse.chunk.mode:BYTES}")
+    private String defaultType;
+
+    /**
+     * 默认切片窗口（UTF-8 字节）
+     */
+    @Value("${kb.parse.chunk.maxBytes:1000}")
+    private int defaultMaxBytes;
+
+    /**
+     * 默认相邻切片重叠（UTF-8 字节）
+     */
+    @Value("${kb.parse.chunk.overlapBytes:120}")
+    private int defaultOverlapBytes;
+
+    /**
+     * 默认切片 token 预算（TOKENS）
+     */
+    @Value("${kb.parse.chunk.maxTokens:256}")
+    private int defaultMaxTokens;
+
+    /**
+     * 默认相邻切片重叠 token 数（TOKENS）
+     */
+    @Value("${kb.parse.chunk.overlapTokens:32}")
+    private int defaultOverlapTokens;
+
+    private final Map<String, KbChunker> chunkerMap = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (KbChunker c : chunkers) {
+            chunkerMap.put(c.name(), c);
+        }
+        log.info("[kb-chunker] registered={}, default={}", chunkerMap.keySet(), defaults());
+    }
+
+    /**
+     * 取知识库的切片函数（解析任务开始时调用一次，同一文件内各段共用）。
+     *
+     * @param kbId 知识库Id。
+     * @return 切片函数。
+     */
+    public Function<String, List<KbChunkPiece>> forKb(Long kbId) {
+        KbLibrary kb = kbLibraryService.getById(kbId);
+        KbChunkOptions options;
+        try {
+            options = resolve(kb == null ? null : kb.getConfigText());
+        } catch (MyRuntimeException e) {
+            log.warn("[kb-chunker] invalid chunker config, use default, kbId={}, reason={}", kbId, e.getMessage());
+            options = defaults();
+        }
+        KbChunker chunker = chunkerMap.get(options.getType());
+        KbChunkOptions finalOptions = options;
+        return text -> chunker.split(text, finalOptions);
+    }
+
+    /**
+     * 校验配置文本中的切片配置（保存索引配置时调用）。
+     *
+     * @param configText 知识库 CONFIG_TEXT。
+     */
+    public void validate(String configText) {
+        resolve(configText);
+    }
+
+    /**
+     * 解析配置文本中的切片配置并与全局默认合并。
+     *
+     * @param configText 知识库 CONFIG_TEXT（可为空 / 非 JSON）。
+     * @return 合并、校验后的参数。
+     */
+    public KbChunkOptions resolve(String configText) {
+        KbChunkOptions options = defaults();
+        JsonNode node = chunkerNode(configText);
+        if (node != null) {
+            if (node.hasNonNull("type")) {
+                options.setType(node.get("type").asText().trim().toUpperCase(Locale.ROOT));
+            }
+            options.setMaxBytes(intOf(node, "maxBytes", options.getMaxBytes()));
+            options.setOverlapBytes(intOf(node, "overlapBytes", options.getOverlapBytes()));
+            options.setMaxTokens(intOf(node, "maxTokens", options.getMaxTokens()));
+            options.setOverlapTokens(intOf(node, "overlapTokens", options.getOverlapTokens()));
+        }
+        check(options);
+        return options;
+    }
+
+    private KbChunkOptions defaults() {
+        KbChunkOptions options = new KbChunkOptions();
+        options.setType(StrUtil.blankToDefault(defaultType, "BYTES").trim().toUpperCase(Locale.ROOT));
+        options.setMaxBytes(defaultMaxBytes);
+        options.setOverlapBytes(defaultOverlapBytes);
+        options.setMaxTokens(defaultMaxTokens);
+        options.setOverlapTokens(defaultOverlapTokens);
+        return options;
+    }
+
+    private JsonNode chunkerNode(String configText) {
+        if (StrUtil.isBlank(configText) || !configText.trim().startsWith("{")) {
+            return null;
+        }
+        JsonNode root;
+        try {
+            root = OBJECT_MAPPER.readTree(configText);
+        } catch (IOException e) {
+            throw new MyRuntimeException("配置文本不是合法的 JSON: " + e.getOriginalMessage());
+        }
+        JsonNode node = root.get("chunker");
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (!node.isObject()) {
+            throw new MyRuntimeException("chunker 必须是对象");
+        }
+        return node;
+    }
+
+    private Integer intOf(JsonNode node, String field, Integer defaultValue) {
+        JsonNode v = node.get(field);
+        if (v == null || v.isNull()) {
+            return defaultValue;
+        }
+        if (!v.canConvertToInt()) {
+            throw new MyRuntimeException("chunker." + field + " 必须是整数");
+        }
+        return v.asInt();
+    }
+
+    private void check(KbChunkOptions o) {
+        if (!chunkerMap.containsKey(o.getType())) {
+            throw new MyRuntimeException("不支持的切片方式 " + o.getType() + "，可选 " + chunkerMap.keySet());
+        }
+        if (o.getMaxBytes() < 64 || o.getMaxBytes() > 1024 * 1024) {
+            throw new MyRuntimeException("maxBytes 需在 64 ~ 1048576 之间");
+        }
+        if (o.getOverlapBytes() < 0 || o.getOverlapBytes() > o.getMaxBytes() / 2) {
+            throw new MyRuntimeException("overlapBytes 需在 0 ~ maxBytes/2 之间");
+        }
+        if (o.getMaxTokens() < 16 || o.getMaxTokens() > 65536) {
+            throw new MyRuntimeException("maxTokens 需在 16 ~ 65536 之间");
+        }
+        if (o.getOverlapTokens() < 0 || o.getOverlapTokens() > o.getMaxTokens() / 2) {
+            throw new MyRuntimeException("overlapTokens 需在 0 ~ maxTokens/2 之间");
+        }
+    }
+}
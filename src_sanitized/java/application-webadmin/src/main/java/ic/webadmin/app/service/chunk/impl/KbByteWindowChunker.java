@@ -0,0 +1,19 @@
+/**
+ * 字节窗口切片（BYTES，默认）：按 UTF-8 字节固定窗口 + 重叠切分（{@code ByteChunker}），不识别句子与结构。
+ */
+@Component
+public class KbByteWindowChunker implements KbChunker {
+
+    @Override
+    public String name() {
+        return "BYTES";
+    }
+
+    @Override
+    public List<KbChunkPiece> split(String text, KbChunkOptions options) {
+        if (StrUtil.isEmpty(text)) {
+            return new ArrayList<>();
+        }
+        return ByteChunker.splitUtf8ByBytes(text, options.getMaxBytes(), options.getOverlapBytes());
+    }
+}
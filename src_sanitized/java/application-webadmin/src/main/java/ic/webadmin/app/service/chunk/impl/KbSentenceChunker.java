@@ -0,0 +1,100 @@
+/**
+ * 句子边界切片（SENTENCE）：窗口上限 maxBytes，窗口内从后向前找最近的句末（换行、。！？.!?）切断，
+ * 找不到或切点落在窗口前半段时按窗口末尾（字符边界）切断；下一分段从切点回退 overlapBytes 开始。
+ *
+ * <p>直接在 UTF-8 字节上扫描（句末标点均为完整字符的字节序列，不会误判多字节字符的中间字节），
+ * 分段首尾空白去掉，偏移为去空白后的区间。</p>
+ */
+@Component
+public class KbSentenceChunker implements KbChunker {
+
+    @Override
+    public String name() {
+        return "SENTENCE";
+    }
+
+    @Override
+    public List<KbChunkPiece> split(String text, KbChunkOptions options) {
+        List<KbChunkPiece> result = new ArrayList<>();
+        if (StrUtil.isEmpty(text)) {
+            return result;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int maxBytes = options.getMaxBytes();
+        int overlap = options.getOverlapBytes();
+        int n = bytes.length;
+        int start = 0;
+        while (start < n) {
+            int end = Math.min(n, start + maxBytes);
+            int cut = end;
+            if (end < n) {
+                cut = lastSentenceEnd(bytes, start + maxBytes / 2, end);
+                if (cut < 0) {
+                    cut = charBoundary(bytes, end, start);
+                }
+            }
+            addPiece(bytes, start, cut, result);
+            if (cut >= n) {
+                break;
+            }
+            int next = charBoundary(bytes, Math.max(0, cut - overlap), start);
+            start = next > start ? next : cut;
+        }
+        return result;
+    }
+
+    /**
+     * 在 (from, to] 内从后向前找句末，返回句末字符之后的位置；找不到返回 -1。
+     */
+    private int lastSentenceEnd(byte[] b, int from, int to) {
+        for (int i = to; i > from; i--) {
+            int c = b[i - 1] & 0xFF;
+            if (c == '\n' || c == '.' || c == '!' || c == '?') {
+                return i;
+            }
+            // 。 E3 80 82 / ！ EF BC 81 / ？ EF BC 9F
+            if (i - 3 >= from) {
+                int c0 = b[i - 3] & 0xFF;
+                int c1 = b[i - 2] & 0xFF;
+                if ((c0 == 0xE3 && c1 == 0x80 && c == 0x82)
+                        || (c0 == 0xEF && c1 == 0xBC && (c == 0x81 || c == 0x9F))) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把 pos 向前调整到字符起始（不早于 floor）。
+     */
+    private int charBoundary(byte[] b, int pos, int floor) {
+        while (pos > floor && pos < b.length && (b[pos] & 0xC0) == 0x80) {
+            pos--;
+        }
+        return pos;
+    }
+
+    private void addPiece(byte[] b, int start, int end, List<KbChunkPiece> result) {
+        while (start < end && isSpace(b[start])) {
+            start++;
+        }
+        while (end > start && isSpace(b[end - 1])) {
+            end--;
+        }
+        if (start >= end) {
+            return;
+        }
+        KbChunkPiece p = new KbChunkPiece();
+        p.setChunkIndex(result.size());
+        p.setContent(new String(b, start, end - start, StandardCharsets.UTF_8));
+        p.setByteStart((long) start);
+        p.setByteEnd((long) end);
+        p.setContentByteLen(end - start);
+        result.add(p);
+    }
+
+    private boolean isSpace(byte c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+}
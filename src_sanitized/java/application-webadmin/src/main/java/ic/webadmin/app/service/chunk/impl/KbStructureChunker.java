@@ -0,0 +1,173 @@
+/**
+ * 按文档结构切片（STRUCTURE）：以标题划分章节，每个章节独立切片，分段记录章节路径与父分段。
+ *
+ * <p>标题来源：Tika 提取时把 h1~h6 输出为 Markdown 标题行（见 {@link KbTikaExtractor}），md 文件本身即是该格式；
+ * 代码块（``` 围栏）内的 # 行不视为标题。没有标题的文本整体作为一个章节，效果与字节窗口切片相同。</p>
+ *
+ * <p>切片规则：
+ * <ul>
+ *   <li>章节（标题行 + 正文，至下一个标题为止）不超过 maxBytes 时整体成为一个分段，不跨章节拼接。</li>
+ *   <li>超过时在章节内按字节窗口切分（{@code ByteChunker}），偏移换算到整篇文本。</li>
+ *   <li>sectionPath：各级标题以 " &gt; " 连接（超长截断）。</li>
+ *   <li>父分段：章节首个分段指向最近的上级章节的首个分段；章节内后续分段指向本章节首个分段。</li>
+ * </ul>
+ * 偏移口径与字节窗口切片一致：byteStart/byteEnd 为清洗后全文的 UTF-8 字节偏移。</p>
+ */
+@Component
+public class KbStructureChunker implements KbChunker {
+
+    private static final Pattern HEADING = Pattern.compile("^ ?(#{1,6}) (.+)$");
+    private static final String PATH_SEPARATOR = " > ";
+    private static final int MAX_PATH_CHARS = 500;
+
+    @Override
+    public String name() {
+        return "STRUCTURE";
+    }
+
+    @Override
+    public List<KbChunkPiece> split(String text, KbChunkOptions options) {
+        int maxBytes = options.getMaxBytes();
+        int overlapBytes = options.getOverlapBytes();
+        List<KbChunkPiece> result = new ArrayList<>();
+        if (StrUtil.isEmpty(text)) {
+            return result;
+        }
+        Utf8Cursor cursor = new Utf8Cursor(text);
+        // 各级标题文本与对应章节首分段（下标 0 为标题前的前言）
+        String[] titles = new String[7];
+        Integer[] heads = new Integer[7];
+        int sectionStart = 0;
+        int sectionLevel = 0;
+        boolean inFence = false;
+        int lineStart = 0;
+        while (lineStart <= text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            String line = text.substring(lineStart, lineEnd);
+            if (line.trim().startsWith("```")) {
+                inFence = !inFence;
+            } else if (!inFence) {
+                Matcher m = HEADING.matcher(line);
+                if (m.matches()) {
+                    emitSection(text, sectionStart, lineStart, sectionLevel, titles, heads, cursor,
+                            maxBytes, overlapBytes, result);
+                    int level = m.group(1).length();
+                    for (int i = level; i < titles.length; i++) {
+                        titles[i] = null;
+                        heads[i] = null;
+                    }
+                    titles[level] = m.group(2).trim();
+                    sectionStart = lineStart;
+                    sectionLevel = level;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        emitSection(text, sectionStart, text.length(), sectionLevel, titles, heads, cursor,
+                maxBytes, overlapBytes, result);
+        return result;
+    }
+
+    private void emitSection(String text, int start, int end, int level, String[] titles, Integer[] heads,
+                             Utf8Cursor cursor, int maxBytes, int overlapBytes, List<KbChunkPiece> result) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start >= end) {
+            return;
+        }
+        Integer parent = null;
+        // 标题前的前言（下标 0）不作为任何章节的父分段
+        for (int i = level - 1; i >= 1 && parent == null; i--) {
+            parent = heads[i];
+        }
+        String path = sectionPath(titles, level);
+        String content = text.substring(start, end);
+        long byteStart = cursor.byteOffset(start);
+        int byteLen = (int) (cursor.byteOffset(end) - byteStart);
+
+        List<KbChunkPiece> pieces;
+        if (byteLen <= maxBytes) {
+            KbChunkPiece p = new KbChunkPiece();
+            p.setContent(content);
+            p.setByteStart(0L);
+            p.setByteEnd((long) byteLen);
+            p.setContentByteLen(byteLen);
+            pieces = Collections.singletonList(p);
+        } else {
+            pieces = ByteChunker.splitUtf8ByBytes(content, maxBytes, overlapBytes);
+        }
+        Integer head = null;
+        for (KbChunkPiece p : pieces) {
+            int index = result.size();
+            p.setChunkIndex(index);
+            p.setByteStart(p.getByteStart() == null ? null : p.getByteStart() + byteStart);
+            p.setByteEnd(p.getByteEnd() == null ? null : p.getByteEnd() + byteStart);
+            p.setSectionPath(path);
+            // 章节内后续分段以该章节首个分段为父；前言 / 无标题文本（level 0）不是章节，分段之间不设父子关系
+            p.setParentChunkIndex(head != null && level >= 1 ? head : parent);
+            if (head == null) {
+                head = index;
+            }
+            result.add(p);
+        }
+        if (head != null) {
+            heads[level] = head;
+        }
+    }
+
+    private String sectionPath(String[] titles, int level) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= level; i++) {
+            if (titles[i] == null) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(PATH_SEPARATOR);
+            }
+            sb.append(titles[i]);
+        }
+        if (sb.length() == 0) {
+            return null;
+        }
+        return sb.length() > MAX_PATH_CHARS ? sb.substring(0, MAX_PATH_CHARS) : sb.toString();
+    }
+
+    /**
+     * 字符下标到 UTF-8 字节偏移的换算（只向前推进，查询位置单调递增）。
+     */
+    private static class Utf8Cursor {
+        private final String text;
+        private int charPos;
+        private long bytePos;
+
+        Utf8Cursor(String text) {
+            this.text = text;
+        }
+
+        long byteOffset(int index) {
+            while (charPos < index) {
+                char c = text.charAt(charPos);
+                if (c < 0x80) {
+                    bytePos += 1;
+                } else if (c < 0x800) {
+                    bytePos += 2;
+                } else if (Character.isHighSurrogate(c) && charPos + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(charPos + 1))) {
+                    bytePos += 4;
+                    charPos++;
+                } else {
+                    bytePos += 3;
+                }
+                charPos++;
+            }
+            return bytePos;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * token 预算切片（TOKENS）：按估算 token 数切分，使分段大小贴近向量模型 / LLM 的输入预算。
+ *
+ * <p>估算口径（近似常见 BPE 分词，不依赖具体模型词表）：非 ASCII 字符（中文等）每字 1 个；
+ * 英文字母数字连续串每 4 个字符 1 个；其他 ASCII 标点每个 1 个；空白不计。
+ * 分段在 token 边界切断，最多 maxTokens 个，相邻分段重叠 overlapTokens 个。</p>
+ *
+ * <p>直接在 UTF-8 字节上扫描，token 区间即字节偏移。</p>
+ */
+@Component
+public class KbTokenBudgetChunker implements KbChunker {
+
+    /** 英文字母数字串每个 token 的字符数 */
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+
+    @Override
+    public String name() {
+        return "TOKENS";
+    }
+
+    @Override
+    public List<KbChunkPiece> split(String text, KbChunkOptions options) {
+        List<KbChunkPiece> result = new ArrayList<>();
+        if (StrUtil.isEmpty(text)) {
+            return result;
+        }
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        int n = b.length;
+        int[] starts = new int[n / 3 + 16];
+        int[] ends = new int[starts.length];
+        int count = 0;
+        int i = 0;
+        while (i < n) {
+            int c = b[i] & 0xFF;
+            int end;
+            if (c <= ' ') {
+                i++;
+                continue;
+            } else if (isAsciiAlnum(c)) {
+                end = i + 1;
+                while (end < n && end - i < ASCII_CHARS_PER_TOKEN && isAsciiAlnum(b[end] & 0xFF)) {
+                    end++;
+                }
+            } else if (c < 0x80) {
+                end = i + 1;
+            } else {
+                end = Math.min(n, i + (c >= 0xF0 ? 4 : c >= 0xE0 ? 3 : c >= 0xC0 ? 2 : 1));
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = i;
+            ends[count] = end;
+            count++;
+            i = end;
+        }
+
+        int maxTokens = options.getMaxTokens();
+        int overlap = options.getOverlapTokens();
+        int t = 0;
+        while (t < count) {
+            int e = Math.min(count, t + maxTokens);
+            int byteStart = starts[t];
+            int byteEnd = ends[e - 1];
+            KbChunkPiece p = new KbChunkPiece();
+            p.setChunkIndex(result.size());
+            p.setContent(new String(b, byteStart, byteEnd - byteStart, StandardCharsets.UTF_8));
+            p.setByteStart((long) byteStart);
+            p.setByteEnd((long) byteEnd);
+            p.setContentByteLen(byteEnd - byteStart);
+            result.add(p);
+            if (e >= count) {
+                break;
+            }
+            t = Math.max(t + 1, e - overlap);
+        }
+        return result;
+    }
+
+    private boolean isAsciiAlnum(int c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -4,6 +4,7 @@
  * <p>职责：
  * <ul>
  *   <li>将某个文件的 chunk 文本（chunkId + content）发送给向量服务，触发 embedding 生成与向量库写入。</li>
+ *   <li>检索侧：query 向量化（embed）与向量相似度检索（searchByVector / searchByText）。</li>
  * </ul>
  *
  * <p>语义约定（建议对齐对接口径）：
@@ -36,4 +37,47 @@ public interface KbVectorClient {
      * @return 响应体（建议包含成功/失败、写入条数、错误信息等）。
      */
     KbVectorReindexFileResp reindexFile(KbVectorReindexFileReq req);
+
+    /**
+     * 向量服务是否提供文件级向量复制接口（kb.vector.cloneFilePath 已配置）。
+     */
+    boolean supportsCloneFile();
+
+    /**
+     * 文件级向量复制：按 chunkId 对应关系把源文件已有的向量写到目标文件的 chunkId 下（不重新 embedding）。
+     *
+     * @param req 请求体（kbId / sourceFileId / fileId / chunk 对应关系）。
+     * @return 响应体（upsertCount 为复制条数）。
+     */
+    KbVectorReindexFileResp cloneFile(KbVectorCloneFileReq req);
+
+    /**
+     * 批量文本向量化（query 侧）。
+     *
+     * @param req 请求体（vectorIndexConfig + texts）。
+     * @return 响应体，vectors 与 texts 按下标一一对应。
+     */
+    KbVectorEmbedResp embed(KbVectorEmbedReq req);
+
+    /**
+     * 按 query 向量做相似度检索（支持批量 query）。
+     *
+     * <p>注意：检索链路使用独立的连接/读超时（kb.vector.search.*TimeoutMs），
+     * 避免向量服务抖动拖住检索接口线程。</p>
+     *
+     * @param req 请求体（queryVectors 必填，kbId/fileId 可选过滤）。
+     * @return 响应体，results 与 queryVectors 按下标一一对应。
+     */
+    KbVectorSearchResp searchByVector(KbVectorSearchReq req);
+
+    /**
+     * 按 query 文本做相似度检索（支持批量 query）。
+     *
+     * <p>实现口径：query 文本规范化后查 LRU embedding 缓存，仅对未命中的文本调用 embed，
+     * 再转为 searchByVector；同一问题重复检索时可省掉 embedding 往返。</p>
+     *
+     * @param req 请求体（queries 必填，kbId/fileId 可选过滤）。
+     * @return 响应体，results 与 queries 按下标一一对应。
+     */
+    KbVectorSearchResp searchByText(KbVectorSearchReq req);
 }
@@ -54,6 +54,10 @@ public class KbSearchClientImpl implements KbSearchClient {
             }
         } catch (Exception e) {
             log.error("OpenSearch bulkUpsert error, index={}", index, e);
+            if (e instanceof RestClientException) {
+                // 保留 HTTP 状态 / 网络异常类型，供任务重试策略分类
+                throw (RestClientException) e;
+            }
             throw new MyRuntimeException("OpenSearch bulk异常: " + e.getMessage());
         }
     }
@@ -182,6 +186,10 @@ public class KbSearchClientImpl implements KbSearchClient {
 
         } catch (Exception e) {
             log.error("OpenSearch deleteByQuery error, index={}, body={}", index, jsonBody, e);
+            if (e instanceof RestClientException) {
+                // 保留 HTTP 状态 / 网络异常类型，供任务重试策略分类
+                throw (RestClientException) e;
+            }
             throw new MyRuntimeException("OpenSearch delete_by_query异常: " + e.getMessage());
         }
     }
@@ -207,6 +215,10 @@ public class KbSearchClientImpl implements KbSearchClient {
             log.info("OpenSearch refresh ok, index={}", index);
         } catch (Exception e) {
             log.error("OpenSearch refresh error, index={}", index, e);
+            if (e instanceof RestClientException) {
+                // 保留 HTTP 状态 / 网络异常类型，供任务重试策略分类
+                throw (RestClientException) e;
+            }
             throw new MyRuntimeException("OpenSearch refresh异常: " + e.getMessage());
         }
     }
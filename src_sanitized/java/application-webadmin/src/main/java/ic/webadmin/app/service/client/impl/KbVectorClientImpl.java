@@ -10,12 +10,158 @@ public class KbVectorClientImpl implements KbVectorClient {
     @Value("${kb.vector.reindexFilePath:/kb/vector/reindexFile}")
     private String reindexFilePath;
 
+    /**
+     * 文件级向量复制接口路径（为空表示向量服务不支持，重复上传时重新 embedding；
+     * 向量服务未实现该接口时请求失败，调用方同样退回常规入队）
+     */
+    @Value("${kb.vector.cloneFilePath:/kb/vector/cloneFile}")
+    private String cloneFilePath;
+
+    @Value("${kb.vector.embedPath:/kb/vector/embed}")
+    private String embedPath;
+
+    @Value("${kb.vector.searchPath:/kb/vector/search}")
+    private String searchPath;
+
+    /**
+     * 检索链路超时（与 reindex 的长耗时写入分开，检索必须快速失败）；
+     * 文本检索在 embedding 未命中缓存时串行发起 embed + search 两次请求，两次读超时之和不应大于
+     * 混合检索向量一路的超时 kb.search.hybrid.vectorTimeoutMs
+     */
+    @Value("${kb.vector.search.connectTimeoutMs:1000}")
+    private int searchConnectTimeoutMs;
+
+    @Value("${kb.vector.search.readTimeoutMs:1200}")
+    private int searchReadTimeoutMs;
+
+    /**
+     * 单次 embed/search 请求的最大 query 数（超出自动切批）
+     */
+    @Value("${kb.vector.search.maxBatch:16}")
+    private int searchMaxBatch;
+
+    /**
+     * query embedding LRU 缓存：容量 / 过期时间（毫秒，0 表示不过期）
+     */
+    @Value("${kb.vector.embedCache.maxSize:2000}")
+    private int embedCacheMaxSize;
+
+    @Value("${kb.vector.embedCache.ttlMs:3600000}")
+    private long embedCacheTtlMs;
+
+    /**
+     * reindexFile 传输格式：JSON（默认，整包 JSON）/ NDJSON_GZIP（gzip 压缩的 NDJSON，逐 chunk 流式写出）
+     */
+    @Value("${kb.vector.wireFormat:JSON}")
+    private String wireFormat;
+
+    @Value("${kb.vector.reindex.readTimeoutMs:300000}")
+    private int reindexReadTimeoutMs;
+
+    /** 检索专用 RestTemplate（独立超时） */
+    private RestTemplate searchRestTemplate;
+
+    /** reindex 流式上传专用 RestTemplate（不缓冲请求体，chunked 传输） */
+    private RestTemplate streamingRestTemplate;
+
+    /** 对端返回 415 后降级为 JSON（避免每次都先失败一次） */
+    private volatile boolean ndjsonUnsupported = false;
+
+    /** NDJSON 逐行写出：不自动关闭底层流（由 gzip 负责 finish） */
+    private final ObjectMapper ndjsonMapper = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    /** key = vectorIndexConfig + 规范化 query 文本；value = query 向量 */
+    private Cache<String, float[]> embedCache;
+
     public KbVectorClientImpl(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
     }
 
+    @PostConstruct
+    public void init() {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(searchConnectTimeoutMs);
+        factory.setReadTimeout(searchReadTimeoutMs);
+        searchRestTemplate = new RestTemplate(factory);
+        embedCache = CacheUtil.newLRUCache(embedCacheMaxSize, embedCacheTtlMs);
+
+        SimpleClientHttpRequestFactory streamingFactory = new SimpleClientHttpRequestFactory();
+        streamingFactory.setBufferRequestBody(false);
+        streamingFactory.setChunkSize(64 * 1024);
+        streamingFactory.setReadTimeout(reindexReadTimeoutMs);
+        streamingRestTemplate = new RestTemplate(streamingFactory);
+    }
+
     @Override
     public KbVectorReindexFileResp reindexFile(KbVectorReindexFileReq req) {
+        if ("NDJSON_GZIP".equalsIgnoreCase(wireFormat) && !ndjsonUnsupported) {
+            try {
+                return reindexFileNdjsonGzip(req);
+            } catch (org.springframework.web.client.HttpClientErrorException e) {
+                if (e.getStatusCode().value() != 415) {
+                    throw e;
+                }
+                // 对端不认识 x-ndjson + gzip：记住并降级为 JSON
+                ndjsonUnsupported = true;
+                log.warn("[kb-vector] python does not accept ndjson+gzip (415), fallback to JSON");
+            }
+        }
+        return reindexFileJson(req);
+    }
+
+    /**
+     * NDJSON + gzip 流式写出：第 1 行为文件头（kbId/fileId/vectorIndexConfig/chunkCount），之后每行一个 ChunkItem。
+     *
+     * <p>不在内存中拼整包 JSON，也不让 RestTemplate 缓冲请求体（chunked 边写边发）；重复度高的 CJK 文本 gzip 后体积通常只有原 JSON 的几分之一。</p>
+     */
+    private KbVectorReindexFileResp reindexFileNdjsonGzip(KbVectorReindexFileReq req) {
+        String url = buildUrl(baseUrl, reindexFilePath);
+        List<KbVectorReindexFileReq.ChunkItem> chunks =
+                req.getChunks() == null ? Collections.emptyList() : req.getChunks();
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("kbId", req.getKbId());
+        header.put("fileId", req.getFileId());
+        header.put("vectorIndexConfig", req.getVectorIndexConfig());
+        header.put("chunkCount", chunks.size());
+
+        long begin = System.currentTimeMillis();
+        try {
+            KbVectorReindexFileResp body = streamingRestTemplate.execute(url, HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8));
+                        request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                        GZIPOutputStream gz = new GZIPOutputStream(request.getBody(), 64 * 1024);
+                        try (SequenceWriter writer = ndjsonMapper.writer().withRootValueSeparator("\n").writeValues(gz)) {
+                            writer.write(header);
+                            for (KbVectorReindexFileReq.ChunkItem it : chunks) {
+                                writer.write(it);
+                            }
+                        }
+                        gz.finish();
+                    },
+                    response -> ndjsonMapper.readValue(response.getBody(), KbVectorReindexFileResp.class));
+
+            if (body == null) {
+                throw new RuntimeException("python resp body is null");
+            }
+            log.info("[kb-vector] reindexFile(ndjson+gzip) done, kbId={}, fileId={}, chunkCount={}, costMs={}",
+                    req.getKbId(), req.getFileId(), chunks.size(), System.currentTimeMillis() - begin);
+            return body;
+
+        } catch (org.springframework.web.client.HttpStatusCodeException e) {
+            log.error("[kb-vector] call python failed, url={}, status={}, respBody={}",
+                    url, e.getStatusCode().value(), safeTruncate(e.getResponseBodyAsString(), 1024), e);
+            throw e;
+
+        } catch (Exception e) {
+            log.error("[kb-vector] call python reindexFile(ndjson+gzip) failed, url={}", url, e);
+            throw e;
+        }
+    }
+
+    private KbVectorReindexFileResp reindexFileJson(KbVectorReindexFileReq req) {
         String url = buildUrl(baseUrl, reindexFilePath);
 
         HttpHeaders headers = new HttpHeaders();
@@ -30,7 +176,11 @@ public class KbVectorClientImpl implements KbVectorClient {
             if (!resp.getStatusCode().is2xxSuccessful()) {
                 log.error("[kb-vector] call python failed, url={}, status={}, respBody={}",
                         url, resp.getStatusCodeValue(), safeTruncate(String.valueOf(resp.getBody()), 1024));
-                throw new RuntimeException("python http status not 2xx: " + resp.getStatusCodeValue());
+                // 按状态码抛出 HTTP 异常，供任务重试策略分类（429 / 5xx 重试）
+                String statusText = "python http status not 2xx: " + resp.getStatusCodeValue();
+                throw resp.getStatusCode().is5xxServerError()
+                        ? new org.springframework.web.client.HttpServerErrorException(resp.getStatusCode(), statusText)
+                        : new org.springframework.web.client.HttpClientErrorException(resp.getStatusCode(), statusText);
             }
 
             KbVectorReindexFileResp body = resp.getBody();
@@ -51,6 +201,187 @@ public class KbVectorClientImpl implements KbVectorClient {
         }
     }
 
+    @Override
+    public boolean supportsCloneFile() {
+        return StrUtil.isNotBlank(cloneFilePath);
+    }
+
+    @Override
+    public KbVectorReindexFileResp cloneFile(KbVectorCloneFileReq req) {
+        String url = buildUrl(baseUrl, cloneFilePath);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<KbVectorCloneFileReq> entity = new HttpEntity<>(req, headers);
+        try {
+            ResponseEntity<KbVectorReindexFileResp> resp =
+                    restTemplate.exchange(url, HttpMethod.POST, entity, KbVectorReindexFileResp.class);
+            if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) {
+                throw new RuntimeException("python cloneFile http status=" + resp.getStatusCodeValue());
+            }
+            return resp.getBody();
+        } catch (org.springframework.web.client.HttpStatusCodeException e) {
+            log.error("[kb-vector] call python cloneFile failed, url={}, status={}, respBody={}",
+                    url, e.getStatusCode().value(), safeTruncate(e.getResponseBodyAsString(), 1024), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public KbVectorEmbedResp embed(KbVectorEmbedReq req) {
+        String url = buildUrl(baseUrl, embedPath);
+        KbVectorEmbedResp body = postForSearch(url, req, KbVectorEmbedResp.class);
+        if (body.getSuccess() == null || !body.getSuccess()) {
+            throw new RuntimeException("python embed failed: " + body.getMessage());
+        }
+        int expect = req.getTexts() == null ? 0 : req.getTexts().size();
+        if (body.getVectors() == null || body.getVectors().size() != expect) {
+            throw new RuntimeException("python embed vectors size mismatch, expect=" + expect
+                    + ", actual=" + (body.getVectors() == null ? null : body.getVectors().size()));
+        }
+        return body;
+    }
+
+    @Override
+    public KbVectorSearchResp searchByVector(KbVectorSearchReq req) {
+        List<float[]> vectors = req.getQueryVectors();
+        if (CollUtil.isEmpty(vectors)) {
+            throw new RuntimeException("queryVectors不能为空");
+        }
+        String url = buildUrl(baseUrl, searchPath);
+
+        // 按 maxBatch 切批，结果按原下标顺序拼接
+        List<KbVectorSearchResp.QueryResult> results = new ArrayList<>(vectors.size());
+        int batch = Math.max(1, searchMaxBatch);
+        for (int i = 0; i < vectors.size(); i += batch) {
+            KbVectorSearchReq sub = new KbVectorSearchReq();
+            sub.setKbId(req.getKbId());
+            sub.setFileId(req.getFileId());
+            sub.setVectorIndexConfig(req.getVectorIndexConfig());
+            sub.setTopK(req.getTopK());
+            sub.setQueryVectors(vectors.subList(i, Math.min(vectors.size(), i + batch)));
+
+            KbVectorSearchResp body = postForSearch(url, sub, KbVectorSearchResp.class);
+            if (body.getSuccess() == null || !body.getSuccess()) {
+                throw new RuntimeException("python search failed: " + body.getMessage());
+            }
+            if (body.getResults() == null || body.getResults().size() != sub.getQueryVectors().size()) {
+                throw new RuntimeException("python search results size mismatch, expect="
+                        + sub.getQueryVectors().size());
+            }
+            results.addAll(body.getResults());
+        }
+
+        KbVectorSearchResp resp = new KbVectorSearchResp();
+        resp.setSuccess(true);
+        resp.setResults(results);
+        return resp;
+    }
+
+    @Override
+    public KbVectorSearchResp searchByText(KbVectorSearchReq req) {
+        List<String> queries = req.getQueries();
+        if (CollUtil.isEmpty(queries)) {
+            throw new RuntimeException("queries不能为空");
+        }
+        String config = req.getVectorIndexConfig() == null ? "" : req.getVectorIndexConfig().trim();
+
+        // 1) 规范化 + 查缓存；未命中的文本去重后统一 embed
+        List<String> keys = new ArrayList<>(queries.size());
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (String q : queries) {
+            String normalized = normalizeQuery(q);
+            if (normalized.isEmpty()) {
+                throw new RuntimeException("query不能为空");
+            }
+            String key = config + "\u0001" + normalized;
+            keys.add(key);
+            if (embedCache.get(key) == null) {
+                missing.put(key, normalized);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<String> missKeys = new ArrayList<>(missing.keySet());
+            int batch = Math.max(1, searchMaxBatch);
+            for (int i = 0; i < missKeys.size(); i += batch) {
+                List<String> subKeys = missKeys.subList(i, Math.min(missKeys.size(), i + batch));
+                List<String> texts = new ArrayList<>(subKeys.size());
+                for (String k : subKeys) texts.add(missing.get(k));
+
+                KbVectorEmbedReq embedReq = new KbVectorEmbedReq();
+                embedReq.setVectorIndexConfig(req.getVectorIndexConfig());
+                embedReq.setTexts(texts);
+                List<float[]> vectors = embed(embedReq).getVectors();
+                for (int j = 0; j < subKeys.size(); j++) {
+                    embedCache.put(subKeys.get(j), vectors.get(j));
+                }
+            }
+        }
+        log.debug("[kb-vector] searchByText, queries={}, embedCacheMiss={}", queries.size(), missing.size());
+
+        // 2) 组装向量（缓存可能在并发下被淘汰，兜底单条补 embed）
+        List<float[]> queryVectors = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            float[] v = embedCache.get(keys.get(i));
+            if (v == null) {
+                KbVectorEmbedReq embedReq = new KbVectorEmbedReq();
+                embedReq.setVectorIndexConfig(req.getVectorIndexConfig());
+                embedReq.setTexts(Collections.singletonList(normalizeQuery(queries.get(i))));
+                v = embed(embedReq).getVectors().get(0);
+                embedCache.put(keys.get(i), v);
+            }
+            queryVectors.add(v);
+        }
+
+        KbVectorSearchReq vectorReq = new KbVectorSearchReq();
+        vectorReq.setKbId(req.getKbId());
+        vectorReq.setFileId(req.getFileId());
+        vectorReq.setVectorIndexConfig(req.getVectorIndexConfig());
+        vectorReq.setTopK(req.getTopK());
+        vectorReq.setQueryVectors(queryVectors);
+        return searchByVector(vectorReq);
+    }
+
+    /**
+     * 检索链路统一 POST：独立超时 + 非 2xx/空响应即失败。
+     */
+    private <T> T postForSearch(String url, Object req, Class<T> respType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Object> entity = new HttpEntity<>(req, headers);
+
+        try {
+            ResponseEntity<T> resp = searchRestTemplate.exchange(url, HttpMethod.POST, entity, respType);
+            if (!resp.getStatusCode().is2xxSuccessful()) {
+                log.error("[kb-vector] call python failed, url={}, status={}", url, resp.getStatusCodeValue());
+                throw new RuntimeException("python http status not 2xx: " + resp.getStatusCodeValue());
+            }
+            T body = resp.getBody();
+            if (body == null) {
+                throw new RuntimeException("python resp body is null");
+            }
+            return body;
+
+        } catch (org.springframework.web.client.HttpStatusCodeException e) {
+            log.error("[kb-vector] call python failed, url={}, status={}, respBody={}",
+                    url, e.getStatusCode().value(), safeTruncate(e.getResponseBodyAsString(), 1024), e);
+            throw e;
+
+        } catch (Exception e) {
+            log.error("[kb-vector] call python search failed, url={}", url, e);
+            throw e;
+        }
+    }
+
+    /**
+     * query 规范化（缓存 key）：去首尾空白、压缩连续空白、小写化。
+     */
+    static String normalizeQuery(String q) {
+        if (q == null) return "";
+        return q.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
     /** 统一拼接 baseUrl + path：避免 // 或漏 / */
     static String buildUrl(String baseUrl, String path) {
         if (baseUrl == null) baseUrl = "";
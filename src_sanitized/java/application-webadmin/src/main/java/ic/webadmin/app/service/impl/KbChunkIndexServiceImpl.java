@@ -7,6 +7,8 @@ public class KbChunkIndexServiceImpl implements KbChunkIndexService {
     private final KbSearchClient kbSearchClient;
     private final KbSearchProperties kbSearchProperties;
 
+    private static final int BULK_BATCH_SIZE = 500;
+
     @Override
     public void reindexFile(Long fileId) {
         if (fileId == null) throw new MyRuntimeException("fileId不能为空");
@@ -16,36 +18,50 @@ public class KbChunkIndexServiceImpl implements KbChunkIndexService {
             throw new MyRuntimeException("kb.opensearch.index 未配置");
         }
 
-        // 只取 deleted_flag=1 的 chunk
-        List<KbChunk> chunks = kbChunkMapper.selectByFileIdActive(fileId);
-        if (chunks == null || chunks.isEmpty()) {
+        int total = this.bulkFileFrom(index, fileId, -1, null);
+        if (total == 0) {
             log.info("reindexFile: no chunks found, fileId={}", fileId);
             return;
         }
+        log.info("reindexFile success: fileId={}, docs={}", fileId, total);
+    }
 
-        List<KbSearchClient.BulkDoc> docs = new ArrayList<>(chunks.size());
-        for (KbChunk c : chunks) {
-            KbSearchClient.BulkDoc d = new KbSearchClient.BulkDoc();
-            d.setId(String.valueOf(c.getId()));
-
-            Map<String, Object> src = new HashMap<>();
-            src.put("chunkId", String.valueOf(c.getId()));
-            src.put("kbId", String.valueOf(c.getKbId()));
-            src.put("fileId", String.valueOf(c.getFileId()));
-            src.put("chunkIndex", c.getChunkIndex());
-            src.put("content", c.getContent());
-            src.put("contentHash", c.getContentHash());
-            src.put("contentLen", c.getContentLen());
-            src.put("deletedFlag", c.getDeletedFlag());
-            src.put("createTime", c.getCreateTime());
-            src.put("updateTime", c.getUpdateTime());
+    @Override
+    public int reindexFileFrom(Long fileId, int afterChunkIndex, IntConsumer onBatch) {
+        if (fileId == null) throw new MyRuntimeException("fileId不能为空");
 
-            d.setSource(src);
-            docs.add(d);
+        String index = kbSearchProperties.getOpensearch().getIndex();
+        if (index == null || index.trim().isEmpty()) {
+            throw new MyRuntimeException("kb.opensearch.index 未配置");
         }
+        return this.bulkFileFrom(index, fileId, afterChunkIndex, onBatch);
+    }
 
-        kbSearchClient.bulkUpsert(index, docs);
-        log.info("reindexFile success: fileId={}, docs={}", fileId, docs.size());
+    /**
+     * 按 chunkIndex 游标分页读取（只取 deleted_flag=1 的 chunk）并分批 bulk；
+     * 批次之间检查任务是否已取消（任务线程外调用时不生效），每批写入后回调最后一个 chunkIndex。
+     */
+    private int bulkFileFrom(String index, Long fileId, int afterChunkIndex, IntConsumer onBatch) {
+        int total = 0;
+        int after = afterChunkIndex;
+        while (true) {
+            KbJobCancellation.checkpoint();
+            List<KbChunk> sub = kbChunkMapper.selectByFileIdActiveAfter(fileId, after, BULK_BATCH_SIZE);
+            if (CollUtil.isEmpty(sub)) {
+                break;
+            }
+            List<KbSearchClient.BulkDoc> docs = buildDocs(sub);
+            kbSearchClient.bulkUpsert(index, docs);
+            total += docs.size();
+            after = sub.get(sub.size() - 1).getChunkIndex();
+            if (onBatch != null) {
+                onBatch.accept(after);
+            }
+            if (sub.size() < BULK_BATCH_SIZE) {
+                break;
+            }
+        }
+        return total;
     }
 
     @Override
@@ -58,9 +74,7 @@ public class KbChunkIndexServiceImpl implements KbChunkIndexService {
         }
 
         // 0) 清旧：真正“重建”的关键（按 kbId 删）
-        kbSearchClient.deleteByQuery(index,
-                "{\"query\":{\"bool\":{\"filter\":[{\"term\":{\"kbId\":\"" + kbId + "\"}}]}}}"
-        );
+        this.deleteKb(kbId);
 
         // 1) 查 DB：只取 deleted_flag=1 的 chunk
         List<KbChunk> chunks = kbChunkMapper.selectByKbIdActive(kbId);
@@ -70,11 +84,12 @@ public class KbChunkIndexServiceImpl implements KbChunkIndexService {
             return;
         }
 
-        // 2) 分批 bulk（避免一次太大）
-        int batchSize = 500; // 你可以放配置
+        // 2) 分批 bulk（避免一次太大），批次之间检查任务是否已取消
+        int batchSize = BULK_BATCH_SIZE; // 你可以放配置
         int total = 0;
 
         for (int i = 0; i < chunks.size(); i += batchSize) {
+            KbJobCancellation.checkpoint();
             List<KbChunk> sub = chunks.subList(i, Math.min(chunks.size(), i + batchSize));
             List<KbSearchClient.BulkDoc> docs = buildDocs(sub);
             kbSearchClient.bulkUpsert(index, docs);
@@ -87,6 +102,42 @@ public class KbChunkIndexServiceImpl implements KbChunkIndexService {
         log.info("reindexKb success: kbId={}, docs={}", kbId, total);
     }
 
+    @Override
+    public void deleteKb(Long kbId) {
+        if (kbId == null) throw new MyRuntimeException("kbId不能为空");
+
+        String index = kbSearchProperties.getOpensearch().getIndex();
+        if (index == null || index.trim().isEmpty()) {
+            throw new MyRuntimeException("kb.opensearch.index 未配置");
+        }
+        kbSearchClient.deleteByQuery(index,
+                "{\"query\":{\"bool\":{\"filter\":[{\"term\":{\"kbId\":\"" + kbId + "\"}}]}}}"
+        );
+    }
+
+    @Override
+    public void refresh() {
+        String index = kbSearchProperties.getOpensearch().getIndex();
+        if (index == null || index.trim().isEmpty()) {
+            throw new MyRuntimeException("kb.opensearch.index 未配置");
+        }
+        kbSearchClient.refresh(index);
+    }
+
+    @Override
+    public void deleteFile(Long fileId) {
+        if (fileId == null) throw new MyRuntimeException("fileId不能为空");
+
+        String index = kbSearchProperties.getOpensearch().getIndex();
+        if (index == null || index.trim().isEmpty()) {
+            throw new MyRuntimeException("kb.opensearch.index 未配置");
+        }
+        kbSearchClient.deleteByQuery(index,
+                "{\"query\":{\"bool\":{\"filter\":[{\"term\":{\"fileId\":\"" + fileId + "\"}}]}}}"
+        );
+        log.info("deleteFile success: fileId={}", fileId);
+    }
+
     private List<KbSearchClient.BulkDoc> buildDocs(List<KbChunk> chunks) {
         List<KbSearchClient.BulkDoc> docs = new ArrayList<>(chunks.size());
         for (KbChunk c : chunks) {
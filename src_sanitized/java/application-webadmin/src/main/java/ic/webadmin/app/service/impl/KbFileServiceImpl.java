@@ -35,6 +35,37 @@ public class KbFileServiceImpl extends BaseService<KbFile, Long> implements KbFi
         return kbFile;
     }
 
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public KbFile saveNewWithParseJob(KbFile kbFile, KbJob job) {
+        kbFileMapper.insert(this.buildDefaultValue(kbFile));
+        job.setTargetId(kbFile.getId());
+        kbJobService.saveNew(job);
+        return kbFile;
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void saveNewBatchWithParseJobs(List<KbFile> kbFileList, Integer priority) {
+        if (CollUtil.isEmpty(kbFileList)) {
+            return;
+        }
+        kbFileList.forEach(this::buildDefaultValue);
+        kbFileMapper.insertList(kbFileList);
+        List<KbJob> jobList = new ArrayList<>(kbFileList.size());
+        for (KbFile kbFile : kbFileList) {
+            KbJob job = new KbJob();
+            job.setKbId(kbFile.getKbId());
+            job.setJobType("PARSE_FILE");
+            job.setTargetId(kbFile.getId());
+            job.setPriority(priority);
+            job.setStatus("PENDING");
+            job.setProgress(0);
+            jobList.add(job);
+        }
+        kbJobService.saveNewBatch(jobList);
+    }
+
     @Transactional(rollbackFor = Exception.class)
     @Override
     public void saveNewBatch(List<KbFile> kbFileList) {
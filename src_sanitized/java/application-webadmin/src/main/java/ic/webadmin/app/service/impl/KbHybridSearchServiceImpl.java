@@ -0,0 +1,263 @@
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KbHybridSearchServiceImpl implements KbHybridSearchService {
+
+    private final KbSearchClient kbSearchClient;
+    private final KbVectorIndexService kbVectorIndexService;
+    private final KbLibraryService kbLibraryService;
+    private final KbFileService kbFileService;
+    private final KbSearchProperties kbSearchProperties;
+
+    /**
+     * 两路检索各自的超时（毫秒）
+     */
+    @Value("${kb.search.hybrid.textTimeoutMs:1500}")
+    private long textTimeoutMs;
+
+    /**
+     * 向量一路超时需不小于 2 × kb.vector.search.readTimeoutMs（embed + search）：超时后虽会中断任务线程，但阻塞中的 HTTP 读取
+     * 只能等客户端读超时返回，客户端超时更长时超时请求会持续占用检索线程池
+     */
+    @Value("${kb.search.hybrid.vectorTimeoutMs:2500}")
+    private long vectorTimeoutMs;
+
+    /**
+     * 每路召回深度 = topK * candidateFactor（上限 maxCandidates），融合前多召回一些保证重排空间
+     */
+    @Value("${kb.search.hybrid.candidateFactor:3}")
+    private int candidateFactor;
+
+    @Value("${kb.search.hybrid.maxCandidates:100}")
+    private int maxCandidates;
+
+    /**
+     * RRF 常数 k（经验值 60）
+     */
+    @Value("${kb.search.hybrid.rrfK:60}")
+    private int rrfK;
+
+    /**
+     * 文本一路权重（向量一路 = 1 - textWeight），RRF 与 WEIGHTED 均生效
+     */
+    @Value("${kb.search.hybrid.textWeight:0.5}")
+    private double textWeight;
+
+    @Value("${kb.search.hybrid.poolSize:16}")
+    private int poolSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = ExecutorBuilder.create()
+                .setCorePoolSize(poolSize)
+                .setMaxPoolSize(poolSize)
+                .setWorkQueue(new LinkedBlockingQueue<>(poolSize * 16))
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("kb-hybrid-search-").build())
+                .build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public HybridResult search(Long kbId, Long fileId, String keyword, int topK, String fusion) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new MyRuntimeException("keyword不能为空");
+        }
+        if (kbId == null) {
+            if (fileId == null) {
+                throw new MyRuntimeException("kbId与fileId不能同时为空");
+            }
+            KbFile file = kbFileService.getById(fileId);
+            if (file == null) {
+                throw new MyRuntimeException("文件不存在 fileId=" + fileId);
+            }
+            kbId = file.getKbId();
+        }
+        KbLibrary lib = kbLibraryService.getById(kbId);
+        String mode = (lib == null) ? "TEXT_OS" : KbIndexBackendRegistry.normalizeIndexMode(lib.getIndexMode());
+
+        boolean useText = "TEXT_OS".equals(mode) || "HYBRID".equals(mode);
+        boolean useVector = "VECTOR".equals(mode) || "HYBRID".equals(mode);
+
+        int k = Math.max(1, topK);
+        int candidates = Math.min(Math.max(k, k * Math.max(1, candidateFactor)), Math.max(k, maxCandidates));
+        String index = kbSearchProperties.getOpensearch().getIndex();
+        final Long finalKbId = kbId;
+
+        // 1) 两路并发发起
+        long begin = System.currentTimeMillis();
+        Future<List<KbSearchClient.SearchHit>> textFuture = null;
+        Future<List<KbSearchClient.SearchHit>> vectorFuture = null;
+        if (useText) {
+            textFuture = submit(() -> kbSearchClient.searchChunks(
+                    index, keyword, finalKbId, fileId, 1, candidates).getHits());
+        }
+        if (useVector) {
+            vectorFuture = submit(() -> kbVectorIndexService.search(
+                    finalKbId, fileId, Collections.singletonList(keyword), candidates).get(0));
+        }
+
+        // 2) 按各自截止时间等待（以 begin 为起点，整体耗时 = max 而非 sum）
+        HybridResult result = new HybridResult();
+        List<String> errors = new ArrayList<>();
+
+        List<KbSearchClient.SearchHit> textHits = await(textFuture, begin + textTimeoutMs, "文本检索", errors);
+        List<KbSearchClient.SearchHit> vectorHits = await(vectorFuture, begin + vectorTimeoutMs, "向量检索", errors);
+        result.setTextOk(textHits != null);
+        result.setVectorOk(vectorHits != null);
+
+        if (textHits == null && vectorHits == null) {
+            throw new MyRuntimeException("混合检索失败：" + String.join("；", errors));
+        }
+
+        // 3) 融合 + 去重 + 截断 topK
+        List<KbSearchClient.SearchHit> fused = "WEIGHTED".equalsIgnoreCase(fusion)
+                ? fuseWeighted(textHits, vectorHits)
+                : fuseRrf(textHits, vectorHits);
+        if (fused.size() > k) {
+            fused = new ArrayList<>(fused.subList(0, k));
+        }
+        result.setHits(fused);
+        result.setMessage(errors.isEmpty() ? null : String.join("；", errors));
+
+        log.info("[kb-hybrid] search done, kbId={}, fileId={}, mode={}, fusion={}, textHits={}, vectorHits={}, fused={}, costMs={}",
+                kbId, fileId, mode, fusion,
+                textHits == null ? "failed" : textHits.size(),
+                vectorHits == null ? "failed" : vectorHits.size(),
+                fused.size(), System.currentTimeMillis() - begin);
+        return result;
+    }
+
+    /**
+     * 经 ExecutorService.submit 提交（CompletableFuture.cancel 不会中断执行线程，超时后无法释放线程）。
+     */
+    private Future<List<KbSearchClient.SearchHit>> submit(Callable<List<KbSearchClient.SearchHit>> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            // 线程池打满：该路直接按失败处理，交给降级逻辑
+            CompletableFuture<List<KbSearchClient.SearchHit>> f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+            return f;
+        }
+    }
+
+    /**
+     * 等待某一路结果；失败/超时返回 null 并记录原因（未启用该路时 future 为 null，也返回 null 但不记原因）。
+     */
+    private List<KbSearchClient.SearchHit> await(Future<List<KbSearchClient.SearchHit>> future,
+                                                 long deadline, String name, List<String> errors) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            long waitMs = Math.max(0, deadline - System.currentTimeMillis());
+            List<KbSearchClient.SearchHit> hits = future.get(waitMs, TimeUnit.MILLISECONDS);
+            return hits == null ? Collections.emptyList() : hits;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("[kb-hybrid] {} timeout, degrade to other branch", name);
+            errors.add(name + "超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errors.add(name + "被中断");
+        } catch (Exception e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            log.warn("[kb-hybrid] {} failed, degrade to other branch", name, cause);
+            errors.add(name + "失败: " + cause.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * RRF（Reciprocal Rank Fusion）：score = Σ w / (k + rank)，rank 从 1 开始。
+     * 只依赖排名，不受两路 score 量纲不同的影响。
+     */
+    private List<KbSearchClient.SearchHit> fuseRrf(List<KbSearchClient.SearchHit> textHits,
+                                                   List<KbSearchClient.SearchHit> vectorHits) {
+        Map<String, KbSearchClient.SearchHit> merged = new LinkedHashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        accumulateRrf(textHits, textWeight, merged, scores);
+        accumulateRrf(vectorHits, 1 - textWeight, merged, scores);
+        return sortByScore(merged, scores);
+    }
+
+    private void accumulateRrf(List<KbSearchClient.SearchHit> hits, double weight,
+                               Map<String, KbSearchClient.SearchHit> merged, Map<String, Double> scores) {
+        if (hits == null) return;
+        int rank = 0;
+        for (KbSearchClient.SearchHit h : hits) {
+            if (h.getChunkId() == null) continue;
+            rank++;
+            mergeHit(merged, h);
+            scores.merge(h.getChunkId(), weight / (rrfK + rank), Double::sum);
+        }
+    }
+
+    /**
+     * WEIGHTED：两路 score 各自 min-max 归一化到 [0,1] 后加权求和。
+     */
+    private List<KbSearchClient.SearchHit> fuseWeighted(List<KbSearchClient.SearchHit> textHits,
+                                                        List<KbSearchClient.SearchHit> vectorHits) {
+        Map<String, KbSearchClient.SearchHit> merged = new LinkedHashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+        accumulateWeighted(textHits, textWeight, merged, scores);
+        accumulateWeighted(vectorHits, 1 - textWeight, merged, scores);
+        return sortByScore(merged, scores);
+    }
+
+    private void accumulateWeighted(List<KbSearchClient.SearchHit> hits, double weight,
+                                    Map<String, KbSearchClient.SearchHit> merged, Map<String, Double> scores) {
+        if (CollUtil.isEmpty(hits)) return;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (KbSearchClient.SearchHit h : hits) {
+            double s = h.getScore() == null ? 0 : h.getScore();
+            min = Math.min(min, s);
+            max = Math.max(max, s);
+        }
+        double range = max - min;
+        for (KbSearchClient.SearchHit h : hits) {
+            if (h.getChunkId() == null) continue;
+            double s = h.getScore() == null ? 0 : h.getScore();
+            double norm = range <= 0 ? 1.0 : (s - min) / range;
+            mergeHit(merged, h);
+            scores.merge(h.getChunkId(), weight * norm, Double::sum);
+        }
+    }
+
+    /**
+     * 按 chunkId 去重：优先保留带高亮的文本命中（文本一路先合并）。
+     */
+    private void mergeHit(Map<String, KbSearchClient.SearchHit> merged, KbSearchClient.SearchHit h) {
+        KbSearchClient.SearchHit exist = merged.get(h.getChunkId());
+        if (exist == null) {
+            KbSearchClient.SearchHit copy = new KbSearchClient.SearchHit();
+            copy.setChunkId(h.getChunkId());
+            copy.setKbId(h.getKbId());
+            copy.setFileId(h.getFileId());
+            copy.setChunkIndex(h.getChunkIndex());
+            copy.setHighlight(h.getHighlight());
+            merged.put(h.getChunkId(), copy);
+        } else if (exist.getHighlight() == null && h.getHighlight() != null) {
+            exist.setHighlight(h.getHighlight());
+        }
+    }
+
+    private List<KbSearchClient.SearchHit> sortByScore(Map<String, KbSearchClient.SearchHit> merged,
+                                                       Map<String, Double> scores) {
+        List<KbSearchClient.SearchHit> list = new ArrayList<>(merged.values());
+        for (KbSearchClient.SearchHit h : list) {
+            h.setScore(scores.getOrDefault(h.getChunkId(), 0d));
+        }
+        list.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return list;
+    }
+}
@@ -10,6 +10,10 @@ public class KbJobServiceImpl extends BaseService<KbJob, Long> implements KbJobS
 
     @Autowired
     private KbJobMapper kbJobMapper;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+    @Autowired
+    private KbJobLeaseManager kbJobLeaseManager;
 
     /**
      * 返回当前Service的主表Mapper对象。
@@ -98,9 +102,191 @@ public class KbJobServiceImpl extends BaseService<KbJob, Long> implements KbJobS
         return resultList;
     }
 
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public int requeueDead(Long kbId, List<Long> idList) {
+        // 按 id 查询并锁定仍为 DEAD 的任务：锁定的行即随后被更新的行，
+        // 期间被并发重新排队 / 取消的任务不在其中，其文件状态不会被误置为 PENDING
+        List<KbJob> deadList = new ArrayList<>();
+        if (CollUtil.isEmpty(idList)) {
+            deadList.addAll(kbJobMapper.selectDeadForUpdate(kbId, null));
+        } else {
+            for (List<Long> part : CollUtil.split(idList, 500)) {
+                deadList.addAll(kbJobMapper.selectDeadForUpdate(kbId, part));
+            }
+        }
+        if (CollUtil.isEmpty(deadList)) {
+            return 0;
+        }
+        Long userId = TokenData.takeFromRequest().getUserId();
+        String message = "手动重新排队";
+        int count = 0;
+        for (List<KbJob> part : CollUtil.split(deadList, 500)) {
+            List<Long> ids = part.stream().map(KbJob::getId).collect(Collectors.toList());
+            count += kbJobMapper.requeueDeadByIds(ids, message, userId);
+        }
+        for (KbJob job : deadList) {
+            if (job.getTargetId() == null) {
+                continue;
+            }
+            KbFile f = new KbFile();
+            f.setId(job.getTargetId());
+            f.setUpdateUserId(userId);
+            if ("PARSE_FILE".equals(job.getJobType()) || "RECHUNK_FILE".equals(job.getJobType())) {
+                f.setParseStatus("PENDING");
+                f.setParseProgress(0);
+                f.setParseMessage(message);
+                kbFileMapper.updateParseStatusProgressMessageById(f);
+            } else if ("VECTOR_INDEX".equals(job.getJobType())) {
+                f.setVectorIndexStatus("PENDING");
+                f.setVectorIndexMessage(message);
+                kbFileMapper.updateVectorIndexStatusById(f);
+            }
+        }
+        return count;
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public int cancel(List<Long> idList, String reason) {
+        if (CollUtil.isEmpty(idList)) {
+            return 0;
+        }
+        List<KbJob> jobList = kbJobMapper.selectBatchIds(idList);
+        return this.doCancel(jobList, reason, TokenData.takeFromRequest().getUserId());
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public int cancelByTargetId(Long targetId, String reason) {
+        List<KbJob> jobList = kbJobMapper.selectActiveByTargetId(targetId);
+        return this.doCancel(jobList, reason, TokenData.takeFromRequest().getUserId());
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public Long enqueueReindexKb(Long kbId, String backends) {
+        String jobParam = StrUtil.isBlank(backends) ? null : backends.trim().toUpperCase(Locale.ROOT);
+        // 排队中或执行中的同范围重建任务直接复用，避免同一知识库被两个任务并行重建
+        for (String status : Arrays.asList("RUNNING", "PENDING")) {
+            KbJob filter = new KbJob();
+            filter.setKbId(kbId);
+            filter.setJobType("REINDEX_KB");
+            filter.setStatus(status);
+            for (KbJob active : kbJobMapper.getKbJobList(filter, "id asc")) {
+                if (Objects.equals(jobParam, active.getJobParam())) {
+                    return active.getId();
+                }
+            }
+        }
+        KbJob job = new KbJob();
+        job.setKbId(kbId);
+        job.setJobType("REINDEX_KB");
+        job.setJobParam(jobParam);
+        job.setPriority(KbJobPriority.NORMAL);
+        job.setStatus("PENDING");
+        job.setProgress(0);
+        job.setMessage("排队中");
+        return this.saveNew(job).getId();
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public int enqueueRechunk(Long kbId, List<Long> fileIdList) {
+        List<KbFile> fileList = kbFileMapper.selectByKbIdActive(kbId);
+        if (CollUtil.isNotEmpty(fileIdList)) {
+            Set<Long> idSet = new HashSet<>(fileIdList);
+            fileList.removeIf(f -> !idSet.contains(f.getId()));
+        }
+        Set<Long> activeIds = new HashSet<>(kbJobMapper.selectActiveParseTargetIds(kbId));
+        fileList.removeIf(f -> activeIds.contains(f.getId()));
+        if (CollUtil.isEmpty(fileList)) {
+            return 0;
+        }
+        List<KbJob> jobList = new ArrayList<>(fileList.size());
+        for (KbFile f : fileList) {
+            KbJob job = new KbJob();
+            job.setKbId(kbId);
+            job.setJobType("RECHUNK_FILE");
+            job.setTargetId(f.getId());
+            job.setPriority(KbJobPriority.BULK);
+            job.setStatus("PENDING");
+            job.setProgress(0);
+            job.setMessage("排队中");
+            jobList.add(job);
+        }
+        for (List<KbJob> part : CollUtil.split(jobList, 500)) {
+            this.saveNewBatch(part);
+        }
+        return jobList.size();
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public int archiveFinished(Date cutoff, int batchSize) {
+        List<Long> ids = kbJobMapper.selectArchivableIds(cutoff, batchSize);
+        if (CollUtil.isEmpty(ids)) {
+            return 0;
+        }
+        kbJobMapper.insertHistoryByIds(ids);
+        kbJobMapper.deleteArchivedByIds(ids);
+        return ids.size();
+    }
+
+    private int doCancel(List<KbJob> jobList, String reason, Long userId) {
+        jobList.removeIf(job -> !"PENDING".equals(job.getStatus()) && !"RUNNING".equals(job.getStatus()));
+        if (CollUtil.isEmpty(jobList)) {
+            return 0;
+        }
+        List<Long> ids = jobList.stream().map(KbJob::getId).collect(Collectors.toList());
+        // 先打标记（此后排队任务不可再被领取），再把仍在排队的直接置为 CANCELLED
+        int count = kbJobMapper.markCancelRequestedByIds(ids, userId);
+        kbJobMapper.cancelPendingByIds(ids, reason, userId);
+        Set<Long> cancelledIds = new HashSet<>();
+        for (KbJob job : kbJobMapper.selectBatchIds(ids)) {
+            if ("CANCELLED".equals(job.getStatus())) {
+                cancelledIds.add(job.getId());
+            }
+        }
+        for (KbJob job : jobList) {
+            if (job.getTargetId() == null || !cancelledIds.contains(job.getId())) {
+                continue;
+            }
+            KbFile f = new KbFile();
+            f.setId(job.getTargetId());
+            f.setUpdateUserId(userId);
+            if ("PARSE_FILE".equals(job.getJobType()) || "RECHUNK_FILE".equals(job.getJobType())) {
+                f.setParseStatus("CANCELLED");
+                f.setParseProgress(0);
+                f.setParseMessage(reason);
+                kbFileMapper.updateParseStatusProgressMessageById(f);
+            } else if ("VECTOR_INDEX".equals(job.getJobType())) {
+                f.setVectorIndexStatus("CANCELLED");
+                f.setVectorIndexMessage(reason);
+                kbFileMapper.updateVectorIndexStatusById(f);
+            }
+        }
+        // 执行中的任务：广播给持有节点（事务提交前广播也无妨，节点侧只改内存标记，心跳会按库中标记兜底）
+        List<Long> runningIds = new ArrayList<>(ids);
+        runningIds.removeAll(cancelledIds);
+        if (!runningIds.isEmpty()) {
+            kbJobLeaseManager.publishCancel(runningIds);
+        }
+        return count;
+    }
+
     private KbJob buildDefaultValue(KbJob kbJob) {
         MyModelUtil.fillCommonsForInsert(kbJob);
         kbJob.setDeletedFlag(GlobalDeletedFlag.NORMAL);
+        if (!KbJobPriority.isValid(kbJob.getPriority())) {
+            kbJob.setPriority(KbJobPriority.NORMAL);
+        }
+        if (kbJob.getAttemptCount() == null) {
+            kbJob.setAttemptCount(0);
+        }
+        if (kbJob.getCancelRequested() == null) {
+            kbJob.setCancelRequested(0);
+        }
         return kbJob;
     }
 }
@@ -10,6 +10,15 @@ public class KbVectorIndexServiceImpl implements KbVectorIndexService {
     private KbChunkMapper kbChunkMapper;
     @Autowired
     private KbVectorClient kbVectorClient;
+    @Autowired
+    private KbJobService kbJobService;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+    @Autowired
+    private RedissonClient redissonClient;
+
+    private static final long SYSTEM_USER_ID = 0L;
+    private static final String ENQUEUE_LOCK_PREFIX = "kb:vector:enqueue:";
 
     /**
      * payload保护：最大chunks数量（默认300）
@@ -112,7 +121,8 @@ public class KbVectorIndexServiceImpl implements KbVectorIndexService {
 
         log.info("[kb-vector] upsertFile begin, kbId={}, fileId={}, chunkCount={}", kbId, fileId, items.size());
 
-        // 5) 调 Python
+        // 5) 调 Python（发送前检查取消 / 调用方已超时放弃）
+        KbJobCancellation.checkpoint();
         KbVectorReindexFileResp resp = kbVectorClient.reindexFile(req);
         if (resp == null || resp.getSuccess() == null || !resp.getSuccess()) {
             String msg = (resp == null) ? "python resp null" : resp.getMessage();
@@ -122,6 +132,109 @@ public class KbVectorIndexServiceImpl implements KbVectorIndexService {
         log.info("[kb-vector] upsertFile ok, kbId={}, fileId={}, upsertCount={}", kbId, fileId, resp.getUpsertCount());
     }
 
+    @Override
+    public Long enqueueFile(Long fileId) {
+        KbFile file = kbFileService.getById(fileId);
+        if (file == null) {
+            throw new RuntimeException("文件不存在 fileId=" + fileId);
+        }
+
+        // 合并重复入队：已有排队中的任务时直接复用。查询与插入按文件加锁，
+        // 并发入队（重新解析 + 手动重建、复用失败回退）不会各自插入一条任务
+        RLock lock = redissonClient.getLock(ENQUEUE_LOCK_PREFIX + fileId);
+        try {
+            if (!lock.tryLock(5, 30, TimeUnit.SECONDS)) {
+                throw new RuntimeException("向量索引入队繁忙，请稍后重试 fileId=" + fileId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("向量索引入队被中断 fileId=" + fileId, e);
+        }
+        List<KbJob> pending;
+        Long jobId;
+        try {
+            KbJob filter = new KbJob();
+            filter.setJobType("VECTOR_INDEX");
+            filter.setTargetId(fileId);
+            filter.setStatus("PENDING");
+            pending = kbJobService.getKbJobList(filter, "id asc");
+
+            if (CollUtil.isNotEmpty(pending)) {
+                jobId = pending.get(0).getId();
+            } else {
+                KbJob job = new KbJob();
+                job.setKbId(file.getKbId());
+                job.setJobType("VECTOR_INDEX");
+                job.setTargetId(fileId);
+                job.setStatus("PENDING");
+                job.setProgress(0);
+                jobId = kbJobService.saveNew(job).getId();
+            }
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+
+        KbFile uf = new KbFile();
+        uf.setId(fileId);
+        uf.setVectorIndexStatus("PENDING");
+        uf.setVectorIndexMessage("向量索引排队中");
+        uf.setUpdateUserId(SYSTEM_USER_ID);
+        kbFileMapper.updateVectorIndexStatusById(uf);
+
+        log.info("[kb-vector] enqueue VECTOR_INDEX, kbId={}, fileId={}, jobId={}, merged={}",
+                file.getKbId(), fileId, jobId, CollUtil.isNotEmpty(pending));
+        return jobId;
+    }
+
+    @Override
+    public boolean cloneFile(Long sourceFileId, Long fileId) {
+        if (!kbVectorClient.supportsCloneFile()) {
+            return false;
+        }
+        KbFile file = kbFileService.getById(fileId);
+        KbLibrary lib = file == null ? null : kbLibraryService.getById(file.getKbId());
+        if (lib == null) {
+            return false;
+        }
+        List<KbChunk> sourceChunks = kbChunkMapper.selectIdIndexByFileIdActive(sourceFileId);
+        List<KbChunk> targetChunks = kbChunkMapper.selectIdIndexByFileIdActive(fileId);
+        if (CollUtil.isEmpty(targetChunks) || sourceChunks.size() != targetChunks.size()) {
+            // 源文件在复制之后又被重新解析等情况：分段无法一一对应，改为常规写入
+            return false;
+        }
+        List<KbVectorCloneFileReq.ChunkMapping> mappings = new ArrayList<>(targetChunks.size());
+        for (int i = 0; i < targetChunks.size(); i++) {
+            KbChunk src = sourceChunks.get(i);
+            KbChunk dst = targetChunks.get(i);
+            if (!Objects.equals(src.getChunkIndex(), dst.getChunkIndex())) {
+                return false;
+            }
+            KbVectorCloneFileReq.ChunkMapping m = new KbVectorCloneFileReq.ChunkMapping();
+            m.setSourceChunkId(src.getId());
+            m.setChunkId(dst.getId());
+            m.setChunkIndex(dst.getChunkIndex());
+            mappings.add(m);
+        }
+        KbVectorCloneFileReq req = new KbVectorCloneFileReq();
+        req.setKbId(file.getKbId());
+        req.setSourceFileId(sourceFileId);
+        req.setFileId(fileId);
+        req.setVectorIndexConfig(lib.getVectorIndexConfig());
+        req.setChunks(mappings);
+
+        KbVectorReindexFileResp resp = kbVectorClient.cloneFile(req);
+        if (resp == null || !Boolean.TRUE.equals(resp.getSuccess())) {
+            log.warn("[kb-vector] cloneFile failed, sourceFileId={}, fileId={}, msg={}",
+                    sourceFileId, fileId, resp == null ? null : resp.getMessage());
+            return false;
+        }
+        log.info("[kb-vector] cloneFile done, kbId={}, sourceFileId={}, fileId={}, chunks={}, upsertCount={}",
+                file.getKbId(), sourceFileId, fileId, mappings.size(), resp.getUpsertCount());
+        return true;
+    }
+
     @Override
     public void reindexKb(Long kbId) {
         log.info("[kb-vector] reindexKb begin, kbId={}", kbId);
@@ -152,4 +265,52 @@ public class KbVectorIndexServiceImpl implements KbVectorIndexService {
 
         log.info("[kb-vector] reindexKb done, kbId={}, fileTotal={}, eligibleByParseStatus={}", kbId, total, eligible);
     }
+
+    @Override
+    public List<List<KbSearchClient.SearchHit>> search(Long kbId, Long fileId, List<String> queries, int topK) {
+        if (CollUtil.isEmpty(queries)) {
+            throw new RuntimeException("queries不能为空");
+        }
+        if (kbId == null) {
+            if (fileId == null) {
+                throw new RuntimeException("kbId与fileId不能同时为空");
+            }
+            KbFile file = kbFileService.getById(fileId);
+            if (file == null) {
+                throw new RuntimeException("文件不存在 fileId=" + fileId);
+            }
+            kbId = file.getKbId();
+        }
+        KbLibrary lib = kbLibraryService.getById(kbId);
+        if (lib == null) {
+            throw new RuntimeException("知识库不存在 kbId=" + kbId);
+        }
+
+        KbVectorSearchReq req = new KbVectorSearchReq();
+        req.setKbId(kbId);
+        req.setFileId(fileId);
+        req.setVectorIndexConfig(lib.getVectorIndexConfig());
+        req.setTopK(Math.max(1, topK));
+        req.setQueries(queries);
+
+        KbVectorSearchResp resp = kbVectorClient.searchByText(req);
+
+        List<List<KbSearchClient.SearchHit>> result = new ArrayList<>(resp.getResults().size());
+        for (KbVectorSearchResp.QueryResult qr : resp.getResults()) {
+            List<KbSearchClient.SearchHit> hits = new ArrayList<>();
+            if (qr != null && qr.getHits() != null) {
+                for (KbVectorSearchResp.Hit h : qr.getHits()) {
+                    KbSearchClient.SearchHit hit = new KbSearchClient.SearchHit();
+                    hit.setChunkId(h.getChunkId() == null ? null : String.valueOf(h.getChunkId()));
+                    hit.setKbId(h.getKbId() == null ? null : String.valueOf(h.getKbId()));
+                    hit.setFileId(h.getFileId() == null ? null : String.valueOf(h.getFileId()));
+                    hit.setChunkIndex(h.getChunkIndex());
+                    hit.setScore(h.getScore());
+                    hits.add(hit);
+                }
+            }
+            result.add(hits);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,89 @@
+/**
+ * KB 索引后端（索引同步的扩展点）。
+ *
+ * <p>每个后端对应一种索引存储（TEXT：OpenSearch 全文索引；VECTOR：向量库），
+ * 由 {@link KbIndexBackendRegistry} 按知识库 INDEX_MODE 选出启用的后端并发执行。</p>
+ *
+ * <p>约定：
+ * <ul>
+ *   <li>indexFile / indexFileFrom 需幂等（同一 chunkId 重复写入覆盖），以便失败后单独重试该后端、库级重建任务从断点续跑。</li>
+ *   <li>每个后端自行在 ic_kb_file 上记录本后端的状态（见 {@link #recordFileStatus}），互不覆盖。</li>
+ *   <li>超时由注册中心统一控制（{@link #timeoutMs()}），后端内部无需再做整体超时。</li>
+ * </ul>
+ */
+public interface KbIndexBackend {
+
+    /** 后端名称（TEXT / VECTOR），用于日志、结果聚合与按名重试。 */
+    String name();
+
+    /**
+     * 是否在指定索引模式下启用。
+     *
+     * @param indexMode 规范化后的 INDEX_MODE（TEXT_OS / VECTOR / HYBRID）
+     */
+    boolean supports(String indexMode);
+
+    /** 文件级同步的超时（毫秒）。 */
+    long timeoutMs();
+
+    /** 文件级同步：将该文件的有效 chunk 写入/覆盖到本后端。 */
+    void indexFile(Long fileId);
+
+    /**
+     * 可续跑的文件级写入（库级重建任务使用）：只写 chunkIndex 大于 afterChunkIndex 的 chunk，
+     * 每写完一批回调最后写入的 chunkIndex。默认整文件执行 {@link #indexFile}（续跑时整文件重做，依赖幂等）。
+     */
+    default void indexFileFrom(Long fileId, int afterChunkIndex, IntConsumer checkpoint) {
+        indexFile(fileId);
+    }
+
+    /** 库级重建开始前清旧（按文件写入时自行清旧的后端无需实现）。 */
+    default void clearKb(Long kbId) {
+    }
+
+    /** 库级重建完成后的收尾（如刷新索引使结果立即可搜）。 */
+    default void finishKb(Long kbId) {
+    }
+
+    /**
+     * 记录文件在本后端的索引状态。
+     *
+     * @param fileId  文件Id
+     * @param status  INDEXING / SUCCESS / FAILED / PENDING
+     * @param message 说明（失败原因等，可为空）
+     */
+    void recordFileStatus(Long fileId, String status, String message);
+
+    /** 文件在本后端是否已同步成功（重试时跳过成功的后端）。 */
+    boolean isFileSucceeded(KbFile file);
+
+    /**
+     * 解析任务内是否推迟执行（推迟的后端不在解析线程内同步，而是由 {@link #enqueueFile} 入队异步执行）。
+     */
+    default boolean deferredInParse() {
+        return false;
+    }
+
+    /** 推迟执行时的入队方法（默认直接同步执行）。 */
+    default void enqueueFile(Long fileId) {
+        indexFile(fileId);
+    }
+
+    /**
+     * 从内容相同的源文件复制文档到目标文件（目标文件的分段已按 chunkIndex 从源文件复制）。
+     * 用于重复上传时跳过 embedding 等昂贵计算；默认不支持，返回 false 由调用方按常规方式写入。
+     *
+     * @param sourceFileId 源文件Id（本后端状态为成功）
+     * @param fileId       目标文件Id
+     * @return 复制成功返回 true
+     */
+    default boolean cloneFile(Long sourceFileId, Long fileId) {
+        return false;
+    }
+
+    /**
+     * 删除该文件在本后端的全部文档（任务取消后清理部分写入）。默认不支持删除，不做处理。
+     */
+    default void deleteFile(Long fileId) {
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * KB 索引后端注册中心：按知识库 INDEX_MODE 选出启用的 {@link KbIndexBackend}，并发分发索引同步。
+ *
+ * <p>职责：
+ * <ul>
+ *   <li>文件级同步：启用的后端并发执行，各自独立超时（以同一起点计算截止时间），
+ *       整体耗时约等于最慢的后端而不是各后端之和。</li>
+ *   <li>每个后端的成功/失败分别记录在 ic_kb_file 上（TEXT_INDEX_* / VECTOR_INDEX_*）。</li>
+ *   <li>重试只执行状态不是 SUCCESS 的后端，已成功的后端不会重做。</li>
+ *   <li>库级重建：任务化执行（REINDEX_KB，见 KbReindexJobTimer），本类只提供后端选取（{@link #backendsFor}）。</li>
+ *   <li>取消：后端在同步线程池中执行时沿用调用方任务的取消检查（{@link KbJobCancellation#wrap}），
+ *       取消后由 {@link #purgeFile} 清理已写入的文档。</li>
+ *   <li>超时：等待超时的后端先置放弃标记再中断线程，后端在下一个检查点（批量写入之间）停止，
+ *       不会在文件已记录为 FAILED 之后继续写入后续批次。</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class KbIndexBackendRegistry {
+
+    @Autowired
+    private List<KbIndexBackend> backends;
+    @Autowired
+    private KbLibraryService kbLibraryService;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+
+    @Value("${kb.index.sync.poolSize:8}")
+    private int poolSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = ExecutorBuilder.create()
+                .setCorePoolSize(poolSize)
+                .setMaxPoolSize(poolSize)
+                .setWorkQueue(new LinkedBlockingQueue<>(poolSize * 16))
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("kb-index-sync-").build())
+                .build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 文件级同步：并发执行该文件所属知识库启用的全部后端。
+     *
+     * @param file          文件（需含 id / kbId）
+     * @param includeDeferred 是否同步执行“解析内推迟”的后端；false 时这些后端只记录在结果的 deferred 中，由调用方入队
+     * @return 各后端执行结果
+     */
+    public SyncReport syncFile(KbFile file, boolean includeDeferred) {
+        List<KbIndexBackend> targets = new ArrayList<>();
+        List<KbIndexBackend> deferred = new ArrayList<>();
+        for (KbIndexBackend b : enabledBackends(file.getKbId())) {
+            if (!includeDeferred && b.deferredInParse()) {
+                deferred.add(b);
+            } else {
+                targets.add(b);
+            }
+        }
+        SyncReport report = runFile(file.getId(), targets);
+        for (KbIndexBackend b : deferred) {
+            report.getDeferred().add(b.name());
+        }
+        return report;
+    }
+
+    /**
+     * 文件级重试：只执行状态不是 SUCCESS 的启用后端。
+     *
+     * @param fileId 文件Id
+     * @return 各后端执行结果（已成功而跳过的后端记录在 skipped 中）
+     */
+    public SyncReport retryFailed(Long fileId) {
+        KbFile file = kbFileMapper.selectById(fileId);
+        if (file == null) {
+            throw new MyRuntimeException("文件不存在 fileId=" + fileId);
+        }
+        List<KbIndexBackend> targets = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (KbIndexBackend b : enabledBackends(file.getKbId())) {
+            if (b.isFileSucceeded(file)) {
+                skipped.add(b.name());
+            } else {
+                targets.add(b);
+            }
+        }
+        SyncReport report = runFile(fileId, targets);
+        report.getSkipped().addAll(skipped);
+        return report;
+    }
+
+    /**
+     * 推迟后端入队（解析任务在文件置为 SUCCESS 后调用）。
+     */
+    public void enqueueDeferred(Long fileId, SyncReport report) {
+        for (KbIndexBackend b : backends) {
+            if (!report.getDeferred().contains(b.name())) continue;
+            try {
+                b.enqueueFile(fileId);
+            } catch (Exception e) {
+                log.error("[kb-index] {} enqueue failed, fileId={}", b.name(), fileId, e);
+                b.recordFileStatus(fileId, "FAILED", "入队失败: " + safeErr(e));
+            }
+        }
+    }
+
+    /**
+     * 推迟后端复用源文件的文档（重复上传复用分段后调用）：源文件在该后端已成功且后端支持复制时直接复制，
+     * 否则按常规入队。
+     *
+     * @param source 内容相同的源文件
+     * @param fileId 目标文件Id
+     * @param report 解析内同步结果（取其中的 deferred）
+     */
+    public void cloneDeferred(KbFile source, Long fileId, SyncReport report) {
+        for (KbIndexBackend b : backends) {
+            if (!report.getDeferred().contains(b.name())) continue;
+            try {
+                if (b.isFileSucceeded(source) && b.cloneFile(source.getId(), fileId)) {
+                    b.recordFileStatus(fileId, "SUCCESS", "复用相同内容文件的索引");
+                    continue;
+                }
+            } catch (Exception e) {
+                log.warn("[kb-index] {} clone failed, fallback to enqueue, sourceFileId={}, fileId={}",
+                        b.name(), source.getId(), fileId, e);
+            }
+            try {
+                b.enqueueFile(fileId);
+            } catch (Exception e) {
+                log.error("[kb-index] {} enqueue failed, fileId={}", b.name(), fileId, e);
+                b.recordFileStatus(fileId, "FAILED", "入队失败: " + safeErr(e));
+            }
+        }
+    }
+
+    /**
+     * 选取后端：names 为空时取知识库 INDEX_MODE 启用的后端；否则按名称选取（不受 INDEX_MODE 限制，对应指定后端的手动重建）。
+     *
+     * @param kbId  知识库Id
+     * @param names 后端名称（TEXT / VECTOR），可为空
+     */
+    public List<KbIndexBackend> backendsFor(Long kbId, Collection<String> names) {
+        if (CollUtil.isEmpty(names)) {
+            return enabledBackends(kbId);
+        }
+        List<KbIndexBackend> list = new ArrayList<>();
+        for (KbIndexBackend b : backends) {
+            if (names.contains(b.name())) {
+                list.add(b);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 清理文件在全部后端的文档（任务取消后调用；单个后端失败只记录日志）。
+     */
+    public void purgeFile(Long fileId) {
+        for (KbIndexBackend b : backends) {
+            try {
+                b.deleteFile(fileId);
+            } catch (Exception e) {
+                log.error("[kb-index] {} purge failed, fileId={}", b.name(), fileId, e);
+            }
+        }
+    }
+
+    private SyncReport runFile(Long fileId, List<KbIndexBackend> targets) {
+        long begin = System.currentTimeMillis();
+        Map<KbIndexBackend, Future<?>> futures = new LinkedHashMap<>();
+        Map<KbIndexBackend, AtomicBoolean> abandonFlags = new HashMap<>();
+        for (KbIndexBackend b : targets) {
+            b.recordFileStatus(fileId, "INDEXING", null);
+            AtomicBoolean abandoned = new AtomicBoolean();
+            abandonFlags.put(b, abandoned);
+            futures.put(b, submit(() -> b.indexFile(fileId), abandoned));
+        }
+
+        SyncReport report = new SyncReport();
+        for (Map.Entry<KbIndexBackend, Future<?>> e : futures.entrySet()) {
+            KbIndexBackend b = e.getKey();
+            String err = await(e.getValue(), begin + b.timeoutMs(), abandonFlags.get(b));
+            if (err == null) {
+                b.recordFileStatus(fileId, "SUCCESS", null);
+            } else {
+                log.warn("[kb-index] {} index failed, fileId={}, err={}", b.name(), fileId, err);
+                b.recordFileStatus(fileId, "FAILED", err);
+            }
+            report.record(b.name(), err);
+        }
+        log.info("[kb-index] syncFile done, fileId={}, backends={}, ok={}, err={}, costMs={}",
+                fileId, futures.size(), report.isOk(), report.getErrMsg(), System.currentTimeMillis() - begin);
+        return report;
+    }
+
+    private Future<?> submit(Runnable task, AtomicBoolean abandoned) {
+        try {
+            return executor.submit(KbJobCancellation.wrap(task, abandoned::get));
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+            return f;
+        }
+    }
+
+    /**
+     * 等待某个后端完成；成功返回 null，失败/超时返回原因。
+     * 超时时置放弃标记（后端在下一个检查点停止），再中断执行线程。
+     */
+    private String await(Future<?> future, long deadline, AtomicBoolean abandoned) {
+        try {
+            long waitMs = Math.max(0, deadline - System.currentTimeMillis());
+            future.get(waitMs, TimeUnit.MILLISECONDS);
+            return null;
+        } catch (TimeoutException e) {
+            abandoned.set(true);
+            future.cancel(true);
+            return "超时";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "被中断";
+        } catch (Exception e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            String msg = cause.getMessage();
+            if (msg == null || msg.trim().isEmpty()) msg = cause.getClass().getSimpleName();
+            if (msg.length() > 500) msg = msg.substring(0, 500);
+            return msg;
+        }
+    }
+
+    private List<KbIndexBackend> enabledBackends(Long kbId) {
+        KbLibrary lib = kbLibraryService.getById(kbId);
+        String mode = (lib == null) ? "TEXT_OS" : normalizeIndexMode(lib.getIndexMode());
+        List<KbIndexBackend> list = new ArrayList<>();
+        for (KbIndexBackend b : backends) {
+            if (b.supports(mode)) {
+                list.add(b);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 规范化索引模式（兼容旧值 BM25 / EMBEDDING，空值与未知值按 TEXT_OS）。
+     */
+    public static String normalizeIndexMode(String m) {
+        if (m == null || m.trim().isEmpty()) return "TEXT_OS";
+        m = m.trim().toUpperCase(Locale.ROOT);
+        switch (m) {
+            case "BM25": return "TEXT_OS";
+            case "EMBEDDING": return "VECTOR";
+            case "TEXT_OS":
+            case "VECTOR":
+            case "HYBRID": return m;
+            default: return "TEXT_OS";
+        }
+    }
+
+    private String safeErr(Exception e) {
+        String msg = e.getMessage();
+        if (msg == null || msg.trim().isEmpty()) msg = e.getClass().getSimpleName();
+        if (msg.length() > 500) msg = msg.substring(0, 500);
+        return msg;
+    }
+
+    /**
+     * 分发结果：按后端名记录 SUCCESS / 失败原因。
+     */
+    @Data
+    public static class SyncReport {
+        /** 后端名 -> SUCCESS 或失败原因。 */
+        private Map<String, String> results = new LinkedHashMap<>();
+        /** 推迟执行（入队）的后端。 */
+        private List<String> deferred = new ArrayList<>();
+        /** 已成功而跳过的后端（重试场景）。 */
+        private List<String> skipped = new ArrayList<>();
+        private boolean ok = true;
+        /** 汇总失败原因（"TEXT: xxx；VECTOR: yyy"）。 */
+        private String errMsg;
+
+        void record(String backend, String err) {
+            if (err == null) {
+                results.put(backend, "SUCCESS");
+                return;
+            }
+            results.put(backend, err);
+            ok = false;
+            String part = backend + ": " + err;
+            errMsg = (errMsg == null) ? part : errMsg + "；" + part;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * 文本索引后端（OpenSearch BM25），对应 INDEX_MODE = TEXT_OS / HYBRID。
+ */
+@Component
+@RequiredArgsConstructor
+public class KbTextIndexBackend implements KbIndexBackend {
+
+    private static final long SYSTEM_USER_ID = 0L;
+
+    private final KbChunkIndexService kbChunkIndexService;
+    private final KbFileMapper kbFileMapper;
+
+    @Value("${kb.index.text.timeoutMs:60000}")
+    private long timeoutMs;
+
+    @Override
+    public String name() {
+        return "TEXT";
+    }
+
+    @Override
+    public boolean supports(String indexMode) {
+        return "TEXT_OS".equals(indexMode) || "HYBRID".equals(indexMode);
+    }
+
+    @Override
+    public long timeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public void indexFile(Long fileId) {
+        kbChunkIndexService.reindexFile(fileId);
+    }
+
+    @Override
+    public void indexFileFrom(Long fileId, int afterChunkIndex, IntConsumer checkpoint) {
+        kbChunkIndexService.reindexFileFrom(fileId, afterChunkIndex, checkpoint);
+    }
+
+    @Override
+    public void clearKb(Long kbId) {
+        kbChunkIndexService.deleteKb(kbId);
+    }
+
+    @Override
+    public void finishKb(Long kbId) {
+        kbChunkIndexService.refresh();
+    }
+
+    @Override
+    public void deleteFile(Long fileId) {
+        kbChunkIndexService.deleteFile(fileId);
+    }
+
+    @Override
+    public void recordFileStatus(Long fileId, String status, String message) {
+        KbFile f = new KbFile();
+        f.setId(fileId);
+        f.setTextIndexStatus(status);
+        f.setTextIndexMessage(message == null ? "" : message);
+        if ("SUCCESS".equals(status)) {
+            f.setTextIndexedTime(new Date());
+        }
+        f.setUpdateUserId(SYSTEM_USER_ID);
+        kbFileMapper.updateTextIndexStatusById(f);
+    }
+
+    @Override
+    public boolean isFileSucceeded(KbFile file) {
+        return "SUCCESS".equals(file.getTextIndexStatus());
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * 向量索引后端，对应 INDEX_MODE = VECTOR / HYBRID。
+ *
+ * <p>解析任务与库级重建任务内推迟执行：只入队 VECTOR_INDEX 任务，由 KbVectorIndexJobTimer 按限流速率异步写入；
+ * 文件级手动重建/重试时由注册中心直接同步调用。</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class KbVectorIndexBackend implements KbIndexBackend {
+
+    private static final long SYSTEM_USER_ID = 0L;
+
+    private final KbVectorIndexService kbVectorIndexService;
+    private final KbFileMapper kbFileMapper;
+
+    @Value("${kb.index.vector.timeoutMs:300000}")
+    private long timeoutMs;
+
+    @Override
+    public String name() {
+        return "VECTOR";
+    }
+
+    @Override
+    public boolean supports(String indexMode) {
+        return "VECTOR".equals(indexMode) || "HYBRID".equals(indexMode);
+    }
+
+    @Override
+    public long timeoutMs() {
+        return timeoutMs;
+    }
+
+    @Override
+    public void indexFile(Long fileId) {
+        kbVectorIndexService.upsertFile(fileId);
+    }
+
+    @Override
+    public void recordFileStatus(Long fileId, String status, String message) {
+        KbFile f = new KbFile();
+        f.setId(fileId);
+        f.setVectorIndexStatus(status);
+        f.setVectorIndexMessage(message == null ? "" : message);
+        if ("SUCCESS".equals(status)) {
+            f.setVectorIndexedTime(new Date());
+        }
+        f.setUpdateUserId(SYSTEM_USER_ID);
+        kbFileMapper.updateVectorIndexStatusById(f);
+    }
+
+    @Override
+    public boolean isFileSucceeded(KbFile file) {
+        return "SUCCESS".equals(file.getVectorIndexStatus());
+    }
+
+    @Override
+    public boolean deferredInParse() {
+        return true;
+    }
+
+    @Override
+    public void enqueueFile(Long fileId) {
+        kbVectorIndexService.enqueueFile(fileId);
+    }
+
+    @Override
+    public boolean cloneFile(Long sourceFileId, Long fileId) {
+        return kbVectorIndexService.cloneFile(sourceFileId, fileId);
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * KB 上传准入控制（解析队列背压）。
+ *
+ * <p>上传在写盘、落库之前先检查解析队列积压与磁盘余量：
+ * <ul>
+ *   <li>ACCEPT：正常入队（交互式通道）。</li>
+ *   <li>DEFER：积压超过软阈值（kb.admission.deferPendingJobs / deferPendingBytes），仍接收文件，
+ *       但解析任务进入批量通道（{@link KbJobPriority#BULK}），不与交互式上传争抢工作线程。</li>
+ *   <li>REJECT：积压超过硬阈值（kb.admission.maxPendingJobs / maxPendingBytes）或磁盘可用空间低于
+ *       kb.admission.minFreeDiskBytes，拒绝上传；调用方返回 HTTP 429 + Retry-After（按估算排空时间给出）。</li>
+ * </ul>
+ *
+ * <p>队列统计（聚合查询 + 磁盘余量）按 kb.admission.statsCacheMs 缓存，避免每次上传都做聚合；
+ * 缓存期间的少量超额可以接受，阈值本身是“软上限”。</p>
+ */
+@Component
+@Slf4j
+public class KbJobAdmissionPolicy {
+
+    public static final String ACCEPT = "ACCEPT";
+    public static final String DEFER = "DEFER";
+    public static final String REJECT = "REJECT";
+
+    @Value("${kb.admission.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 硬阈值：排队 + 执行中解析任务数
+     */
+    @Value("${kb.admission.maxPendingJobs:2000}")
+    private long maxPendingJobs;
+
+    /**
+     * 硬阈值：排队 + 执行中文件总字节数（默认 10GB）
+     */
+    @Value("${kb.admission.maxPendingBytes:10737418240}")
+    private long maxPendingBytes;
+
+    /**
+     * 软阈值：超过后新上传进入批量通道（&lt;=0 表示不降级）
+     */
+    @Value("${kb.admission.deferPendingJobs:500}")
+    private long deferPendingJobs;
+
+    @Value("${kb.admission.deferPendingBytes:2147483648}")
+    private long deferPendingBytes;
+
+    /**
+     * 存储目录所在磁盘至少保留的可用字节数（默认 5GB）
+     */
+    @Value("${kb.admission.minFreeDiskBytes:5368709120}")
+    private long minFreeDiskBytes;
+
+    /**
+     * 估算排空速率使用的统计窗口（秒）
+     */
+    @Value("${kb.admission.rateWindowSeconds:600}")
+    private long rateWindowSeconds;
+
+    @Value("${kb.admission.statsCacheMs:2000}")
+    private long statsCacheMs;
+
+    /**
+     * Retry-After 上下限（秒）
+     */
+    @Value("${kb.admission.minRetryAfterSeconds:5}")
+    private long minRetryAfterSeconds;
+
+    @Value("${kb.admission.maxRetryAfterSeconds:3600}")
+    private long maxRetryAfterSeconds;
+
+    @Value("${kb.storage.localBaseDir}")
+    private String kbLocalBaseDir;
+
+    @Autowired
+    private KbJobMapper kbJobMapper;
+
+    private volatile KbQueueStats cachedStats;
+    private volatile long cachedAt;
+
+    /**
+     * 准入判定结果。
+     */
+    @Data
+    public static class Decision {
+        /** ACCEPT / DEFER / REJECT */
+        private String outcome;
+        /** REJECT 时建议的重试等待秒数 */
+        private Long retryAfterSeconds;
+        /** 判定原因（DEFER / REJECT 时给出） */
+        private String reason;
+    }
+
+    /**
+     * 对一次上传做准入判定。
+     *
+     * @param fileSize 上传文件字节数
+     * @return 判定结果
+     */
+    public Decision admit(long fileSize) {
+        Decision d = new Decision();
+        d.setOutcome(ACCEPT);
+        if (!enabled) {
+            return d;
+        }
+        KbQueueStats stats;
+        try {
+            stats = queueStats();
+        } catch (Exception e) {
+            // 统计失败不阻塞上传（准入只是保护措施）
+            log.warn("[kb-admission] queue stats failed, accept by default", e);
+            return d;
+        }
+        long jobs = stats.getPendingJobs() + stats.getRunningJobs();
+        long bytes = stats.getPendingBytes() + fileSize;
+
+        if (stats.getFreeDiskBytes() != null && stats.getFreeDiskBytes() - fileSize < minFreeDiskBytes) {
+            return reject(d, stats, "存储磁盘可用空间不足");
+        }
+        if (jobs >= maxPendingJobs) {
+            return reject(d, stats, "解析队列繁忙（" + jobs + " 个任务排队）");
+        }
+        if (bytes > maxPendingBytes) {
+            return reject(d, stats, "解析队列繁忙（待解析 " + (bytes >> 20) + "MB）");
+        }
+        if ((deferPendingJobs > 0 && jobs >= deferPendingJobs)
+                || (deferPendingBytes > 0 && bytes > deferPendingBytes)) {
+            d.setOutcome(DEFER);
+            d.setReason("解析队列积压，已进入后台批量通道");
+        }
+        return d;
+    }
+
+    /**
+     * 当前解析队列统计（带短时缓存）。
+     */
+    public KbQueueStats queueStats() {
+        KbQueueStats stats = cachedStats;
+        long now = System.currentTimeMillis();
+        if (stats != null && now - cachedAt < statsCacheMs) {
+            return stats;
+        }
+        stats = kbJobMapper.selectParseQueueStats();
+        if (stats == null) {
+            stats = new KbQueueStats();
+        }
+        stats.setPendingJobs(stats.getPendingJobs() == null ? 0L : stats.getPendingJobs());
+        stats.setRunningJobs(stats.getRunningJobs() == null ? 0L : stats.getRunningJobs());
+        stats.setPendingBytes(stats.getPendingBytes() == null ? 0L : stats.getPendingBytes());
+        stats.setFreeDiskBytes(freeDiskBytes());
+
+        Long finished = kbJobMapper.countParseFinishedSince(new Date(now - rateWindowSeconds * 1000));
+        stats.setFinishedInWindow(finished == null ? 0L : finished);
+        stats.setWindowSeconds(rateWindowSeconds);
+        long backlog = stats.getPendingJobs() + stats.getRunningJobs();
+        if (backlog == 0) {
+            stats.setEstimatedDrainSeconds(0L);
+        } else if (stats.getFinishedInWindow() > 0) {
+            stats.setEstimatedDrainSeconds(backlog * rateWindowSeconds / stats.getFinishedInWindow());
+        }
+
+        cachedStats = stats;
+        cachedAt = now;
+        return stats;
+    }
+
+    private Decision reject(Decision d, KbQueueStats stats, String reason) {
+        Long drain = stats.getEstimatedDrainSeconds();
+        // 无完成记录（无法估算）时按上限退让
+        long retryAfter = drain == null ? maxRetryAfterSeconds : drain;
+        retryAfter = Math.max(minRetryAfterSeconds, Math.min(maxRetryAfterSeconds, retryAfter));
+        d.setOutcome(REJECT);
+        d.setRetryAfterSeconds(retryAfter);
+        d.setReason(reason + "，请 " + retryAfter + " 秒后重试");
+        log.warn("[kb-admission] upload rejected, reason={}, pendingJobs={}, runningJobs={}, pendingBytes={}, freeDiskBytes={}",
+                reason, stats.getPendingJobs(), stats.getRunningJobs(), stats.getPendingBytes(), stats.getFreeDiskBytes());
+        return d;
+    }
+
+    private Long freeDiskBytes() {
+        try {
+            Path base = Paths.get(kbLocalBaseDir).toAbsolutePath();
+            // 目录尚未创建时按其最近的已存在父目录所在磁盘计算
+            while (base != null && !Files.exists(base)) {
+                base = base.getParent();
+            }
+            return base == null ? null : Files.getFileStore(base).getUsableSpace();
+        } catch (IOException e) {
+            log.warn("[kb-admission] usable space unavailable, baseDir={}", kbLocalBaseDir, e);
+            return null;
+        }
+    }
+}
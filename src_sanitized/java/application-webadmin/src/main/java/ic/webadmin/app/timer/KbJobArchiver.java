@@ -0,0 +1,88 @@
+/**
+ * KB 任务归档定时任务（ic_kb_job → ic_kb_job_history）。
+ *
+ * <p>职责：定时将结束超过 kb.job.archive.retentionDays 天的终态任务（SUCCESS / FAILED / CANCELLED）分批移入历史表，
+ * 主表只保留活跃与近期任务，领取/轮转查询与索引维护的代价不随历史累积增长。
+ * DEAD 任务不归档（仍可手动重新排队）。</p>
+ *
+ * <p>每批在独立事务内“复制 + 删除”，批次之间短暂停顿，避免长事务与持续占用行锁影响任务领取；
+ * 单次运行最多处理 kb.job.archive.maxBatchesPerRun 批，剩余的留到下次。多节点部署时通过 Redis 锁保证同一时刻只有一个节点归档。</p>
+ */
+@EnableScheduling
+@Component
+@Slf4j
+public class KbJobArchiver {
+
+    private static final String ARCHIVE_LOCK_KEY = "KB_JOB_ARCHIVER";
+
+    @Value("${kb.job.archive.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 终态任务在主表保留的天数
+     */
+    @Value("${kb.job.archive.retentionDays:30}")
+    private int retentionDays;
+
+    /**
+     * 每批归档条数
+     */
+    @Value("${kb.job.archive.batchSize:1000}")
+    private int batchSize;
+
+    /**
+     * 单次运行最多归档批数
+     */
+    @Value("${kb.job.archive.maxBatchesPerRun:50}")
+    private int maxBatchesPerRun;
+
+    /**
+     * 批次之间的停顿（毫秒）
+     */
+    @Value("${kb.job.archive.pauseMs:200}")
+    private long pauseMs;
+
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private KbJobService kbJobService;
+
+    @Scheduled(cron = "${kb.job.archive.cron:0 */10 * * * ?}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(ARCHIVE_LOCK_KEY);
+        try {
+            if (!lock.tryLock(0, 10, TimeUnit.MINUTES)) {
+                return;
+            }
+            Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+            long begin = System.currentTimeMillis();
+            int total = 0;
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int n = kbJobService.archiveFinished(cutoff, batchSize);
+                total += n;
+                if (n < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+            if (total > 0) {
+                log.info("[kb-job-archive] archived={}, cutoff={}, costMs={}",
+                        total, cutoff, System.currentTimeMillis() - begin);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("[kb-job-archive] archive failed", e);
+        } finally {
+            try {
+                if (lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                }
+            } catch (Exception ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * KB 任务协作式取消（线程上下文）。
+ *
+ * <p>执行器在任务线程上 {@link #bind} 取消检查（通常为 {@link KbJobLeaseManager#isCancelRequested}），
+ * 深层代码（批量写入循环、Tika 内容回调等）调用 {@link #checkpoint()} 检查，已取消时抛出 {@link CancelledException}；
+ * 不在任务上下文中（如接口同步调用）时 checkpoint 为空操作。</p>
+ *
+ * <p>任务内再提交到其他线程池的子任务需用 {@link #wrap} 包装，取消检查随之传递。</p>
+ */
+public final class KbJobCancellation {
+
+    private static final ThreadLocal<BooleanSupplier> CURRENT = new ThreadLocal<>();
+
+    private KbJobCancellation() {
+    }
+
+    public static void bind(BooleanSupplier cancelled) {
+        CURRENT.set(cancelled);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static boolean isCancelled() {
+        BooleanSupplier s = CURRENT.get();
+        return s != null && s.getAsBoolean();
+    }
+
+    /**
+     * 取消检查点：当前任务已被取消时抛出 {@link CancelledException}。
+     */
+    public static void checkpoint() {
+        if (isCancelled()) {
+            throw new CancelledException();
+        }
+    }
+
+    /**
+     * 将当前线程的取消检查传递给子任务（在其他线程执行）。
+     */
+    public static Runnable wrap(Runnable task) {
+        BooleanSupplier s = CURRENT.get();
+        if (s == null) {
+            return task;
+        }
+        return () -> {
+            bind(s);
+            try {
+                task.run();
+            } finally {
+                unbind();
+            }
+        };
+    }
+
+    /**
+     * 同 {@link #wrap(Runnable)}，另叠加一个放弃标记（如调用方等待超时）：任一成立时子任务的检查点即抛出取消。
+     * 不在任务上下文中时也生效（只检查放弃标记）。
+     */
+    public static Runnable wrap(Runnable task, BooleanSupplier abandoned) {
+        BooleanSupplier s = CURRENT.get();
+        BooleanSupplier combined = s == null ? abandoned : () -> abandoned.getAsBoolean() || s.getAsBoolean();
+        return () -> {
+            bind(combined);
+            try {
+                task.run();
+            } finally {
+                unbind();
+            }
+        };
+    }
+
+    /**
+     * 任务已被取消（由检查点抛出，执行器据此走取消收尾而不是失败重试）。
+     */
+    public static class CancelledException extends RuntimeException {
+        public CancelledException() {
+            super("job cancelled");
+        }
+    }
+}
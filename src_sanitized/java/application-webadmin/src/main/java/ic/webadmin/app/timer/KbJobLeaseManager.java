@@ -0,0 +1,272 @@
+/**
+ * KB 任务租约管理（ic_kb_job.OWNER_NODE / LEASE_EXPIRE_TIME）。
+ *
+ * <p>职责：
+ * <ul>
+ *   <li>领取：CAS 将 PENDING 任务置为 RUNNING 并写入本节点标识与租约到期时间，多节点/多线程并发领取不会重复执行。</li>
+ *   <li>心跳：定时为本节点正在执行的任务批量续期（kb.job.heartbeatMs），长任务不会因租约过期被他人接手。</li>
+ *   <li>清扫：定时将租约已过期的 RUNNING 任务（节点宕机/卡死）重新置为 PENDING（重试预算耗尽则置为 DEAD），并同步回退文件状态。</li>
+ *   <li>取消：取消请求经 Redis 主题广播（{@link #publishCancel}），持有该任务的节点记入本地取消集合，
+ *       执行线程在检查点（{@link #isCancelRequested}）停止；心跳同时按 CANCEL_REQUESTED 兜底，广播丢失时最多延迟一个心跳周期。</li>
+ *   <li>收尾：终态写入按持有者条件更新，租约被回收后旧持有者的写入不生效；运行中进度由
+ *       {@link KbJobProgressReporter} 合并后批量落库（同样按持有者条件），心跳发现租约丢失时执行线程尽早放弃。</li>
+ * </ul>
+ *
+ * <p>参数约束：heartbeatMs 应明显小于 leaseMs（默认 15s / 60s），容忍 2~3 次心跳失败。
+ * 租约到期时间在 SQL 中按数据库时钟（NOW() + leaseMs）写入，与清扫比较用的 NOW() 同源，节点时钟偏差不影响回收判定。</p>
+ */
+@EnableScheduling
+@Component
+@Slf4j
+public class KbJobLeaseManager {
+
+    private static final long SYSTEM_USER_ID = 0L;
+    private static final String SWEEP_LOCK_KEY = "KB_JOB_LEASE_SWEEPER";
+    private static final String CANCEL_TOPIC_KEY = "KB_JOB_CANCEL";
+
+    /**
+     * 租约时长（毫秒）
+     */
+    @Value("${kb.job.leaseMs:60000}")
+    private long leaseMs;
+
+    /**
+     * 单次清扫最多回收的任务数
+     */
+    @Value("${kb.job.sweepBatch:100}")
+    private int sweepBatch;
+
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private KbJobMapper kbJobMapper;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+    @Autowired
+    private KbJobRetryPolicy kbJobRetryPolicy;
+
+    /** 本节点标识（主机名/进程号 + 随机后缀，重启后不同，避免误续旧租约） */
+    private String nodeId;
+
+    /** 本节点正在执行（持有租约）的任务Id */
+    private final Set<Long> heldJobIds = ConcurrentHashMap.newKeySet();
+
+    /** 心跳发现已丢失租约的任务Id（执行线程据此尽早放弃） */
+    private final Set<Long> lostJobIds = ConcurrentHashMap.newKeySet();
+
+    /** 已请求取消的本节点任务Id（执行线程在检查点据此停止） */
+    private final Set<Long> cancelledJobIds = ConcurrentHashMap.newKeySet();
+
+    private RLock sweepLock;
+    private RTopic cancelTopic;
+
+    @PostConstruct
+    public void init() {
+        nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + IdUtil.fastSimpleUUID().substring(0, 8);
+        sweepLock = redissonClient.getLock(SWEEP_LOCK_KEY);
+        cancelTopic = redissonClient.getTopic(CANCEL_TOPIC_KEY);
+        cancelTopic.addListener(Long.class, (channel, jobId) -> {
+            if (heldJobIds.contains(jobId)) {
+                cancelledJobIds.add(jobId);
+                log.info("[kb-job-lease] cancel requested, jobId={}, nodeId={}", jobId, nodeId);
+            }
+        });
+        log.info("[kb-job-lease] init, nodeId={}, leaseMs={}", nodeId, leaseMs);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 领取任务（CAS，未到最早可执行时间的任务不会被领取）。成功后任务进入本节点心跳续期集合，
+     * 执行结束必须调用 {@link #release}；传入对象的 attemptCount / status / ownerNode 同步为领取后的值。
+     *
+     * @return true 表示领取成功
+     */
+    public boolean claim(KbJob job) {
+        int n = kbJobMapper.claimById(job.getId(), nodeId, leaseMs, SYSTEM_USER_ID);
+        if (n == 1) {
+            heldJobIds.add(job.getId());
+            job.setStatus("RUNNING");
+            job.setOwnerNode(nodeId);
+            job.setAttemptCount((job.getAttemptCount() == null ? 0 : job.getAttemptCount()) + 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 按持有者条件更新任务（状态迁移/终态走这里，运行中进度走 KbJobProgressReporter）。
+     *
+     * @return true 表示仍持有租约并写入成功；false 表示租约已被回收，调用方应停止后续写入
+     */
+    public boolean update(KbJob job) {
+        int n = kbJobMapper.updateStatusProgressMessageByIdAndOwner(job, nodeId);
+        if (n != 1) {
+            log.warn("[kb-job-lease] lease lost, skip update, jobId={}, nodeId={}, status={}",
+                    job.getId(), nodeId, job.getStatus());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 退避重试：按持有者条件放回 PENDING，nextRunTime 之前调度器不会再选取。
+     *
+     * @return true 表示仍持有租约并重排成功
+     */
+    public boolean reschedule(Long jobId, long delayMs, String errorClass, String message) {
+        Date nextRunTime = new Date(System.currentTimeMillis() + delayMs);
+        int n = kbJobMapper.rescheduleByOwner(jobId, nodeId, nextRunTime, errorClass, message);
+        if (n != 1) {
+            log.warn("[kb-job-lease] lease lost, skip reschedule, jobId={}, nodeId={}", jobId, nodeId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 领取后未开始执行（本节点关闭、线程池拒绝）：立即放回 PENDING，不计入执行次数，不消耗重试预算。
+     *
+     * @return true 表示仍持有租约并放回成功
+     */
+    public boolean requeueUnstarted(Long jobId, String message) {
+        int n = kbJobMapper.requeueUnstartedByOwner(jobId, nodeId, message);
+        if (n != 1) {
+            log.warn("[kb-job-lease] lease lost, skip requeue, jobId={}, nodeId={}", jobId, nodeId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 记录断点（按持有者条件）。
+     *
+     * @return true 表示仍持有租约并记录成功；false 表示租约已被回收，调用方应停止执行
+     */
+    public boolean checkpoint(Long jobId, Long fileId, Integer chunkIndex) {
+        int n = kbJobMapper.updateCheckpointByOwner(jobId, nodeId, fileId, chunkIndex);
+        if (n != 1) {
+            log.warn("[kb-job-lease] lease lost, skip checkpoint, jobId={}, nodeId={}", jobId, nodeId);
+            return false;
+        }
+        return true;
+    }
+
+    /** 任务执行结束（无论成功失败），停止续期。 */
+    public void release(Long jobId) {
+        heldJobIds.remove(jobId);
+        lostJobIds.remove(jobId);
+        cancelledJobIds.remove(jobId);
+    }
+
+    /**
+     * 任务是否已被请求取消（广播或心跳发现）。只读本地集合，可在高频检查点（如 Tika 内容回调）中调用。
+     */
+    public boolean isCancelRequested(Long jobId) {
+        return cancelledJobIds.contains(jobId);
+    }
+
+    /**
+     * 广播取消请求（调用前应已写入 CANCEL_REQUESTED，广播只用于缩短停止延迟）。
+     */
+    public void publishCancel(Collection<Long> jobIds) {
+        for (Long jobId : jobIds) {
+            try {
+                cancelTopic.publish(jobId);
+            } catch (Exception e) {
+                // 广播失败时由心跳兜底
+                log.warn("[kb-job-lease] cancel publish failed, jobId={}", jobId, e);
+            }
+        }
+    }
+
+    /**
+     * 任务租约是否已丢失（由心跳发现）。进度写后合并时执行线程不再逐次写库，靠此判断是否继续执行。
+     */
+    public boolean isLost(Long jobId) {
+        return lostJobIds.contains(jobId);
+    }
+
+    @Scheduled(fixedDelayString = "${kb.job.heartbeatMs:15000}")
+    public void heartbeat() {
+        if (heldJobIds.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> ids = new ArrayList<>(heldJobIds);
+            int renewed = kbJobMapper.renewLease(nodeId, ids, leaseMs);
+            if (renewed < ids.size()) {
+                Set<Long> owned = new HashSet<>(kbJobMapper.selectOwnedRunningIds(nodeId, ids));
+                for (Long id : ids) {
+                    if (!owned.contains(id) && heldJobIds.contains(id)) {
+                        lostJobIds.add(id);
+                    }
+                }
+                log.warn("[kb-job-lease] heartbeat partially renewed, nodeId={}, held={}, renewed={}, lost={}",
+                        nodeId, ids.size(), renewed, lostJobIds);
+            }
+            for (Long id : kbJobMapper.selectCancelRequestedIds(nodeId, ids)) {
+                if (heldJobIds.contains(id)) {
+                    cancelledJobIds.add(id);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to call KbJobLeaseManager.heartbeat", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kb.job.sweepMs:30000}")
+    public void sweep() {
+        try {
+            if (!sweepLock.tryLock(0, 30, TimeUnit.SECONDS)) {
+                return;
+            }
+            List<KbJob> expired = kbJobMapper.selectLeaseExpired(sweepBatch);
+            for (KbJob job : expired) {
+                // 反复导致节点宕机/卡死的任务同样受重试预算约束，耗尽后进入 DEAD
+                int attempts = job.getAttemptCount() == null ? 0 : job.getAttemptCount();
+                boolean dead = attempts >= kbJobRetryPolicy.maxAttempts();
+                boolean cancelled = Integer.valueOf(1).equals(job.getCancelRequested());
+                String status = cancelled ? "CANCELLED" : (dead ? "DEAD" : "PENDING");
+                String msg = "租约过期(节点 " + job.getOwnerNode() + " 无心跳)，"
+                        + (cancelled ? "已取消" : (dead ? "重试次数已耗尽" : "重新排队"));
+                if (kbJobMapper.requeueExpiredById(job.getId(), job.getOwnerNode(), status, msg) != 1) {
+                    continue;
+                }
+                resetFileStatus(job, cancelled ? "CANCELLED" : (dead ? "FAILED" : "PENDING"), msg);
+                log.warn("[kb-job-lease] requeue expired job, jobId={}, jobType={}, ownerNode={}",
+                        job.getId(), job.getJobType(), job.getOwnerNode());
+            }
+        } catch (Exception e) {
+            log.error("Failed to call KbJobLeaseManager.sweep", e);
+        } finally {
+            try {
+                if (sweepLock != null && sweepLock.isHeldByCurrentThread()) {
+                    sweepLock.unlock();
+                }
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    private void resetFileStatus(KbJob job, String status, String msg) {
+        if (job.getTargetId() == null) {
+            return;
+        }
+        KbFile f = new KbFile();
+        f.setId(job.getTargetId());
+        f.setUpdateUserId(SYSTEM_USER_ID);
+        if ("PARSE_FILE".equals(job.getJobType()) || "RECHUNK_FILE".equals(job.getJobType())) {
+            f.setParseStatus(status);
+            f.setParseProgress(0);
+            f.setParseMessage(msg);
+            kbFileMapper.updateParseStatusProgressMessageById(f);
+        } else if ("VECTOR_INDEX".equals(job.getJobType())) {
+            f.setVectorIndexStatus(status);
+            f.setVectorIndexMessage(msg);
+            kbFileMapper.updateVectorIndexStatusById(f);
+        }
+    }
+}
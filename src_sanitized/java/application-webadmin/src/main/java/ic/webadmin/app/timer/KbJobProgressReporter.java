@@ -0,0 +1,151 @@
+/**
+ * KB 任务进度上报（写后合并）。
+ *
+ * <p>背景：解析任务每个阶段都要同时更新 ic_kb_job 与 ic_kb_file，一个文件十几次行写入，并发执行时两张热表写放大明显。</p>
+ *
+ * <p>做法：
+ * <ul>
+ *   <li>运行中进度：{@link #report} 只写 Redis（RMapCache，按 jobId，带 TTL）供前端实时轮询，
+ *       同时记入本地脏表；同一任务多次上报只保留最新一次。</li>
+ *   <li>节流落库：按 kb.job.progress.flushMs 间隔把脏表批量写入 MySQL（CASE WHEN 单语句，多任务一条），
+ *       任务表按持有者条件、文件表按 PARSING 条件，不会覆盖已写入的终态。</li>
+ *   <li>终态（SUCCESS / FAILED）：由执行器直接写库，随后调用 {@link #complete} 丢弃未落库的中间进度并清理实时进度。</li>
+ * </ul>
+ *
+ * <p>代价：节点宕机时最多丢失一个 flush 间隔内的中间进度（任务本身由租约清扫重新排队，不受影响）。</p>
+ */
+@EnableScheduling
+@Component
+@Slf4j
+public class KbJobProgressReporter {
+
+    private static final String LIVE_MAP_KEY = "KB_JOB_LIVE_PROGRESS";
+
+    /**
+     * 实时进度在 Redis 中的保留时间（毫秒），任务异常中断时兜底过期
+     */
+    @Value("${kb.job.progress.liveTtlMs:3600000}")
+    private long liveTtlMs;
+
+    /**
+     * 单条批量 UPDATE 最多包含的任务数
+     */
+    @Value("${kb.job.progress.flushBatch:200}")
+    private int flushBatch;
+
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private KbJobMapper kbJobMapper;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+    @Autowired
+    private KbJobLeaseManager kbJobLeaseManager;
+
+    private RMapCache<Long, KbJobProgress> liveMap;
+
+    /** 待落库的最新进度（jobId -> progress） */
+    private final ConcurrentHashMap<Long, KbJobProgress> dirty = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        liveMap = redissonClient.getMapCache(LIVE_MAP_KEY);
+    }
+
+    /**
+     * 上报运行中进度（不直接写库）。
+     *
+     * @param jobId    任务Id
+     * @param fileId   文件Id（PARSE_FILE 时回写文件解析进度；其他任务传 null）
+     * @param jobType  任务类型
+     * @param progress 进度（0-100）
+     * @param message  阶段说明
+     */
+    public void report(Long jobId, Long fileId, String jobType, int progress, String message) {
+        KbJobProgress p = new KbJobProgress();
+        p.setJobId(jobId);
+        p.setFileId(fileId);
+        p.setJobType(jobType);
+        p.setProgress(progress);
+        p.setMessage(message);
+        p.setReportTime(System.currentTimeMillis());
+
+        dirty.put(jobId, p);
+        try {
+            liveMap.fastPut(jobId, p, liveTtlMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 实时进度仅用于展示，Redis 异常不影响任务执行
+            log.warn("[kb-job-progress] live progress put failed, jobId={}", jobId, e);
+        }
+    }
+
+    /**
+     * 任务已写入终态：丢弃未落库的中间进度，清理实时进度。
+     */
+    public void complete(Long jobId) {
+        dirty.remove(jobId);
+        try {
+            liveMap.fastRemove(jobId);
+        } catch (Exception e) {
+            log.warn("[kb-job-progress] live progress remove failed, jobId={}", jobId, e);
+        }
+    }
+
+    /**
+     * 批量读取实时进度（不存在的 jobId 不返回）。
+     */
+    public Map<Long, KbJobProgress> getLive(Collection<Long> jobIds) {
+        if (CollUtil.isEmpty(jobIds)) {
+            return Collections.emptyMap();
+        }
+        return liveMap.getAll(new HashSet<>(jobIds));
+    }
+
+    @Scheduled(fixedDelayString = "${kb.job.progress.flushMs:3000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // 逐个 remove 取出：flush 期间新的上报会留在脏表，下次再落库
+        List<KbJobProgress> drained = new ArrayList<>(dirty.size());
+        for (Long jobId : new ArrayList<>(dirty.keySet())) {
+            KbJobProgress p = dirty.remove(jobId);
+            if (p != null) {
+                drained.add(p);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        try {
+            int jobRows = 0;
+            int fileRows = 0;
+            for (List<KbJobProgress> part : CollUtil.split(drained, Math.max(1, flushBatch))) {
+                jobRows += kbJobMapper.batchUpdateProgressByOwner(part, kbJobLeaseManager.nodeId());
+
+                List<KbJobProgress> fileParts = new ArrayList<>();
+                for (KbJobProgress p : part) {
+                    if (p.getFileId() != null && ("PARSE_FILE".equals(p.getJobType()) || "RECHUNK_FILE".equals(p.getJobType()))) {
+                        fileParts.add(p);
+                    }
+                }
+                if (!fileParts.isEmpty()) {
+                    fileRows += kbFileMapper.batchUpdateParseProgress(fileParts);
+                }
+            }
+            log.debug("[kb-job-progress] flush, jobs={}, jobRows={}, fileRows={}", drained.size(), jobRows, fileRows);
+        } catch (Exception e) {
+            // 落库失败：放回脏表（不覆盖期间产生的更新），下次重试
+            for (KbJobProgress p : drained) {
+                dirty.putIfAbsent(p.getJobId(), p);
+            }
+            log.error("Failed to call KbJobProgressReporter.flush", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * KB 任务失败重试策略：错误分类 + 指数退避（带抖动）。
+ *
+ * <p>分类口径（沿异常 cause 链按异常类型 / HTTP 状态码判断，不匹配消息文本，命中任一即视为瞬时错误 TRANSIENT）：
+ * <ul>
+ *   <li>HTTP 429 / 408 / 5xx（OpenSearch 限流、Python 服务重启或网关超时）。</li>
+ *   <li>网络 I/O 与超时（连接拒绝、连接重置、读超时：ResourceAccessException、SocketException、TimeoutException）。</li>
+ *   <li>数据库瞬时错误（死锁、锁等待超时、连接中断：TransientDataAccessException / SQLTransientException）。</li>
+ * </ul>
+ * 其余（文件不存在、提取文本过短、参数错误等）为 PERMANENT，直接置为 FAILED，不再重试；
+ * 隔离进程内的提取失败（{@link KbTikaExtractor.ExtractionFailedException}，含提取超时）是文档本身问题，也按 PERMANENT 处理。</p>
+ *
+ * <p>退避：delay = min(maxBackoffMs, baseBackoffMs * 2^(attempt-1))，再乘以 [0.5, 1.0) 的随机抖动，
+ * 避免同一故障下大量任务在同一时刻重新涌入形成重试风暴。</p>
+ */
+@Component
+public class KbJobRetryPolicy {
+
+    public static final String TRANSIENT = "TRANSIENT";
+    public static final String PERMANENT = "PERMANENT";
+
+    /**
+     * 最大执行次数（含首次），超过后进入 DEAD
+     */
+    @Value("${kb.job.retry.maxAttempts:5}")
+    private int maxAttempts;
+
+    @Value("${kb.job.retry.baseBackoffMs:5000}")
+    private long baseBackoffMs;
+
+    @Value("${kb.job.retry.maxBackoffMs:600000}")
+    private long maxBackoffMs;
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 错误分类。
+     *
+     * @return TRANSIENT 或 PERMANENT
+     */
+    public String classify(Throwable e) {
+        Set<Throwable> seen = new HashSet<>();
+        for (Throwable t = e; t != null && seen.add(t); t = t.getCause()) {
+            if (t instanceof KbTikaExtractor.ExtractionFailedException) {
+                return PERMANENT;
+            }
+            if (t instanceof HttpStatusCodeException) {
+                int code = ((HttpStatusCodeException) t).getRawStatusCode();
+                return (code == 429 || code == 408 || code >= 500) ? TRANSIENT : PERMANENT;
+            }
+            if (t instanceof ResourceAccessException
+                    || t instanceof SocketTimeoutException
+                    || t instanceof SocketException
+                    || t instanceof TimeoutException
+                    || t instanceof TransientDataAccessException
+                    || t instanceof RecoverableDataAccessException
+                    || t instanceof SQLTransientException) {
+                return TRANSIENT;
+            }
+        }
+        return PERMANENT;
+    }
+
+    /**
+     * 是否还有重试预算。
+     *
+     * @param attemptCount 已执行次数（含本次）
+     */
+    public boolean canRetry(String errorClass, int attemptCount) {
+        return TRANSIENT.equals(errorClass) && attemptCount < maxAttempts;
+    }
+
+    /**
+     * 第 attemptCount 次失败后的退避时长（毫秒，已含抖动）。
+     */
+    public long backoffMs(int attemptCount) {
+        int exp = Math.max(0, Math.min(attemptCount - 1, 20));
+        long delay = Math.min(maxBackoffMs, baseBackoffMs * (1L << exp));
+        double jitter = 0.5 + ThreadLocalRandom.current().nextDouble() * 0.5;
+        return (long) (delay * jitter);
+    }
+}
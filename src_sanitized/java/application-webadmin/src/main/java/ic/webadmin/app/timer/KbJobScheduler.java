@@ -0,0 +1,133 @@
+/**
+ * KB 任务调度（选取待领取任务）：优先级通道 + 通道内按知识库轮转。
+ *
+ * <p>规则：
+ * <ul>
+ *   <li>通道：按 PRIORITY 升序（交互式 &gt; 普通 &gt; 批量），优先从最高优先级且有排队任务的通道选取。</li>
+ *   <li>防饿死：每 kb.job.scheduler.agingEvery 次选取，先服务一次低优先级通道，批量任务在持续交互流量下也能推进。</li>
+ *   <li>轮转：通道内每个知识库每轮最多取一个任务，游标（上次服务到的 kbId）存 Redis，多节点共享；
+ *       单个知识库的大批量导入只占用一个轮转位，不会拖慢其他知识库。</li>
+ *   <li>补齐：轮转取不满时（排队的知识库少于空闲线程），按 id 顺序从通道内补齐剩余名额。</li>
+ * </ul>
+ *
+ * <p>每次选取的查询量只与 n 相关：通道固定为 {@link KbJobPriority} 的三个取值，知识库按游标逐个探测
+ * （{@code KB_ID > cursor ORDER BY KB_ID LIMIT 1}），不再对排队任务做 DISTINCT 聚合，积压再多轮询代价也不变。</p>
+ *
+ * <p>本类只负责“选”，领取仍由 {@link KbJobLeaseManager#claim} 通过 CAS 完成（选中后被其他节点抢先领取时直接跳过）。</p>
+ */
+@Slf4j
+@Component
+public class KbJobScheduler {
+
+    private static final String CURSOR_KEY = "KB_JOB_RR_CURSOR:";
+    private static final List<Integer> LANES =
+            Arrays.asList(KbJobPriority.INTERACTIVE, KbJobPriority.NORMAL, KbJobPriority.BULK);
+
+    /**
+     * 每 N 次选取先服务一次低优先级通道（&lt;=0 表示严格优先级）
+     */
+    @Value("${kb.job.scheduler.agingEvery:10}")
+    private int agingEvery;
+
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private KbJobMapper kbJobMapper;
+
+    private final AtomicLong tick = new AtomicLong();
+
+    /**
+     * 选取最多 n 个待领取任务（按服务顺序排列）。
+     *
+     * @param jobType 任务类型
+     * @param n       最多返回条数（通常为空闲工作线程数）
+     * @return 候选任务列表
+     */
+    public List<KbJob> pickNext(String jobType, int n) {
+        List<KbJob> result = new ArrayList<>();
+        if (n <= 0) {
+            return result;
+        }
+        List<Integer> lanes = new ArrayList<>(LANES);
+        if (agingEvery > 0 && tick.incrementAndGet() % agingEvery == 0) {
+            // 本次先服务低优先级通道
+            lanes.add(lanes.remove(0));
+        }
+
+        for (Integer lane : lanes) {
+            pickFromLane(jobType, lane, n - result.size(), result);
+            if (result.size() >= n) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在单个通道内按 kbId 轮转选取：从游标之后的知识库开始，每轮每库一个，直到取满或通道取空。
+     */
+    private void pickFromLane(String jobType, Integer lane, int need, List<KbJob> result) {
+        if (need <= 0) {
+            return;
+        }
+        RAtomicLong cursor = redissonClient.getAtomicLong(CURSOR_KEY + jobType + ":" + lane);
+        long last = cursor.get();
+
+        // 从游标之后逐个探测有排队任务的知识库，到末尾后从头环绕，最多探测 need 个
+        List<Long> ordered = new ArrayList<>();
+        long after = last;
+        boolean wrapped = false;
+        while (ordered.size() < need) {
+            Long kbId = kbJobMapper.selectNextPendingKbId(jobType, lane, after);
+            if (kbId == null || (wrapped && kbId > last)) {
+                if (wrapped || last <= 0) {
+                    break;
+                }
+                wrapped = true;
+                after = 0L;
+                continue;
+            }
+            ordered.add(kbId);
+            after = kbId;
+        }
+        if (ordered.isEmpty()) {
+            return;
+        }
+
+        // 每库取 perKb 个，按轮次交错（第1轮各库第1个，第2轮各库第2个……）
+        int perKb = (need + ordered.size() - 1) / ordered.size();
+        List<List<KbJob>> perKbJobs = new ArrayList<>(ordered.size());
+        for (Long kbId : ordered) {
+            perKbJobs.add(kbJobMapper.selectPendingByKb(jobType, lane, kbId, perKb));
+        }
+        Set<Long> picked = new HashSet<>();
+        Long lastServed = null;
+        for (int round = 0; round < perKb && need > 0; round++) {
+            for (int i = 0; i < ordered.size() && need > 0; i++) {
+                List<KbJob> jobs = perKbJobs.get(i);
+                if (round < jobs.size()) {
+                    result.add(jobs.get(round));
+                    picked.add(jobs.get(round).getId());
+                    lastServed = ordered.get(i);
+                    need--;
+                }
+            }
+        }
+        if (lastServed != null) {
+            cursor.set(lastServed);
+        }
+
+        // 部分知识库排队不足 perKb 个时，按 id 顺序补齐
+        if (need > 0 && !picked.isEmpty()) {
+            for (KbJob job : kbJobMapper.selectNextClaimable(jobType, lane, need + picked.size())) {
+                if (need <= 0) {
+                    break;
+                }
+                if (picked.add(job.getId())) {
+                    result.add(job);
+                    need--;
+                }
+            }
+        }
+    }
+}
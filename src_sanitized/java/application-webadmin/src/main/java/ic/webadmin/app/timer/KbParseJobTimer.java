@@ -1,26 +1,45 @@
 /**
- * KB 文件解析定时任务（PARSE_FILE Job 执行器）。
+ * KB 文件解析定时任务（PARSE_FILE / RECHUNK_FILE Job 执行器）。
  *
  * <p>职责：
  * <ul>
- *   <li>每 5 秒扫描待执行任务（KbJob: status=PENDING 且 jobType=PARSE_FILE）。</li>
- *   <li>对目标文件进行：读取 -> Tika 提取文本 -> 清洗 -> 分段 -> chunk 落库（replace） -> 按 INDEX_MODE 同步索引。</li>
- *   <li>同步更新任务表（ic_kb_job）与文件表（ic_kb_file）的状态/进度/消息，供前端展示。</li>
+ *   <li>每 5 秒扫描待执行任务（KbJob: status=PENDING 且 jobType=PARSE_FILE），按优先级通道 + 知识库轮转选取、按空闲线程数领取。</li>
+ *   <li>对目标文件进行：读取 -> Tika 提取文本 -> 清洗 -> 分段 -> chunk 落库（replace） -> 按 INDEX_MODE 同步索引。
+ *       大 PDF 由 {@link KbPdfSegmentParser} 按页码区间并行提取、切片后合并，单个大文件不再只占一个核。</li>
+ *   <li>Tika 提取经 {@link KbTikaExtractor} 在隔离子进程池中执行（超时、堆上限、输出上限、按文档数回收），
+ *       畸形文档只会让子进程退出，任务以永久错误失败。</li>
+ *   <li>纯文本（txt / md）由 {@link KbPlainTextParser} 内存映射读取、识别编码后直接解码，不经过 Tika；
+ *       UTF-8 文件的切片偏移即原文件字节偏移。</li>
+ *   <li>文本缓存：清洗后的全文按 内容 SHA-256 + 提取器版本 存为 gzip 旁路文件（{@link KbTextCache}），命中时跳过读取与 Tika 提取。
+ *       RECHUNK_FILE（调整切片配置后重新切片）直接从缓存切片并同步索引，缓存缺失时退回完整提取。</li>
+ *   <li>切片方式与参数按知识库 CONFIG_TEXT 的 chunker 配置选取（{@link KbChunkerRegistry}，缺省取 kb.parse.chunk.*）：
+ *       BYTES 字节窗口、SENTENCE 句子边界、TOKENS token 预算、STRUCTURE 按标题划分章节（分段记录章节路径与父分段）。</li>
+ *   <li>重复上传：同库已有内容相同（CONTENT_SHA256 一致）且解析成功的文件时，直接复制其分段，跳过 Tika 提取与切片；
+ *       文本索引按复制的分段写入，向量等推迟后端优先复制源文件的向量（见 {@link KbIndexBackend#cloneFile}）。</li>
+ *   <li>索引同步经 {@link KbIndexBackendRegistry} 分发：启用的后端并发执行、各自超时、各自在文件上记录状态；
+ *       向量后端在解析内推迟，只入队 VECTOR_INDEX 任务，由 {@link KbVectorIndexJobTimer} 按限流速率追赶。</li>
+ *   <li>更新任务表（ic_kb_job）与文件表（ic_kb_file）的状态/进度/消息，供前端展示：
+ *       状态迁移与终态直接写库，阶段进度经 {@link KbJobProgressReporter} 写 Redis 并节流批量落库。</li>
  * </ul>
  *
  * <p>分布式与幂等：
  * <ul>
- *   <li>使用 Redisson 分布式锁保证同一时间只有一个节点执行（LOCK_KEY=KB_PARSE_JOB_TIMER）。</li>
- *   <li>单次执行只处理 1 个任务（避免长任务阻塞导致大量排队；后续可扩展并发）。</li>
+ *   <li>任务级租约（{@link KbJobLeaseManager}）：CAS 领取 PENDING 任务并写入持有节点与租约到期时间，
+ *       执行期间心跳续期；节点宕机后租约过期，由清扫任务重新排队，不会出现永久 RUNNING。</li>
+ *   <li>多节点、多线程并发执行（kb.parse.job.poolSize），每个节点按空闲线程数与内存预算（{@link KbParseMemoryBudget}）领取，不依赖全局锁。</li>
+ *   <li>执行中的任务写入均按持有者条件更新；租约被回收后本次执行立即放弃，不覆盖新持有者的结果。</li>
  * </ul>
  *
+ * <p>取消（协作式，见 {@link KbJobCancellation}）：阶段之间、索引批量写入之间、Tika 内容回调中检查取消标记；
+ * 取消后软删除已写入的分段并清理索引文档，任务与文件置为 CANCELLED。</p>
+ *
  * <p>进度口径（当前实现）：
  * <ul>
  *   <li>20% 读取文件</li>
- *   <li>40% 提取文本（Tika）</li>
+ *   <li>40% 提取文本（Tika）；大 PDF 分段并行时 40%~60% 按已完成段数推进</li>
  *   <li>60% 分段切片（chunk split）</li>
  *   <li>85% 落库分段（replaceChunksByFileId）</li>
- *   <li>95% 同步索引（按 INDEX_MODE 分发：TEXT_OS / VECTOR / HYBRID）</li>
+ *   <li>95% 同步索引（按 INDEX_MODE 选出后端并发执行；向量后端入队异步执行）</li>
  *   <li>100% 解析完成（索引失败会在 message 中提示，可手动重试重建）</li>
  * </ul>
  */
@@ -30,95 +49,148 @@
 public class KbParseJobTimer {
 
     private static final long SYSTEM_USER_ID = 0L; // 系统用户Id(可按需调整)
-    private static final String LOCK_KEY = "KB_PARSE_JOB_TIMER";
 
     @org.springframework.beans.factory.annotation.Value("${kb.storage.localBaseDir}")
     private String localBaseDir;
 
+    /**
+     * 本节点解析工作线程数上限（同时解析的文件数，实际并发另受内存预算 {@link KbParseMemoryBudget} 约束），&lt;=0 表示 CPU 核数
+     */
+    @org.springframework.beans.factory.annotation.Value("${kb.parse.job.poolSize:0}")
+    private int poolSize;
+
     @Autowired
-    private KbLibraryService kbLibraryService;
+    private KbJobLeaseManager kbJobLeaseManager;
     @Autowired
-    private RedissonClient redissonClient;
+    private KbJobScheduler kbJobScheduler;
     @Autowired
-    private KbJobMapper kbJobMapper;
+    private KbJobRetryPolicy kbJobRetryPolicy;
+    @Autowired
+    private KbJobProgressReporter kbJobProgressReporter;
     @Autowired
     private KbFileMapper kbFileMapper;
     @Autowired
     private KbChunkService kbChunkService;
     @Autowired
-    private KbChunkIndexService kbChunkIndexService;
+    private KbIndexBackendRegistry kbIndexBackendRegistry;
+    @Autowired
+    private KbPdfSegmentParser kbPdfSegmentParser;
+    @Autowired
+    private KbParseMemoryBudget kbParseMemoryBudget;
     @Autowired
-    private KbVectorIndexService kbVectorIndexService;
+    private KbTextCache kbTextCache;
+    @Autowired
+    private KbPlainTextParser kbPlainTextParser;
+    @Autowired
+    private KbTikaExtractor kbTikaExtractor;
+    @Autowired
+    private KbChunkerRegistry kbChunkerRegistry;
 
-    private RLock distLock;
+    private ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
 
     /** 规范化后的 kb 根目录 */
     private Path baseDir;
 
     @PostConstruct
     public void init() {
-        distLock = redissonClient.getLock(LOCK_KEY);
+        if (poolSize <= 0) {
+            poolSize = Runtime.getRuntime().availableProcessors();
+        }
+        executor = ExecutorBuilder.create()
+                .setCorePoolSize(poolSize)
+                .setMaxPoolSize(poolSize)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("kb-parse-").build())
+                .build();
         baseDir = Paths.get(localBaseDir).toAbsolutePath().normalize();
         log.info("[KB] localBaseDir(baseDir)={}", baseDir);
     }
 
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
     @Scheduled(cron = "*/5 * * * * ?")
     public void execute() {
         try {
-            if (!distLock.tryLock(0, 30, TimeUnit.SECONDS)) {
+            int free = poolSize - inFlight.get();
+            if (free <= 0) {
                 return;
             }
 
-            KbJob filter = new KbJob();
-            filter.setStatus("PENDING");
-            filter.setJobType("PARSE_FILE");
-
-            List<KbJob> jobList = kbJobMapper.getKbJobList(filter, "id asc");
+            // 优先级通道 + 按知识库轮转选取（见 KbJobScheduler）；解析优先，空闲线程再领取重新切片任务
+            List<KbJob> jobList = new ArrayList<>(kbJobScheduler.pickNext("PARSE_FILE", free));
+            if (jobList.size() < free) {
+                jobList.addAll(kbJobScheduler.pickNext("RECHUNK_FILE", free - jobList.size()));
+            }
             if (CollUtil.isEmpty(jobList)) {
                 return;
             }
 
-            executeOne(jobList.get(0));
+            for (KbJob job : jobList) {
+                // 内存预算：按文件大小/类型估算堆峰值，超出预算时本轮停止领取（按选取顺序，后面的小文件不插队，大文件不会饿死）
+                KbFile target = job.getTargetId() == null ? null : kbFileMapper.selectById(job.getTargetId());
+                long estimate = target == null
+                        ? kbParseMemoryBudget.estimate(null, 0L)
+                        : kbParseMemoryBudget.estimate(target.getFileExt(), target.getFileSize());
+                if (!kbParseMemoryBudget.tryAcquire(estimate)) {
+                    log.debug("[kb-parse] memory budget full, reservedBytes={}, budgetBytes={}, next jobId={}, estimate={}",
+                            kbParseMemoryBudget.reservedBytes(), kbParseMemoryBudget.budgetBytes(), job.getId(), estimate);
+                    break;
+                }
+                // CAS 领取：其他节点/线程已领取时跳过
+                if (!kbJobLeaseManager.claim(job)) {
+                    kbParseMemoryBudget.release(estimate);
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        KbJobCancellation.bind(() -> kbJobLeaseManager.isCancelRequested(job.getId()));
+                        try {
+                            executeOne(job);
+                        } finally {
+                            KbJobCancellation.unbind();
+                            kbJobLeaseManager.release(job.getId());
+                            kbParseMemoryBudget.release(estimate);
+                            inFlight.decrementAndGet();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    kbJobLeaseManager.release(job.getId());
+                    kbParseMemoryBudget.release(estimate);
+                    inFlight.decrementAndGet();
+                    // 本节点关闭中：立即放回队列，由其他节点接手（不计入失败）
+                    kbJobLeaseManager.requeueUnstarted(job.getId(), "节点关闭，重新排队");
+                }
+            }
 
         } catch (Exception e) {
             log.error("Failed to call KbParseJobTimer.execute", e);
-        } finally {
-            try {
-                if (distLock != null && distLock.isHeldByCurrentThread()) {
-                    distLock.unlock();
-                }
-            } catch (Exception ignore) {
-            }
         }
     }
 
+    /**
+     * 执行单个已领取（RUNNING，本节点持有租约）的解析 / 重新切片任务。
+     */
     private void executeOne(KbJob job) {
-        KbJob originalJob = kbJobMapper.selectById(job.getId());
-        if (originalJob == null) return;
-        if (!"PENDING".equals(originalJob.getStatus())) return;
-
-        Long fileId = originalJob.getTargetId();
+        boolean rechunk = "RECHUNK_FILE".equals(job.getJobType());
+        Long fileId = job.getTargetId();
         if (fileId == null) {
-            markFailed(originalJob.getId(), null, "targetId为空，无法关联文件");
+            markFailed(job.getId(), null, "targetId为空，无法关联文件");
             return;
         }
 
         KbFile file = kbFileMapper.selectById(fileId);
         if (file == null) {
-            markFailed(originalJob.getId(), fileId, "关联文件不存在 fileId=" + fileId);
+            markFailed(job.getId(), fileId, "关联文件不存在 fileId=" + fileId);
             return;
         }
 
-        KbJob running = new KbJob();
-        running.setId(originalJob.getId());
-        running.setStatus("RUNNING");
-        running.setProgress(0);
-        running.setMessage(null);
-        running.setStartTime(new Date());
-        running.setEndTime(null);
-        running.setUpdateUserId(SYSTEM_USER_ID);
-        kbJobMapper.updateStatusProgressMessageById(running);
-
         KbFile parsing = new KbFile();
         parsing.setId(file.getId());
         parsing.setParseStatus("PARSING");
@@ -128,74 +200,135 @@ public class KbParseJobTimer {
         parsing.setUpdateUserId(SYSTEM_USER_ID);
         kbFileMapper.updateParseStatusProgressMessageById(parsing);
 
+        // 是否已写入分段（取消时据此决定是否清理）
+        boolean chunksWritten = false;
         try {
             if (!"LOCAL".equalsIgnoreCase(file.getStorageType())) {
                 throw new RuntimeException("当前仅支持本地解析，storageType=" + file.getStorageType());
             }
 
-            // 1) 读取文件（20%）
-            updateProgress(originalJob.getId(), file.getId(), 20, "读取文件");
-
-            Path absPath = resolveStoragePath(file.getStoragePath());
-            if (!Files.exists(absPath)) {
-                throw new RuntimeException("文件不存在: " + absPath);
+            // 0) 同库已有相同内容且解析成功的文件：直接复制分段，不再提取文本（重新切片按当前参数切，不复用）
+            KbFile donor = rechunk || StrUtil.isBlank(file.getContentSha256()) ? null
+                    : kbFileMapper.selectParsedByContentSha256(file.getKbId(), file.getContentSha256(), file.getId());
+            int clonedCount = 0;
+            if (donor != null) {
+                updateProgress(job, file.getId(), 50, "复用相同内容文件的分段");
+                chunksWritten = true;
+                clonedCount = kbChunkService.cloneChunksByFileId(file.getKbId(), donor.getId(), file.getId(), SYSTEM_USER_ID);
+                log.info("[KB] reuse chunks of identical file, fileId={}, donorFileId={}, sha256={}, chunks={}",
+                        file.getId(), donor.getId(), file.getContentSha256(), clonedCount);
             }
-            log.info("[KB] parsing fileId={}, kbId={}, storagePath={}, absPath={}",
-                    file.getId(), file.getKbId(), file.getStoragePath(), absPath);
-
-            // 2) 提取文本（40%）
-            updateProgress(originalJob.getId(), file.getId(), 40, "提取文本");
 
-            String raw;
-            {
-                AutoDetectParser parser = new AutoDetectParser();
-                ParseContext context = new ParseContext();
-                Metadata metadata = new Metadata();
-                ContentHandler handler = new BodyContentHandler(2_000_000);
-
-                try (InputStream in = Files.newInputStream(absPath)) {
-                    parser.parse(in, handler, metadata, context);
+            if (clonedCount == 0) {
+                List<KbChunkPiece> pieces = null;
+                Function<String, List<KbChunkPiece>> chunker = kbChunkerRegistry.forKb(file.getKbId());
+                // 实测提取文本字符数（内存预算校准用）
+                AtomicLong textChars = new AtomicLong(-1);
+                // 0.5) 文本缓存：命中时跳过读取与提取
+                String cached = kbTextCache.get(file);
+                if (cached != null) {
+                    updateProgress(job, file.getId(), 40, "读取文本缓存");
+                    log.info("[KB] text cache hit, fileId={}, sha256={}, chars={}", file.getId(), file.getContentSha256(), cached.length());
+                    if (cached.length() < 20) {
+                        throw new RuntimeException("提取文本过短：可能为扫描PDF无OCR/空文件/文件损坏");
+                    }
+                    textChars.set(cached.length());
+                    updateProgress(job, file.getId(), 60, "分段切片");
+                    pieces = chunker.apply(cached);
+                } else {
+                    if (rechunk) {
+                        log.info("[KB] text cache miss on rechunk, fallback to full extraction, fileId={}", file.getId());
+                    }
+                    // 1) 读取文件（20%）
+                    updateProgress(job, file.getId(), 20, "读取文件");
+
+                    Path absPath = resolveStoragePath(file.getStoragePath());
+                    if (!Files.exists(absPath)) {
+                        throw new RuntimeException("文件不存在: " + absPath);
+                    }
+                    log.info("[KB] parsing fileId={}, kbId={}, storagePath={}, absPath={}",
+                            file.getId(), file.getKbId(), file.getStoragePath(), absPath);
+
+                    // 2) 提取文本（40%）
+                    updateProgress(job, file.getId(), 40, "提取文本");
+
+                    // 纯文本（txt / md）：内存映射 + 编码识别直接解码（非纯文本返回 null）
+                    String plain = kbPlainTextParser.read(file, absPath, this::cleanText);
+                    if (plain != null) {
+                        if (plain.length() < 20) {
+                            throw new RuntimeException("提取文本过短：可能为空文件/文件损坏");
+                        }
+                        kbTextCache.put(file, plain);
+                        textChars.set(plain.length());
+                        updateProgress(job, file.getId(), 60, "分段切片");
+                        pieces = chunker.apply(plain);
+                    } else {
+                        // 大 PDF 按页码区间分段并行提取 + 切片（不满足条件时返回 null，走整文件提取）
+                        pieces = kbPdfSegmentParser.parse(file, absPath, this::cleanText, chunker,
+                                (done, total) -> updateProgress(job, file.getId(), 40 + 20 * done / total,
+                                        "分段提取文本(" + done + "/" + total + ")"),
+                                text -> {
+                                    textChars.set(text.length());
+                                    kbTextCache.put(file, text);
+                                });
+                        if (pieces == null) {
+                            // Tika 提取在隔离子进程中执行，受超时 / 堆上限 / 输出上限约束（见 KbTikaExtractor）
+                            String raw = kbTikaExtractor.extract(file, absPath);
+
+                            String text = cleanText(raw);
+                            if (text.length() < 20) {
+                                throw new RuntimeException("提取文本过短：可能为扫描PDF无OCR/空文件/文件损坏");
+                            }
+                            kbTextCache.put(file, text);
+                            textChars.set(text.length());
+
+                            // 3) 分段切片（60%）
+                            updateProgress(job, file.getId(), 60, "分段切片");
+
+                            // 按知识库切片配置切分，产出 byteStart/byteEnd/contentByteLen
+                            pieces = chunker.apply(text);
+                        } else if (pieces.stream().mapToInt(p -> p.getContent() == null ? 0 : p.getContent().length()).sum() < 20) {
+                            throw new RuntimeException("提取文本过短：可能为扫描PDF无OCR/空文件/文件损坏");
+                        }
+                    }
+                }
+                if (pieces.isEmpty()) {
+                    throw new RuntimeException("分段结果为空");
+                }
+                if (textChars.get() >= 0) {
+                    kbParseMemoryBudget.calibrate(file.getFileExt(), file.getFileSize(), textChars.get());
                 }
-                raw = handler.toString();
-            }
-
-            String text = cleanText(raw);
-            if (text.length() < 20) {
-                throw new RuntimeException("提取文本过短：可能为扫描PDF无OCR/空文件/文件损坏");
-            }
 
-            // 3) 分段切片（60%）
-            updateProgress(originalJob.getId(), file.getId(), 60, "分段切片");
+                // 4) 落库分段（85%）
+                updateProgress(job, file.getId(), 85, "落库分段");
 
-            // 按 UTF-8 字节窗口切分，产出 byteStart/byteEnd/contentByteLen
-            List<KbChunkPiece> pieces = ByteChunker.splitUtf8ByBytes(text, 1000, 120);
-            if (pieces.isEmpty()) {
-                throw new RuntimeException("分段结果为空");
+                // 写入 byteStart/byteEnd/contentByteLen
+                chunksWritten = true;
+                kbChunkService.replaceChunksByFileIdPieces(file.getKbId(), file.getId(), pieces, SYSTEM_USER_ID);
             }
 
-            // 4) 落库分段（85%）
-            updateProgress(originalJob.getId(), file.getId(), 85, "落库分段");
-
-            // 写入 byteStart/byteEnd/contentByteLen
-            kbChunkService.replaceChunksByFileIdPieces(file.getKbId(), file.getId(), pieces, SYSTEM_USER_ID);
-
             // 4.5) 索引同步（95%）——按 INDEX_MODE 分发
-            updateProgress(originalJob.getId(), file.getId(), 95, "同步索引");
-            IndexSyncResult syncResult = dispatchIndexSync(file.getId(), file.getKbId());
+            updateProgress(job, file.getId(), 95, "同步索引");
+            KbIndexBackendRegistry.SyncReport syncResult = kbIndexBackendRegistry.syncFile(file, false);
+            KbJobCancellation.checkpoint();
 
             // 5) 成功收尾（100%）
-            String finalMsg = syncResult.ok
-                    ? "解析完成"
-                    : ("解析完成(索引失败，可重试)： " + syncResult.errMsg);
+            String doneMsg = clonedCount > 0 ? "解析完成(复用相同内容文件)" : (rechunk ? "重新切片完成" : "解析完成");
+            String finalMsg = syncResult.isOk()
+                    ? (syncResult.getDeferred().isEmpty() ? doneMsg : doneMsg + "(向量索引排队中)")
+                    : ("解析完成(索引失败，可重试)： " + syncResult.getErrMsg());
 
             KbJob successJob = new KbJob();
-            successJob.setId(originalJob.getId());
+            successJob.setId(job.getId());
             successJob.setStatus("SUCCESS");
             successJob.setProgress(100);
             successJob.setMessage(finalMsg);
             successJob.setEndTime(new Date());
             successJob.setUpdateUserId(SYSTEM_USER_ID);
-            kbJobMapper.updateStatusProgressMessageById(successJob);
+            kbJobProgressReporter.complete(job.getId());
+            if (!kbJobLeaseManager.update(successJob)) {
+                return;
+            }
 
             KbFile successFile = new KbFile();
             successFile.setId(file.getId());
@@ -206,10 +339,58 @@ public class KbParseJobTimer {
             successFile.setUpdateUserId(SYSTEM_USER_ID);
             kbFileMapper.updateParseStatusProgressMessageById(successFile);
 
+            // 6) 推迟的后端（向量）入队（必须在文件置为 SUCCESS 之后，向量任务只处理解析成功的文件）；
+            //    复用分段时先尝试从源文件复制索引文档，不支持时再入队
+            if (clonedCount > 0) {
+                kbIndexBackendRegistry.cloneDeferred(donor, file.getId(), syncResult);
+            } else {
+                kbIndexBackendRegistry.enqueueDeferred(file.getId(), syncResult);
+            }
+
+        } catch (LeaseLostException e) {
+            log.warn("Parse job abandoned (lease lost), jobId={}, fileId={}", job.getId(), file.getId());
         } catch (Exception e) {
-            log.error("Parse job failed, jobId={}, fileId={}", originalJob.getId(), file.getId(), e);
-            markFailed(originalJob.getId(), file.getId(), safeErr(e));
+            // 取消可能以各种包装形式抛出（Tika 会把内容回调中的异常包成 TikaException），以取消标记为准
+            if (kbJobLeaseManager.isCancelRequested(job.getId())) {
+                handleCancelled(job, file.getId(), chunksWritten);
+                return;
+            }
+            log.error("Parse job failed, jobId={}, fileId={}", job.getId(), file.getId(), e);
+            handleFailure(job, file.getId(), e);
+        }
+    }
+
+    /**
+     * 取消收尾：清理已写入的分段与索引文档，任务与文件置为 CANCELLED。
+     */
+    private void handleCancelled(KbJob job, Long fileId, boolean chunksWritten) {
+        log.info("[kb-parse] job cancelled, jobId={}, fileId={}, chunksWritten={}", job.getId(), fileId, chunksWritten);
+        if (chunksWritten) {
+            try {
+                kbChunkService.removeChunksByFileId(fileId, SYSTEM_USER_ID);
+                kbIndexBackendRegistry.purgeFile(fileId);
+            } catch (Exception e) {
+                log.error("[kb-parse] cancel cleanup failed, jobId={}, fileId={}", job.getId(), fileId, e);
+            }
         }
+        String msg = "已取消";
+        KbJob cancelled = new KbJob();
+        cancelled.setId(job.getId());
+        cancelled.setStatus("CANCELLED");
+        cancelled.setMessage(msg);
+        cancelled.setEndTime(new Date());
+        cancelled.setUpdateUserId(SYSTEM_USER_ID);
+        kbJobProgressReporter.complete(job.getId());
+        if (!kbJobLeaseManager.update(cancelled)) {
+            return;
+        }
+        KbFile f = new KbFile();
+        f.setId(fileId);
+        f.setParseStatus("CANCELLED");
+        f.setParseProgress(0);
+        f.setParseMessage(msg);
+        f.setUpdateUserId(SYSTEM_USER_ID);
+        kbFileMapper.updateParseStatusProgressMessageById(f);
     }
 
     private Path resolveStoragePath(String storagePath) {
@@ -227,31 +408,69 @@ public class KbParseJobTimer {
         return abs;
     }
 
-    private void updateProgress(Long jobId, Long fileId, int progress, String message) {
-        KbJob uj = new KbJob();
-        uj.setId(jobId);
-        uj.setProgress(progress);
-        uj.setMessage(message);
-        uj.setUpdateUserId(SYSTEM_USER_ID);
-        kbJobMapper.updateStatusProgressMessageById(uj);
-
-        KbFile uf = new KbFile();
-        uf.setId(fileId);
-        uf.setParseProgress(progress);
-        uf.setParseMessage(message);
-        uf.setUpdateUserId(SYSTEM_USER_ID);
-        kbFileMapper.updateParseStatusProgressMessageById(uf);
+    /**
+     * 阶段进度：只上报到 KbJobProgressReporter（Redis 实时进度 + 节流批量落库），不逐次写库。
+     */
+    private void updateProgress(KbJob job, Long fileId, int progress, String message) {
+        if (kbJobLeaseManager.isLost(job.getId())) {
+            throw new LeaseLostException();
+        }
+        KbJobCancellation.checkpoint();
+        kbJobProgressReporter.report(job.getId(), fileId, job.getJobType(), progress, message);
+    }
+
+    /**
+     * 失败处理：瞬时错误且仍有重试预算时按指数退避重新排队；否则置为终态
+     * （瞬时错误重试耗尽为 DEAD，永久错误为 FAILED）。
+     */
+    private void handleFailure(KbJob job, Long fileId, Exception e) {
+        String errMsg = safeErr(e);
+        String errorClass = kbJobRetryPolicy.classify(e);
+        int attempt = job.getAttemptCount() == null ? 1 : job.getAttemptCount();
+
+        if (kbJobRetryPolicy.canRetry(errorClass, attempt)) {
+            long delayMs = kbJobRetryPolicy.backoffMs(attempt);
+            String msg = "第" + attempt + "次执行失败，" + (delayMs / 1000) + "秒后重试: " + errMsg;
+            kbJobProgressReporter.complete(job.getId());
+            if (!kbJobLeaseManager.reschedule(job.getId(), delayMs, errorClass, msg)) {
+                return;
+            }
+            if (fileId != null) {
+                KbFile f = new KbFile();
+                f.setId(fileId);
+                f.setParseStatus("PENDING");
+                f.setParseProgress(0);
+                f.setParseMessage(msg);
+                f.setUpdateUserId(SYSTEM_USER_ID);
+                kbFileMapper.updateParseStatusProgressMessageById(f);
+            }
+            log.warn("[kb-parse] retry scheduled, jobId={}, fileId={}, attempt={}, delayMs={}",
+                    job.getId(), fileId, attempt, delayMs);
+            return;
+        }
+
+        String status = KbJobRetryPolicy.TRANSIENT.equals(errorClass) ? "DEAD" : "FAILED";
+        markFailed(job.getId(), fileId, status, errorClass,
+                "DEAD".equals(status) ? ("重试" + attempt + "次仍失败: " + errMsg) : errMsg);
     }
 
     private void markFailed(Long jobId, Long fileId, String errMsg) {
+        markFailed(jobId, fileId, "FAILED", KbJobRetryPolicy.PERMANENT, errMsg);
+    }
+
+    private void markFailed(Long jobId, Long fileId, String status, String errorClass, String errMsg) {
         KbJob failed = new KbJob();
         failed.setId(jobId);
-        failed.setStatus("FAILED");
+        failed.setStatus(status);
+        failed.setErrorClass(errorClass);
         failed.setProgress(0);
         failed.setMessage(errMsg);
         failed.setEndTime(new Date());
         failed.setUpdateUserId(SYSTEM_USER_ID);
-        kbJobMapper.updateStatusProgressMessageById(failed);
+        kbJobProgressReporter.complete(jobId);
+        if (!kbJobLeaseManager.update(failed)) {
+            return;
+        }
 
         if (fileId != null) {
             KbFile f = new KbFile();
@@ -273,96 +492,6 @@ public class KbParseJobTimer {
         return s.trim();
     }
 
-    /**
-     * 旧的字符切分方法：保留不删，
-     * 但当前 executeOne 已切换为 ByteChunker。
-     */
-    private List<String> split(String text, int chunkSize, int overlap) {
-        List<String> res = new ArrayList<>();
-        if (text == null) return res;
-
-        text = text.trim();
-        if (text.isEmpty()) return res;
-
-        int n = text.length();
-        int start = 0;
-
-        while (start < n) {
-            int end = Math.min(n, start + chunkSize);
-
-            int cut = end;
-            for (int i = end; i > start; i--) {
-                char c = text.charAt(i - 1);
-                if (c == '\n' || c == '。' || c == '.' || c == '!' || c == '?') {
-                    cut = i;
-                    break;
-                }
-            }
-            if (cut <= start + chunkSize / 2) cut = end;
-
-            String chunk = text.substring(start, cut).trim();
-            if (chunk.length() >= 20) res.add(chunk);
-
-            int nextStart = Math.max(0, cut - overlap);
-            if (nextStart <= start) nextStart = cut;
-            start = nextStart;
-        }
-        return res;
-    }
-
-    // ====================== 索引分发与结果聚合 ======================
-    private IndexSyncResult dispatchIndexSync(Long fileId, Long kbId) {
-        IndexSyncResult result = IndexSyncResult.ok();
-
-        KbLibrary lib = kbLibraryService.getById(kbId);
-        String mode = (lib == null) ? "TEXT_OS" : normalizeIndexMode(lib.getIndexMode());
-
-        log.info("[kb-index] dispatch begin, kbId={}, fileId={}, mode={}", kbId, fileId, mode);
-
-        if ("TEXT_OS".equals(mode) || "HYBRID".equals(mode)) {
-            try {
-                kbChunkIndexService.reindexFile(fileId);
-                log.info("[kb-index] text index sync ok, fileId={}", fileId);
-            } catch (Exception e) {
-                log.error("[kb-index] text index sync failed, fileId={}", fileId, e);
-                result.mergeFail("文本索引失败: " + safeErr(e));
-            }
-        }
-
-        if ("VECTOR".equals(mode) || "HYBRID".equals(mode)) {
-            try {
-                kbVectorIndexService.upsertFile(fileId);
-                log.info("[kb-index] vector index sync ok, fileId={}", fileId);
-            } catch (Exception e) {
-                log.error("[kb-index] vector index sync failed, fileId={}", fileId, e);
-                result.mergeFail("向量索引失败: " + safeErr(e));
-            }
-        }
-
-        log.info("[kb-index] dispatch end, kbId={}, fileId={}, mode={}, ok={}, err={}",
-                kbId, fileId, mode, result.ok, result.errMsg);
-
-        return result;
-    }
-
-    private String normalizeIndexMode(String m) {
-        if (m == null || m.trim().isEmpty()) return "TEXT_OS";
-        m = m.trim().toUpperCase(Locale.ROOT);
-
-        switch (m) {
-            case "BM25":
-                return "TEXT_OS";
-            case "EMBEDDING":
-                return "VECTOR";
-            case "TEXT_OS":
-            case "VECTOR":
-            case "HYBRID":
-                return m;
-            default:
-                return "TEXT_OS";
-        }
-    }
-
     private String safeErr(Exception e) {
         if (e == null) return "unknown";
         String msg = e.getMessage();
@@ -371,25 +500,12 @@ public class KbParseJobTimer {
         return msg;
     }
 
-    private static class IndexSyncResult {
-        private boolean ok;
-        private String errMsg;
-
-        public static IndexSyncResult ok() {
-            IndexSyncResult r = new IndexSyncResult();
-            r.ok = true;
-            r.errMsg = null;
-            return r;
-        }
-
-        public void mergeFail(String msg) {
-            this.ok = false;
-            if (msg == null || msg.trim().isEmpty()) return;
-            if (this.errMsg == null || this.errMsg.trim().isEmpty()) {
-                this.errMsg = msg;
-            } else {
-                this.errMsg = this.errMsg + "；" + msg;
-            }
+    /**
+     * 租约已被回收（本节点心跳中断期间任务被重新排队），放弃本次执行。
+     */
+    private static class LeaseLostException extends RuntimeException {
+        LeaseLostException() {
+            super("lease lost");
         }
     }
 }
@@ -0,0 +1,177 @@
+/**
+ * KB 解析内存预算：按文件大小与类型估算单个解析任务的堆峰值，本节点在途任务的估算之和不超过预算时才领取新任务。
+ *
+ * <p>估算模型：峰值 ≈ baseBytes + fileSize × 文本膨胀比(按扩展名) × bytesPerChar。
+ * 解析期间的大对象主要是提取出的文本（原始串、清洗副本、分段内容及其 UTF-8 字节），与文本字符数成正比；
+ * 文本字符数 / 文件字节数（膨胀比）因类型差异很大（docx 为压缩包，扫描 PDF 几乎无文本），按扩展名分别统计。</p>
+ *
+ * <p>校准：每个解析成功的任务上报实测的提取文本字符数（清洗后全文，不含切片重叠）/ 文件字节数，
+ * 按扩展名做指数滑动平均，存 Redis（多节点共享、重启不丢）。更新时按扩展名加锁、以 Redis 中的当前值为基准计算，
+ * 不会用本节点的旧值覆盖其他节点的样本；本地副本每 kb.parse.memory.calibrationRefreshMs 从 Redis 重新读取。
+ * 没有样本前使用保守默认值。</p>
+ *
+ * <p>准入：{@link #tryAcquire} 在预算内时占用额度；没有在途任务时总是放行（单个超预算的大文件独占执行，不会永远排不上）。
+ * 小文件可以同时执行很多个，大文件自然串行。</p>
+ */
+@Component
+@Slf4j
+public class KbParseMemoryBudget {
+
+    private static final String CALIBRATION_KEY = "KB_PARSE_MEM_CALIBRATION";
+    private static final String CALIBRATION_LOCK_PREFIX = "KB_PARSE_MEM_CALIBRATION_LOCK:";
+    private static final String DEFAULT_EXT = "_default";
+
+    /**
+     * 预算（字节），&lt;=0 表示按 JVM 最大堆 × budgetRatio
+     */
+    @Value("${kb.parse.memory.budgetBytes:0}")
+    private long budgetBytes;
+
+    @Value("${kb.parse.memory.budgetRatio:0.5}")
+    private double budgetRatio;
+
+    /**
+     * 单任务固定开销（解析器实例、缓冲区等，默认 16MB）
+     */
+    @Value("${kb.parse.memory.baseBytes:16777216}")
+    private long baseBytes;
+
+    /**
+     * 每个文本字符对应的堆字节数（多份副本合计）
+     */
+    @Value("${kb.parse.memory.bytesPerChar:12}")
+    private double bytesPerChar;
+
+    /**
+     * 校准滑动平均权重（新样本占比）
+     */
+    @Value("${kb.parse.memory.calibrationAlpha:0.2}")
+    private double calibrationAlpha;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    /** 没有样本时的膨胀比（文本字符数 / 文件字节数），偏保守 */
+    private static final Map<String, Double> DEFAULT_RATIOS = new HashMap<>();
+
+    static {
+        DEFAULT_RATIOS.put("txt", 1.0);
+        DEFAULT_RATIOS.put("md", 1.0);
+        DEFAULT_RATIOS.put("pdf", 0.5);
+        DEFAULT_RATIOS.put("doc", 0.8);
+        DEFAULT_RATIOS.put("docx", 4.0);
+        DEFAULT_RATIOS.put(DEFAULT_EXT, 1.0);
+    }
+
+    private RMap<String, Double> calibration;
+    /** 本地缓存的膨胀比（校准时同步更新） */
+    private final ConcurrentHashMap<String, Double> ratios = new ConcurrentHashMap<>();
+
+    private long budget;
+    private long reserved;
+    private int running;
+
+    @PostConstruct
+    public void init() {
+        budget = budgetBytes > 0 ? budgetBytes : (long) (Runtime.getRuntime().maxMemory() * budgetRatio);
+        calibration = redissonClient.getMap(CALIBRATION_KEY);
+        refreshCalibration();
+        log.info("[kb-parse-memory] init, budgetBytes={}, calibration={}", budget, ratios);
+    }
+
+    /**
+     * 从 Redis 重新读取校准值（合并其他节点的样本）。
+     */
+    @Scheduled(fixedDelayString = "${kb.parse.memory.calibrationRefreshMs:60000}")
+    public void refreshCalibration() {
+        try {
+            ratios.putAll(calibration.readAllMap());
+        } catch (Exception e) {
+            log.warn("[kb-parse-memory] load calibration failed, keep local values", e);
+        }
+    }
+
+    /**
+     * 估算解析该文件的堆峰值（字节）。
+     */
+    public long estimate(String fileExt, Long fileSize) {
+        long size = fileSize == null ? 0L : fileSize;
+        return baseBytes + (long) (size * ratio(fileExt) * bytesPerChar);
+    }
+
+    /**
+     * 尝试占用额度：在途估算之和加上本任务不超过预算，或当前没有在途任务时成功。
+     *
+     * @param estimate 本任务估算（{@link #estimate}）。
+     * @return 成功返回 true，调用方在任务结束后必须 {@link #release}。
+     */
+    public synchronized boolean tryAcquire(long estimate) {
+        if (running > 0 && reserved + estimate > budget) {
+            return false;
+        }
+        reserved += estimate;
+        running++;
+        return true;
+    }
+
+    public synchronized void release(long estimate) {
+        reserved = Math.max(0L, reserved - estimate);
+        running = Math.max(0, running - 1);
+    }
+
+    /**
+     * 用一次成功解析的实际结果校准膨胀比。
+     *
+     * @param fileExt   扩展名。
+     * @param fileSize  文件字节数。
+     * @param textChars 实测提取文本字符数（清洗后全文）。
+     */
+    public void calibrate(String fileExt, Long fileSize, long textChars) {
+        if (fileSize == null || fileSize <= 0) {
+            return;
+        }
+        String key = key(fileExt);
+        double sample = (double) textChars / fileSize;
+        RLock lock = redissonClient.getLock(CALIBRATION_LOCK_PREFIX + key);
+        try {
+            // 校准数据只影响估算精度：拿不到锁时丢弃本样本，不阻塞解析
+            if (!lock.tryLock(1, 5, TimeUnit.SECONDS)) {
+                return;
+            }
+            try {
+                Double old = calibration.get(key);
+                double updated = old == null ? sample : old + calibrationAlpha * (sample - old);
+                calibration.fastPut(key, updated);
+                ratios.put(key, updated);
+            } finally {
+                lock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Redis 异常不影响任务执行
+            log.warn("[kb-parse-memory] save calibration failed, ext={}", key, e);
+        }
+    }
+
+    public synchronized long reservedBytes() {
+        return reserved;
+    }
+
+    public long budgetBytes() {
+        return budget;
+    }
+
+    private double ratio(String fileExt) {
+        String key = key(fileExt);
+        Double r = ratios.get(key);
+        if (r == null) {
+            r = DEFAULT_RATIOS.getOrDefault(key, DEFAULT_RATIOS.get(DEFAULT_EXT));
+        }
+        return r;
+    }
+
+    private String key(String fileExt) {
+        return StrUtil.isBlank(fileExt) ? DEFAULT_EXT : fileExt.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * 大 PDF 分段并行解析：按页码区间切成若干段，各段在独立线程上提取文本并分段切片，最后按页序合并。
+ *
+ * <p>选择规则：仅 PDF；文件大小 &gt;= kb.parse.segment.minFileSize，或页数 &gt;= kb.parse.segment.minPages
+ * （页数只对 &gt;= kb.parse.segment.probeFileSize 的文件探测，避免小文件多打开一次）。不满足时返回 null，调用方走整文件 Tika 提取。</p>
+ *
+ * <p>合并口径：各段文本清洗后以空行（"\n\n"）相连构成整文件文本，chunkIndex 按段序连续编号，
+ * byteStart/byteEnd 加上前序段（含分隔符）的 UTF-8 字节数，与整文件文本上的偏移一致。
+ * 切片窗口不跨段，段边界处没有重叠（每段 kb.parse.segment.pagesPerSegment 页，影响可忽略）。</p>
+ *
+ * <p>资源：段任务在本节点共享线程池（kb.parse.segment.poolSize，默认 CPU 核数）上执行，多个大文件同时解析时共同受限；
+ * PDDocument 非线程安全，每段独立打开，使用临时文件缓存以控制堆内存。取消检查随任务传递（{@link KbJobCancellation#wrap}），逐页检查。</p>
+ */
+@Component
+@Slf4j
+public class KbPdfSegmentParser {
+
+    private static final String SEPARATOR = "\n\n";
+    private static final int SEPARATOR_BYTES = SEPARATOR.getBytes(StandardCharsets.UTF_8).length;
+
+    @Value("${kb.parse.segment.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 达到该大小的 PDF 直接分段（默认 20MB）
+     */
+    @Value("${kb.parse.segment.minFileSize:20971520}")
+    private long minFileSize;
+
+    /**
+     * 达到该页数的 PDF 分段
+     */
+    @Value("${kb.parse.segment.minPages:100}")
+    private int minPages;
+
+    /**
+     * 小于该大小的 PDF 不探测页数（默认 1MB）
+     */
+    @Value("${kb.parse.segment.probeFileSize:1048576}")
+    private long probeFileSize;
+
+    /**
+     * 每段页数
+     */
+    @Value("${kb.parse.segment.pagesPerSegment:25}")
+    private int pagesPerSegment;
+
+    /**
+     * 分段线程数（&lt;=0 表示 CPU 核数）
+     */
+    @Value("${kb.parse.segment.poolSize:0}")
+    private int poolSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        int size = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        executor = ExecutorBuilder.create()
+                .setCorePoolSize(size)
+                .setMaxPoolSize(size)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("kb-pdf-segment-").build())
+                .build();
+        log.info("[kb-pdf-segment] init, poolSize={}, pagesPerSegment={}", size, pagesPerSegment);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 分段并行提取 + 切片。
+     *
+     * @param file       文件。
+     * @param absPath    文件绝对路径。
+     * @param cleaner    文本清洗（与整文件路径一致）。
+     * @param chunker    单段切片（返回的偏移相对于段文本）。
+     * @param onProgress 段完成回调（已完成段数, 总段数），在调用线程上执行。
+     * @param onText     合并后的整文件文本回调（与分段偏移一致，供文本缓存），可为 null。
+     * @return 合并后的分段；不满足分段条件时返回 null。
+     */
+    public List<KbChunkPiece> parse(KbFile file, Path absPath,
+                                    UnaryOperator<String> cleaner,
+                                    Function<String, List<KbChunkPiece>> chunker,
+                                    BiConsumer<Integer, Integer> onProgress,
+                                    Consumer<String> onText) throws Exception {
+        if (!enabled || !isPdf(file) || pagesPerSegment <= 0) {
+            return null;
+        }
+        long size = file.getFileSize() == null ? Files.size(absPath) : file.getFileSize();
+        if (size < probeFileSize && size < minFileSize) {
+            return null;
+        }
+        int pages = countPages(absPath);
+        if (pages <= pagesPerSegment || (size < minFileSize && pages < minPages)) {
+            return null;
+        }
+
+        int total = (pages + pagesPerSegment - 1) / pagesPerSegment;
+        log.info("[kb-pdf-segment] split fileId={}, size={}, pages={}, segments={}", file.getId(), size, pages, total);
+        long begin = System.currentTimeMillis();
+
+        CompletionService<Segment> cs = new ExecutorCompletionService<>(executor);
+        List<Future<Segment>> futures = new ArrayList<>(total);
+        Segment[] segments = new Segment[total];
+        try {
+            for (int i = 0; i < total; i++) {
+                int seq = i;
+                int startPage = i * pagesPerSegment + 1;
+                int endPage = Math.min(pages, startPage + pagesPerSegment - 1);
+                Runnable task = KbJobCancellation.wrap(() -> segments[seq] = extract(absPath, startPage, endPage, cleaner, chunker));
+                futures.add(cs.submit(task, null));
+            }
+            for (int done = 1; done <= total; done++) {
+                try {
+                    cs.take().get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                onProgress.accept(done, total);
+            }
+        } finally {
+            // 任一段失败（或取消、租约丢失）时停止其余段
+            for (Future<Segment> f : futures) {
+                f.cancel(true);
+            }
+        }
+
+        List<KbChunkPiece> result = merge(segments, onText);
+        log.info("[kb-pdf-segment] done fileId={}, segments={}, chunks={}, costMs={}",
+                file.getId(), total, result.size(), System.currentTimeMillis() - begin);
+        return result;
+    }
+
+    private Segment extract(Path absPath, int startPage, int endPage,
+                            UnaryOperator<String> cleaner,
+                            Function<String, List<KbChunkPiece>> chunker) {
+        try (PDDocument doc = PDDocument.load(absPath.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void startPage(PDPage page) throws IOException {
+                    KbJobCancellation.checkpoint();
+                    super.startPage(page);
+                }
+            };
+            stripper.setStartPage(startPage);
+            stripper.setEndPage(endPage);
+            Segment seg = new Segment();
+            seg.text = cleaner.apply(stripper.getText(doc));
+            seg.pieces = seg.text.isEmpty() ? Collections.emptyList() : chunker.apply(seg.text);
+            return seg;
+        } catch (IOException e) {
+            throw new RuntimeException("PDF 分段提取失败(第" + startPage + "-" + endPage + "页): " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按段序合并：连续编号 chunkIndex，偏移换算到整文件文本（段之间以 SEPARATOR 相连，空段跳过）。
+     */
+    private List<KbChunkPiece> merge(Segment[] segments, Consumer<String> onText) {
+        List<KbChunkPiece> result = new ArrayList<>();
+        StringBuilder text = onText == null ? null : new StringBuilder();
+        Integer nextIndex = null;
+        long offset = 0;
+        boolean first = true;
+        for (Segment seg : segments) {
+            if (seg.text.isEmpty()) {
+                continue;
+            }
+            if (!first) {
+                offset += SEPARATOR_BYTES;
+                if (text != null) {
+                    text.append(SEPARATOR);
+                }
+            }
+            first = false;
+            for (KbChunkPiece p : seg.pieces) {
+                if (nextIndex == null) {
+                    // 沿用切片器的起始编号
+                    nextIndex = p.getChunkIndex() == null ? 0 : p.getChunkIndex();
+                }
+                // 父分段与本分段同段，按相同差值换算
+                if (p.getParentChunkIndex() != null) {
+                    p.setParentChunkIndex(p.getParentChunkIndex() + nextIndex - p.getChunkIndex());
+                }
+                p.setChunkIndex(nextIndex++);
+                p.setByteStart(p.getByteStart() == null ? null : p.getByteStart() + offset);
+                p.setByteEnd(p.getByteEnd() == null ? null : p.getByteEnd() + offset);
+                result.add(p);
+            }
+            offset += seg.text.getBytes(StandardCharsets.UTF_8).length;
+            if (text != null) {
+                text.append(seg.text);
+            }
+        }
+        if (text != null) {
+            onText.accept(text.toString());
+        }
+        return result;
+    }
+
+    private int countPages(Path absPath) {
+        try (PDDocument doc = PDDocument.load(absPath.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            return doc.getNumberOfPages();
+        } catch (IOException e) {
+            // 加密/损坏等无法直接打开的文件交给 Tika 整文件处理（错误信息更完整）
+            log.warn("[kb-pdf-segment] page count unavailable, fallback to whole-file parse, path={}, err={}",
+                    absPath, e.getMessage());
+            return 0;
+        }
+    }
+
+    private boolean isPdf(KbFile file) {
+        return "pdf".equalsIgnoreCase(file.getFileExt())
+                || "application/pdf".equalsIgnoreCase(file.getMimeType());
+    }
+
+    private static class Segment {
+        private String text;
+        private List<KbChunkPiece> pieces;
+    }
+}
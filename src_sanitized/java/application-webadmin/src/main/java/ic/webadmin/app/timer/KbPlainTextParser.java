@@ -0,0 +1,145 @@
+/**
+ * 纯文本（txt / md）快速提取：内存映射读取 + 编码识别后直接解码，不经过 Tika 类型探测与 SAX 事件，也没有 2M 字符上限。
+ *
+ * <p>编码识别：BOM（UTF-8 / UTF-16LE / UTF-16BE）优先；无 BOM 时按 UTF-8 严格解码（解码即校验），
+ * 遇到非法字节序列时整体改按 GB18030（GBK 超集）解码。解码按窗口推进，窗口之间检查取消。</p>
+ *
+ * <p>偏移口径：UTF-8 文件只做等长清洗（控制字符、制表符、回车替换为空格，BOM 替换为等字节数的空格），
+ * 文本的 UTF-8 字节与原文件逐字节对齐，切片的 byteStart/byteEnd 即原文件偏移；
+ * 其他编码按通用清洗（{@code cleanText}），偏移相对于 UTF-8 重新编码后的文本，与 Tika 路径一致。</p>
+ *
+ * <p>内存：解码后的全文留在本进程堆上（每字符 2 字节，再加切片副本），因此只处理
+ * {@link KbParseMemoryBudget} 估算值不超过预算、且不超过 kb.parse.plainText.maxFileSize 的文件；
+ * 更大的文件走 Tika 子进程（受其字符上限约束）。等长清洗与 BOM 占位直接写在解码缓冲区里，不额外复制全文。</p>
+ */
+@Component
+@Slf4j
+public class KbPlainTextParser {
+
+    private static final Set<String> PLAIN_EXTS = new HashSet<>(Arrays.asList("txt", "md"));
+    private static final Charset GB18030 = Charset.forName("GB18030");
+    /** 每个解码窗口的字节数（窗口之间检查取消） */
+    private static final int DECODE_WINDOW = 8 * 1024 * 1024;
+
+    @Value("${kb.parse.plainText.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 快速路径处理的最大文件字节数（默认 64MB，更大的文件走 Tika，受其字符上限约束）
+     */
+    @Value("${kb.parse.plainText.maxFileSize:67108864}")
+    private long maxFileSize;
+
+    @Autowired
+    private KbParseMemoryBudget kbParseMemoryBudget;
+
+    /**
+     * 读取纯文本。
+     *
+     * @param file    文件。
+     * @param absPath 文件绝对路径。
+     * @param cleaner 非 UTF-8 文本使用的通用清洗。
+     * @return 清洗后的文本；非纯文本类型或超出大小上限时返回 null，调用方走 Tika 提取。
+     */
+    public String read(KbFile file, Path absPath, UnaryOperator<String> cleaner) throws IOException {
+        if (!enabled || file.getFileExt() == null || !PLAIN_EXTS.contains(file.getFileExt().toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+        long begin = System.currentTimeMillis();
+        try (FileChannel ch = FileChannel.open(absPath, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > maxFileSize || size > Integer.MAX_VALUE
+                    || kbParseMemoryBudget.estimate(file.getFileExt(), size) > kbParseMemoryBudget.budgetBytes()) {
+                return null;
+            }
+            if (size == 0) {
+                return "";
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            Charset charset;
+            int bomLen = 0;
+            if (size >= 3 && (buf.get(0) & 0xFF) == 0xEF && (buf.get(1) & 0xFF) == 0xBB && (buf.get(2) & 0xFF) == 0xBF) {
+                charset = StandardCharsets.UTF_8;
+                bomLen = 3;
+            } else if (size >= 2 && (buf.get(0) & 0xFF) == 0xFF && (buf.get(1) & 0xFF) == 0xFE) {
+                charset = StandardCharsets.UTF_16LE;
+                bomLen = 2;
+            } else if (size >= 2 && (buf.get(0) & 0xFF) == 0xFE && (buf.get(1) & 0xFF) == 0xFF) {
+                charset = StandardCharsets.UTF_16BE;
+                bomLen = 2;
+            } else {
+                charset = StandardCharsets.UTF_8;
+            }
+
+            String text;
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                buf.position(bomLen);
+                try {
+                    // BOM 替换为等字节数的空格，保持与原文件偏移一致
+                    text = decode(buf, charset, CodingErrorAction.REPORT, bomLen, true);
+                } catch (CharacterCodingException e) {
+                    charset = GB18030;
+                    // 跳过 BOM，避免其字节被按 GB18030 解成乱码
+                    buf.limit((int) size).position(bomLen);
+                    text = cleaner.apply(decode(buf, charset, CodingErrorAction.REPLACE, 0, false));
+                }
+            } else {
+                buf.position(bomLen);
+                text = cleaner.apply(decode(buf, charset, CodingErrorAction.REPLACE, 0, false));
+            }
+            log.info("[kb-plain-text] fileId={}, size={}, charset={}, chars={}, costMs={}",
+                    file.getId(), size, charset.name(), text.length(), System.currentTimeMillis() - begin);
+            return text;
+        }
+    }
+
+    /**
+     * 按窗口解码（窗口末尾被截断的多字节序列留到下一窗口）。
+     *
+     * @param padding    输出开头预留的空格数（BOM 占位）。
+     * @param sameLength 是否在解码缓冲区内就地做等长清洗。
+     */
+    private String decode(ByteBuffer in, Charset charset, CodingErrorAction action,
+                          int padding, boolean sameLength) throws CharacterCodingException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(action)
+                .onUnmappableCharacter(action);
+        int end = in.limit();
+        CharBuffer out = CharBuffer.allocate(
+                padding + (int) Math.ceil((end - in.position()) * (double) decoder.maxCharsPerByte()) + 1);
+        for (int i = 0; i < padding; i++) {
+            out.put(' ');
+        }
+        while (true) {
+            int windowEnd = (int) Math.min(end, (long) in.position() + DECODE_WINDOW);
+            boolean last = windowEnd == end;
+            in.limit(windowEnd);
+            CoderResult r = decoder.decode(in, out, last);
+            if (r.isError()) {
+                r.throwException();
+            }
+            if (last) {
+                break;
+            }
+            KbJobCancellation.checkpoint();
+        }
+        decoder.flush(out);
+        if (sameLength) {
+            normalizeSameLength(out.array(), padding, out.position());
+        }
+        out.flip();
+        return out.toString();
+    }
+
+    /**
+     * 等长清洗：单字节控制字符（含制表符、回车）替换为空格，不改变 UTF-8 字节长度。
+     */
+    private void normalizeSameLength(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (chars[i] < 0x20 && chars[i] != '\n') {
+                chars[i] = ' ';
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * KB 库级重建索引定时任务（REINDEX_KB Job 执行器）。
+ *
+ * <p>职责：
+ * <ul>
+ *   <li>每 5 秒扫描待执行任务（KbJob: status=PENDING 且 jobType=REINDEX_KB），按优先级通道 + 知识库轮转选取、按空闲线程数领取。</li>
+ *   <li>按文件 id 升序逐个处理知识库下解析成功的文件：同步后端（TEXT）按 chunkIndex 分批写入；
+ *       推迟后端（VECTOR）只入队 VECTOR_INDEX 任务，由 {@link KbVectorIndexJobTimer} 按限流速率写入。</li>
+ *   <li>进度（已处理文件数/总文件数）经 {@link KbJobProgressReporter} 上报，任务表 PROGRESS / MESSAGE 节流落库。</li>
+ * </ul>
+ *
+ * <p>断点续跑：每写完一批记录（CHECKPOINT_FILE_ID, CHECKPOINT_CHUNK_INDEX），文件处理完后 chunkIndex 置空；
+ * 节点重启、租约过期或瞬时错误重试后从断点继续，不再清旧、不重复写入已完成的文件。
+ * 只有一个同步后端时断点精确到 chunk，多个同步后端时断点精确到文件（断点文件整文件重做，依赖写入幂等）。</p>
+ *
+ * <p>取消：文件之间与批量写入之间检查取消标记；库级清旧后被取消的知识库索引不完整，需重新发起重建。</p>
+ */
+@EnableScheduling
+@Component
+@Slf4j
+public class KbReindexJobTimer {
+
+    private static final long SYSTEM_USER_ID = 0L;
+    private static final int FILE_PAGE_SIZE = 200;
+
+    /**
+     * 库级重建工作线程数（同时重建的知识库数）
+     */
+    @Value("${kb.reindex.job.poolSize:1}")
+    private int poolSize;
+
+    @Autowired
+    private KbJobLeaseManager kbJobLeaseManager;
+    @Autowired
+    private KbJobScheduler kbJobScheduler;
+    @Autowired
+    private KbJobRetryPolicy kbJobRetryPolicy;
+    @Autowired
+    private KbJobProgressReporter kbJobProgressReporter;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+    @Autowired
+    private KbIndexBackendRegistry kbIndexBackendRegistry;
+
+    private ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        executor = ExecutorBuilder.create()
+                .setCorePoolSize(poolSize)
+                .setMaxPoolSize(poolSize)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("kb-reindex-").build())
+                .build();
+        log.info("[kb-reindex-job] init, poolSize={}", poolSize);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Scheduled(cron = "*/5 * * * * ?")
+    public void execute() {
+        try {
+            int free = poolSize - inFlight.get();
+            if (free <= 0) {
+                return;
+            }
+
+            List<KbJob> jobList = kbJobScheduler.pickNext("REINDEX_KB", free);
+            for (KbJob job : jobList) {
+                if (!kbJobLeaseManager.claim(job)) {
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        KbJobCancellation.bind(() -> kbJobLeaseManager.isCancelRequested(job.getId()));
+                        try {
+                            executeOne(job);
+                        } finally {
+                            KbJobCancellation.unbind();
+                            kbJobLeaseManager.release(job.getId());
+                            inFlight.decrementAndGet();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    kbJobLeaseManager.release(job.getId());
+                    inFlight.decrementAndGet();
+                    // 本节点关闭中：立即放回队列，由其他节点接手（不计入失败，断点保留）
+                    kbJobLeaseManager.requeueUnstarted(job.getId(), "节点关闭，重新排队");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to call KbReindexJobTimer.execute", e);
+        }
+    }
+
+    private void executeOne(KbJob job) {
+        Long kbId = job.getKbId();
+        if (kbId == null) {
+            markFailed(job.getId(), KbJobRetryPolicy.PERMANENT, "kbId为空");
+            return;
+        }
+        List<KbIndexBackend> backends = kbIndexBackendRegistry.backendsFor(kbId, parseBackendNames(job.getJobParam()));
+        if (backends.isEmpty()) {
+            markFailed(job.getId(), KbJobRetryPolicy.PERMANENT, "未找到可用的索引后端: " + job.getJobParam());
+            return;
+        }
+        List<KbIndexBackend> syncBackends = new ArrayList<>();
+        List<KbIndexBackend> deferredBackends = new ArrayList<>();
+        for (KbIndexBackend b : backends) {
+            if (b.deferredInParse()) {
+                deferredBackends.add(b);
+            } else {
+                syncBackends.add(b);
+            }
+        }
+
+        long begin = System.currentTimeMillis();
+        Long cpFileId = job.getCheckpointFileId();
+        Integer cpChunkIndex = job.getCheckpointChunkIndex();
+        try {
+            int total = kbFileMapper.countByKbIdActive(kbId, null);
+            int done = 0;
+            if (cpFileId == null) {
+                // 首次执行：清旧（续跑时已清过，不再清）
+                for (KbIndexBackend b : syncBackends) {
+                    b.clearKb(kbId);
+                }
+            } else {
+                done = kbFileMapper.countByKbIdActive(kbId, cpFileId);
+                if (cpChunkIndex != null) {
+                    // 断点文件未处理完：先续跑该文件
+                    indexOneFile(job, syncBackends, deferredBackends, cpFileId, cpChunkIndex);
+                }
+                log.info("[kb-reindex-job] resume, jobId={}, kbId={}, checkpointFileId={}, checkpointChunkIndex={}",
+                        job.getId(), kbId, cpFileId, cpChunkIndex);
+            }
+            reportProgress(job.getId(), done, total);
+
+            long afterId = cpFileId == null ? 0L : cpFileId;
+            while (true) {
+                List<Long> fileIds = kbFileMapper.selectIdsByKbIdActiveAfter(kbId, afterId, FILE_PAGE_SIZE);
+                if (CollUtil.isEmpty(fileIds)) {
+                    break;
+                }
+                for (Long fileId : fileIds) {
+                    KbJobCancellation.checkpoint();
+                    indexOneFile(job, syncBackends, deferredBackends, fileId, -1);
+                    done++;
+                    reportProgress(job.getId(), done, total);
+                }
+                afterId = fileIds.get(fileIds.size() - 1);
+            }
+
+            for (KbIndexBackend b : syncBackends) {
+                b.finishKb(kbId);
+            }
+
+            String finalMsg = "重建完成，共 " + done + " 个文件"
+                    + (deferredBackends.isEmpty() ? "" : "(向量索引排队中)");
+            KbJob successJob = new KbJob();
+            successJob.setId(job.getId());
+            successJob.setStatus("SUCCESS");
+            successJob.setProgress(100);
+            successJob.setMessage(finalMsg);
+            successJob.setEndTime(new Date());
+            successJob.setUpdateUserId(SYSTEM_USER_ID);
+            kbJobProgressReporter.complete(job.getId());
+            kbJobLeaseManager.update(successJob);
+            log.info("[kb-reindex-job] done, jobId={}, kbId={}, files={}, costMs={}",
+                    job.getId(), kbId, done, System.currentTimeMillis() - begin);
+        } catch (LeaseLostException e) {
+            log.warn("[kb-reindex-job] abandoned (lease lost), jobId={}, kbId={}", job.getId(), kbId);
+        } catch (Exception e) {
+            if (kbJobLeaseManager.isCancelRequested(job.getId())) {
+                handleCancelled(job);
+                return;
+            }
+            log.error("[kb-reindex-job] failed, jobId={}, kbId={}", job.getId(), kbId, e);
+            handleFailure(job, e);
+        }
+    }
+
+    /**
+     * 处理单个文件：同步后端从 afterChunkIndex 之后分批写入并记录断点，推迟后端入队；完成后断点推进到下一文件。
+     */
+    private void indexOneFile(KbJob job, List<KbIndexBackend> syncBackends, List<KbIndexBackend> deferredBackends,
+                              Long fileId, int afterChunkIndex) {
+        // 多个同步后端共用一个断点时无法精确到 chunk：整文件重做，文件内不记录断点
+        boolean chunkCheckpoint = syncBackends.size() == 1;
+        int after = chunkCheckpoint ? afterChunkIndex : -1;
+        for (KbIndexBackend b : syncBackends) {
+            b.indexFileFrom(fileId, after, chunkIndex -> {
+                if (chunkCheckpoint) {
+                    saveCheckpoint(job.getId(), fileId, chunkIndex);
+                }
+            });
+        }
+        for (KbIndexBackend b : deferredBackends) {
+            b.enqueueFile(fileId);
+        }
+        saveCheckpoint(job.getId(), fileId, null);
+    }
+
+    private void saveCheckpoint(Long jobId, Long fileId, Integer chunkIndex) {
+        if (!kbJobLeaseManager.checkpoint(jobId, fileId, chunkIndex)) {
+            throw new LeaseLostException();
+        }
+    }
+
+    private void reportProgress(Long jobId, int done, int total) {
+        if (kbJobLeaseManager.isLost(jobId)) {
+            throw new LeaseLostException();
+        }
+        int progress = total <= 0 ? 99 : Math.min(99, done * 100 / total);
+        kbJobProgressReporter.report(jobId, null, "REINDEX_KB", progress, "已处理 " + done + "/" + total + " 个文件");
+    }
+
+    private List<String> parseBackendNames(String jobParam) {
+        List<String> names = new ArrayList<>();
+        if (StrUtil.isBlank(jobParam)) {
+            return names;
+        }
+        for (String s : StrUtil.split(jobParam, ',')) {
+            if (StrUtil.isNotBlank(s)) {
+                names.add(s.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        return names;
+    }
+
+    private void handleCancelled(KbJob job) {
+        log.info("[kb-reindex-job] job cancelled, jobId={}, kbId={}", job.getId(), job.getKbId());
+        KbJob cancelled = new KbJob();
+        cancelled.setId(job.getId());
+        cancelled.setStatus("CANCELLED");
+        cancelled.setMessage("已取消(索引可能不完整，可重新发起重建)");
+        cancelled.setEndTime(new Date());
+        cancelled.setUpdateUserId(SYSTEM_USER_ID);
+        kbJobProgressReporter.complete(job.getId());
+        kbJobLeaseManager.update(cancelled);
+    }
+
+    /**
+     * 失败处理：瞬时错误且仍有重试预算时按指数退避重新排队（断点保留，重试从断点续跑）；否则置为终态。
+     */
+    private void handleFailure(KbJob job, Exception e) {
+        String errMsg = safeErr(e);
+        String errorClass = kbJobRetryPolicy.classify(e);
+        int attempt = job.getAttemptCount() == null ? 1 : job.getAttemptCount();
+
+        if (kbJobRetryPolicy.canRetry(errorClass, attempt)) {
+            long delayMs = kbJobRetryPolicy.backoffMs(attempt);
+            String msg = "第" + attempt + "次执行失败，" + (delayMs / 1000) + "秒后从断点重试: " + errMsg;
+            kbJobProgressReporter.complete(job.getId());
+            if (kbJobLeaseManager.reschedule(job.getId(), delayMs, errorClass, msg)) {
+                log.warn("[kb-reindex-job] retry scheduled, jobId={}, kbId={}, attempt={}, delayMs={}",
+                        job.getId(), job.getKbId(), attempt, delayMs);
+            }
+            return;
+        }
+
+        boolean dead = KbJobRetryPolicy.TRANSIENT.equals(errorClass);
+        markFailed(job.getId(), dead ? "DEAD" : "FAILED", errorClass,
+                dead ? ("重试" + attempt + "次仍失败: " + errMsg) : errMsg);
+    }
+
+    private void markFailed(Long jobId, String errorClass, String errMsg) {
+        markFailed(jobId, "FAILED", errorClass, errMsg);
+    }
+
+    private void markFailed(Long jobId, String status, String errorClass, String errMsg) {
+        KbJob failed = new KbJob();
+        failed.setId(jobId);
+        failed.setStatus(status);
+        failed.setErrorClass(errorClass);
+        failed.setMessage(errMsg);
+        failed.setEndTime(new Date());
+        failed.setUpdateUserId(SYSTEM_USER_ID);
+        kbJobProgressReporter.complete(jobId);
+        kbJobLeaseManager.update(failed);
+    }
+
+    private String safeErr(Exception e) {
+        if (e == null) return "unknown";
+        String msg = e.getMessage();
+        if (msg == null || msg.trim().isEmpty()) msg = e.getClass().getSimpleName();
+        if (msg.length() > 500) msg = msg.substring(0, 500);
+        return msg;
+    }
+
+    /**
+     * 租约已被回收（本节点心跳中断期间任务被重新排队），放弃本次执行（断点已落库，新持有者从断点继续）。
+     */
+    private static class LeaseLostException extends RuntimeException {
+        LeaseLostException() {
+            super("lease lost");
+        }
+    }
+}
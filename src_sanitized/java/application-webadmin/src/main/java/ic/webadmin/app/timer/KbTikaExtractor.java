@@ -0,0 +1,215 @@
+/**
+ * Tika 文本提取（隔离子进程）：提取在 Tika ForkParser 管理的子 JVM 池中执行，畸形 / 压缩炸弹类文档不再拖垮解析节点。
+ *
+ * <p>边界：
+ * <ul>
+ *   <li>时间：单个文档提取超过 kb.parse.fork.timeoutMs 时子进程被终止，任务以永久错误失败（不重试）。</li>
+ *   <li>内存：子进程堆上限 kb.parse.fork.maxHeap，超限时只有子进程退出，本节点堆不受影响。</li>
+ *   <li>输出：提取文本超过 kb.parse.maxChars 字符时截断保留前部（记录日志），不再整体失败。</li>
+ *   <li>回收：每个子进程处理 kb.parse.fork.maxFilesPerProcess 个文档后重建，避免解析器内部泄漏累积。</li>
+ * </ul>
+ * 子进程池大小 kb.parse.fork.poolSize（默认 CPU 核数，与解析线程数一致），池满时调用方在本类的许可上等待空闲子进程
+ * （可中断，且不计入提取耗时）。</p>
+ *
+ * <p>失败归类：只有子进程一侧的失败（解析器报错、子进程崩溃 / 内存溢出退出、超时被终止）转为
+ * {@link ExtractionFailedException}（永久错误）；打开文件、启动子进程、等待中断等本节点一侧的异常原样抛出，交给重试策略。</p>
+ *
+ * <p>子进程启动方式：配置了 kb.parse.fork.tikaBin（tika-app 等 jar 所在目录）时按 classpath 直接启动（推荐，启动快）；
+ * 未配置时由父进程通过类加载器代理把解析器类传给子进程。kb.parse.fork.enabled=false 时退回进程内提取（仍有输出上限）。</p>
+ *
+ * <p>标题：h1~h6 输出为独占一行的 Markdown 标题（"# 标题"），供按结构切片（{@link KbStructureChunker}）识别章节；
+ * 标记与切片方式无关、始终输出，提取文本缓存不随切片方式变化。</p>
+ *
+ * <p>取消：内容回调中检查取消标记（{@link KbJobCancellation}）。</p>
+ */
+@Component
+@Slf4j
+public class KbTikaExtractor {
+
+    @Value("${kb.parse.fork.enabled:true}")
+    private boolean forkEnabled;
+
+    /**
+     * 子进程池大小（&lt;=0 表示 CPU 核数）
+     */
+    @Value("${kb.parse.fork.poolSize:0}")
+    private int poolSize;
+
+    @Value("${kb.parse.fork.javaCommand:java}")
+    private String javaCommand;
+
+    /**
+     * 子进程最大堆
+     */
+    @Value("${kb.parse.fork.maxHeap:512m}")
+    private String maxHeap;
+
+    /**
+     * 单个文档提取超时（毫秒）
+     */
+    @Value("${kb.parse.fork.timeoutMs:120000}")
+    private long timeoutMs;
+
+    /**
+     * 每个子进程处理多少个文档后重建
+     */
+    @Value("${kb.parse.fork.maxFilesPerProcess:100}")
+    private int maxFilesPerProcess;
+
+    /**
+     * tika-app 等 jar 所在目录（为空时使用类加载器代理模式）
+     */
+    @Value("${kb.parse.fork.tikaBin:}")
+    private String tikaBin;
+
+    /**
+     * 提取文本最大字符数（超出截断）
+     */
+    @Value("${kb.parse.maxChars:2000000}")
+    private int maxChars;
+
+    private ForkParser forkParser;
+    /** 子进程许可（与池大小一致，ForkParser 自身不再阻塞等待） */
+    private Semaphore forkPermits;
+
+    @PostConstruct
+    public void init() {
+        if (!forkEnabled) {
+            log.info("[kb-tika] fork disabled, extract in process, maxChars={}", maxChars);
+            return;
+        }
+        int size = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        if (StrUtil.isNotBlank(tikaBin)) {
+            forkParser = new ForkParser(Paths.get(tikaBin),
+                    new ParserFactoryFactory("org.apache.tika.parser.AutoDetectParserFactory", new HashMap<>()));
+        } else {
+            forkParser = new ForkParser(KbTikaExtractor.class.getClassLoader(), new AutoDetectParser());
+        }
+        forkParser.setJavaCommand(Arrays.asList(javaCommand, "-Xmx" + maxHeap, "-Djava.awt.headless=true"));
+        forkParser.setPoolSize(size);
+        forkParser.setServerParseTimeoutMillis(timeoutMs);
+        forkParser.setMaxFilesProcessedPerServer(maxFilesPerProcess);
+        forkPermits = new Semaphore(size, true);
+        log.info("[kb-tika] fork enabled, poolSize={}, maxHeap={}, timeoutMs={}, maxFilesPerProcess={}, tikaBin={}, maxChars={}",
+                size, maxHeap, timeoutMs, maxFilesPerProcess, tikaBin, maxChars);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (forkParser != null) {
+            forkParser.close();
+        }
+    }
+
+    /**
+     * 提取原始文本（未清洗）。
+     *
+     * @param file    文件（日志用）。
+     * @param absPath 文件绝对路径。
+     * @return 原始文本（超出上限时为截断后的前部）。
+     */
+    public String extract(KbFile file, Path absPath) throws Exception {
+        WriteOutContentHandler out = new WriteOutContentHandler(maxChars);
+        ContentHandler handler = new CancellableContentHandler(new HeadingMarkupHandler(new BodyContentHandler(out)));
+        if (forkParser == null) {
+            try (InputStream in = Files.newInputStream(absPath)) {
+                new AutoDetectParser().parse(in, handler, new Metadata(), new ParseContext());
+            } catch (Exception e) {
+                if (out.isWriteLimitReached(e)) {
+                    log.warn("[kb-tika] text truncated at {} chars, fileId={}", maxChars, file.getId());
+                    return out.toString();
+                }
+                throw e;
+            }
+            return out.toString();
+        }
+        // 打开文件失败、等待子进程被中断均为本节点问题，原样抛出
+        try (InputStream in = Files.newInputStream(absPath)) {
+            forkPermits.acquire();
+            try {
+                long begin = System.currentTimeMillis();
+                try {
+                    forkParser.parse(in, handler, new Metadata(), new ParseContext());
+                } catch (TikaException | SAXException e) {
+                    if (out.isWriteLimitReached(e)) {
+                        log.warn("[kb-tika] text truncated at {} chars, fileId={}", maxChars, file.getId());
+                        return out.toString();
+                    }
+                    if (KbJobCancellation.isCancelled() || e.getCause() instanceof InterruptedException) {
+                        throw e;
+                    }
+                    long cost = System.currentTimeMillis() - begin;
+                    // 与子进程通信中断（TikaException 包装 IOException）：子进程崩溃、内存溢出退出或超时被终止
+                    boolean died = e instanceof TikaException && e.getCause() instanceof IOException;
+                    throw new ExtractionFailedException(died && cost >= timeoutMs
+                            ? "文本提取超时(>" + timeoutMs + "ms)，文档可能损坏或过于复杂"
+                            : "文本提取失败(隔离进程): " + e.getMessage(), e);
+                }
+            } finally {
+                forkPermits.release();
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * 隔离进程内提取失败（文档问题，按永久错误处理，见 {@link KbJobRetryPolicy#classify}）。
+     */
+    public static class ExtractionFailedException extends RuntimeException {
+        ExtractionFailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * 把 XHTML 的 h1~h6 转为 Markdown 标题行：开始标签前输出换行 + 对应个数的 #，结束标签后输出换行。
+     */
+    private static class HeadingMarkupHandler extends ContentHandlerDecorator {
+        HeadingMarkupHandler(ContentHandler handler) {
+            super(handler);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            super.startElement(uri, localName, qName, atts);
+            int level = headingLevel(localName);
+            if (level > 0) {
+                char[] mark = ("\n" + StrUtil.repeat('#', level) + " ").toCharArray();
+                super.characters(mark, 0, mark.length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (headingLevel(localName) > 0) {
+                super.characters(new char[]{'\n'}, 0, 1);
+            }
+            super.endElement(uri, localName, qName);
+        }
+
+        private static int headingLevel(String localName) {
+            if (localName != null && localName.length() == 2 && localName.charAt(0) == 'h'
+                    && localName.charAt(1) >= '1' && localName.charAt(1) <= '6') {
+                return localName.charAt(1) - '0';
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Tika 内容回调中检查取消：每次输出文本时检查一次（只读本地集合，开销可忽略）。
+     */
+    private static class CancellableContentHandler extends ContentHandlerDecorator {
+        CancellableContentHandler(ContentHandler handler) {
+            super(handler);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (KbJobCancellation.isCancelled()) {
+                throw new SAXException(new KbJobCancellation.CancelledException());
+            }
+            super.characters(ch, start, length);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * KB 向量索引定时任务（VECTOR_INDEX Job 执行器）。
+ *
+ * <p>职责：
+ * <ul>
+ *   <li>每 2 秒扫描待执行任务（KbJob: status=PENDING 且 jobType=VECTOR_INDEX），按优先级通道 + 知识库轮转选取、按空闲线程数领取。</li>
+ *   <li>在独立线程池中执行 {@link KbVectorIndexService#upsertFile}，与解析任务（PARSE_FILE）互不占用线程。</li>
+ *   <li>维护任务表状态与文件表向量状态（vectorIndexStatus / vectorIndexMessage / vectorIndexedTime）。</li>
+ * </ul>
+ *
+ * <p>限流：
+ * <ul>
+ *   <li>使用 Redisson RRateLimiter（OVERALL，集群共享），按 chunk 数申请配额，
+ *       整体写入速率不超过 kb.vector.job.chunksPerSecond（embedding 服务可承受的速率）。</li>
+ *   <li>配额不足时工作线程阻塞等待，未领取的任务继续留在 PENDING 排队，自然形成背压。</li>
+ * </ul>
+ *
+ * <p>取消：等待限流配额的每个分片之间、写入向量库之前检查取消标记，取消后任务与文件向量状态置为 CANCELLED；
+ * 写入已完成的任务不再响应取消（向量服务按文件清旧重写，下次写入会覆盖）。</p>
+ *
+ * <p>分布式：通过 {@link KbJobLeaseManager} 以 CAS 领取任务并持有租约（心跳续期），
+ * 各节点并发领取互不重复；节点宕机后租约过期由清扫任务重新排队。</p>
+ */
+@EnableScheduling
+@Component
+@Slf4j
+public class KbVectorIndexJobTimer {
+
+    private static final long SYSTEM_USER_ID = 0L;
+    private static final String RATE_LIMITER_KEY = "KB_VECTOR_INDEX_RATE:";
+
+    /**
+     * 向量任务工作线程数（同时执行的文件数）
+     */
+    @Value("${kb.vector.job.poolSize:4}")
+    private int poolSize;
+
+    /**
+     * 集群整体 embedding 写入速率（chunk/秒）
+     */
+    @Value("${kb.vector.job.chunksPerSecond:50}")
+    private int chunksPerSecond;
+
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private KbJobLeaseManager kbJobLeaseManager;
+    @Autowired
+    private KbJobScheduler kbJobScheduler;
+    @Autowired
+    private KbJobRetryPolicy kbJobRetryPolicy;
+    @Autowired
+    private KbJobProgressReporter kbJobProgressReporter;
+    @Autowired
+    private KbFileMapper kbFileMapper;
+    @Autowired
+    private KbChunkMapper kbChunkMapper;
+    @Autowired
+    private KbVectorIndexService kbVectorIndexService;
+
+    private RRateLimiter rateLimiter;
+    private ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        // key 带上速率：trySetRate 仅在未设置时生效，改配置后使用新 key 即可生效
+        rateLimiter = redissonClient.getRateLimiter(RATE_LIMITER_KEY + chunksPerSecond);
+        rateLimiter.trySetRate(RateType.OVERALL, chunksPerSecond, 1, RateIntervalUnit.SECONDS);
+        executor = ExecutorBuilder.create()
+                .setCorePoolSize(poolSize)
+                .setMaxPoolSize(poolSize)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("kb-vector-index-").build())
+                .build();
+        log.info("[kb-vector-job] init, poolSize={}, chunksPerSecond={}", poolSize, chunksPerSecond);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Scheduled(cron = "*/2 * * * * ?")
+    public void execute() {
+        try {
+            int free = poolSize - inFlight.get();
+            if (free <= 0) {
+                return;
+            }
+
+            // 优先级通道 + 按知识库轮转选取（见 KbJobScheduler）
+            List<KbJob> jobList = kbJobScheduler.pickNext("VECTOR_INDEX", free);
+            for (KbJob job : jobList) {
+                if (!kbJobLeaseManager.claim(job)) {
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                try {
+                    executor.execute(() -> {
+                        KbJobCancellation.bind(() -> kbJobLeaseManager.isCancelRequested(job.getId()));
+                        try {
+                            executeOne(job);
+                        } finally {
+                            KbJobCancellation.unbind();
+                            kbJobLeaseManager.release(job.getId());
+                            inFlight.decrementAndGet();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    kbJobLeaseManager.release(job.getId());
+                    inFlight.decrementAndGet();
+                    // 本节点关闭中：立即放回队列，由其他节点接手（不计入失败）
+                    kbJobLeaseManager.requeueUnstarted(job.getId(), "节点关闭，重新排队");
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to call KbVectorIndexJobTimer.execute", e);
+        }
+    }
+
+    private void executeOne(KbJob job) {
+        Long fileId = job.getTargetId();
+        if (fileId == null) {
+            markFailed(job.getId(), null, "targetId为空，无法关联文件");
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        try {
+            KbFile indexing = new KbFile();
+            indexing.setId(fileId);
+            indexing.setVectorIndexStatus("INDEXING");
+            indexing.setVectorIndexMessage("向量索引中");
+            indexing.setUpdateUserId(SYSTEM_USER_ID);
+            kbFileMapper.updateVectorIndexStatusById(indexing);
+
+            // 1) 按 chunk 数申请限流配额（单次申请不能超过速率上限，分片申请）
+            int remaining = kbChunkMapper.countByFileIdActive(fileId);
+            while (remaining > 0) {
+                KbJobCancellation.checkpoint();
+                int permits = Math.min(remaining, chunksPerSecond);
+                rateLimiter.acquire(permits);
+                remaining -= permits;
+            }
+            updateJobProgress(job.getId(), 50, "写入向量库");
+
+            // 2) embedding + upsert
+            KbJobCancellation.checkpoint();
+            kbVectorIndexService.upsertFile(fileId);
+
+            KbJob successJob = new KbJob();
+            successJob.setId(job.getId());
+            successJob.setStatus("SUCCESS");
+            successJob.setProgress(100);
+            successJob.setMessage("向量索引完成");
+            successJob.setEndTime(new Date());
+            successJob.setUpdateUserId(SYSTEM_USER_ID);
+            kbJobProgressReporter.complete(job.getId());
+            if (!kbJobLeaseManager.update(successJob)) {
+                return;
+            }
+
+            KbFile successFile = new KbFile();
+            successFile.setId(fileId);
+            successFile.setVectorIndexStatus("SUCCESS");
+            successFile.setVectorIndexMessage("向量索引完成");
+            successFile.setVectorIndexedTime(new Date());
+            successFile.setUpdateUserId(SYSTEM_USER_ID);
+            kbFileMapper.updateVectorIndexStatusById(successFile);
+
+            log.info("[kb-vector-job] done, jobId={}, fileId={}, costMs={}",
+                    job.getId(), fileId, System.currentTimeMillis() - begin);
+        } catch (Exception e) {
+            if (kbJobLeaseManager.isCancelRequested(job.getId())) {
+                handleCancelled(job, fileId);
+                return;
+            }
+            log.error("[kb-vector-job] failed, jobId={}, fileId={}", job.getId(), fileId, e);
+            handleFailure(job, fileId, e);
+        }
+    }
+
+    private void handleCancelled(KbJob job, Long fileId) {
+        log.info("[kb-vector-job] job cancelled, jobId={}, fileId={}", job.getId(), fileId);
+        String msg = "已取消";
+        KbJob cancelled = new KbJob();
+        cancelled.setId(job.getId());
+        cancelled.setStatus("CANCELLED");
+        cancelled.setMessage(msg);
+        cancelled.setEndTime(new Date());
+        cancelled.setUpdateUserId(SYSTEM_USER_ID);
+        kbJobProgressReporter.complete(job.getId());
+        if (!kbJobLeaseManager.update(cancelled)) {
+            return;
+        }
+        KbFile f = new KbFile();
+        f.setId(fileId);
+        f.setVectorIndexStatus("CANCELLED");
+        f.setVectorIndexMessage(msg);
+        f.setUpdateUserId(SYSTEM_USER_ID);
+        kbFileMapper.updateVectorIndexStatusById(f);
+    }
+
+    private void updateJobProgress(Long jobId, int progress, String message) {
+        kbJobProgressReporter.report(jobId, null, "VECTOR_INDEX", progress, message);
+    }
+
+    /**
+     * 失败处理：瞬时错误且仍有重试预算时按指数退避重新排队；否则置为终态
+     * （瞬时错误重试耗尽为 DEAD，永久错误为 FAILED）。
+     */
+    private void handleFailure(KbJob job, Long fileId, Exception e) {
+        String errMsg = safeErr(e);
+        String errorClass = kbJobRetryPolicy.classify(e);
+        int attempt = job.getAttemptCount() == null ? 1 : job.getAttemptCount();
+
+        if (kbJobRetryPolicy.canRetry(errorClass, attempt)) {
+            long delayMs = kbJobRetryPolicy.backoffMs(attempt);
+            String msg = "第" + attempt + "次执行失败，" + (delayMs / 1000) + "秒后重试: " + errMsg;
+            kbJobProgressReporter.complete(job.getId());
+            if (!kbJobLeaseManager.reschedule(job.getId(), delayMs, errorClass, msg)) {
+                return;
+            }
+            if (fileId != null) {
+                KbFile f = new KbFile();
+                f.setId(fileId);
+                f.setVectorIndexStatus("PENDING");
+                f.setVectorIndexMessage(msg);
+                f.setUpdateUserId(SYSTEM_USER_ID);
+                kbFileMapper.updateVectorIndexStatusById(f);
+            }
+            log.warn("[kb-vector-job] retry scheduled, jobId={}, fileId={}, attempt={}, delayMs={}",
+                    job.getId(), fileId, attempt, delayMs);
+            return;
+        }
+
+        String status = KbJobRetryPolicy.TRANSIENT.equals(errorClass) ? "DEAD" : "FAILED";
+        markFailed(job.getId(), fileId, status, errorClass,
+                "DEAD".equals(status) ? ("重试" + attempt + "次仍失败: " + errMsg) : errMsg);
+    }
+
+    private void markFailed(Long jobId, Long fileId, String errMsg) {
+        markFailed(jobId, fileId, "FAILED", KbJobRetryPolicy.PERMANENT, errMsg);
+    }
+
+    private void markFailed(Long jobId, Long fileId, String status, String errorClass, String errMsg) {
+        KbJob failed = new KbJob();
+        failed.setId(jobId);
+        failed.setStatus(status);
+        failed.setErrorClass(errorClass);
+        failed.setProgress(0);
+        failed.setMessage(errMsg);
+        failed.setEndTime(new Date());
+        failed.setUpdateUserId(SYSTEM_USER_ID);
+        kbJobProgressReporter.complete(jobId);
+        if (!kbJobLeaseManager.update(failed)) {
+            return;
+        }
+
+        if (fileId != null) {
+            KbFile f = new KbFile();
+            f.setId(fileId);
+            f.setVectorIndexStatus("FAILED");
+            f.setVectorIndexMessage(errMsg);
+            f.setUpdateUserId(SYSTEM_USER_ID);
+            kbFileMapper.updateVectorIndexStatusById(f);
+        }
+    }
+
+    private String safeErr(Exception e) {
+        if (e == null) return "unknown";
+        String msg = e.getMessage();
+        if (msg == null || msg.trim().isEmpty()) msg = e.getClass().getSimpleName();
+        if (msg.length() > 500) msg = msg.substring(0, 500);
+        return msg;
+    }
+}
@@ -57,6 +57,11 @@ public class KbFileVo extends BaseVo {
      */
     private String storagePath;
 
+    /**
+     * 文件内容 SHA-256。
+     */
+    private String contentSha256;
+
     /**
      * 解析状态(PENDING: 待解析 PARSING: 解析中 SUCCESS: 成功 FAILED: 失败)。
      */
@@ -77,6 +82,36 @@ public class KbFileVo extends BaseVo {
      */
     private Date parsedTime;
 
+    /**
+     * 文本索引状态(PENDING: 排队 INDEXING: 写入中 SUCCESS: 成功 FAILED: 失败)。
+     */
+    private String textIndexStatus;
+
+    /**
+     * 文本索引结果说明(失败原因/提示信息)。
+     */
+    private String textIndexMessage;
+
+    /**
+     * 文本索引完成时间。
+     */
+    private Date textIndexedTime;
+
+    /**
+     * 向量索引状态(NONE: 无需向量 PENDING: 排队 INDEXING: 写入中 SUCCESS: 成功 FAILED: 失败)。
+     */
+    private String vectorIndexStatus;
+
+    /**
+     * 向量索引结果说明(失败原因/提示信息)。
+     */
+    private String vectorIndexMessage;
+
+    /**
+     * 向量索引完成时间。
+     */
+    private Date vectorIndexedTime;
+
     /**
      * id 字典关联数据。
      */
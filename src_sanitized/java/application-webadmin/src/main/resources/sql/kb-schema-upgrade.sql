@@ -0,0 +1,90 @@
+-- =====================================================================
+-- KB 表结构增量升级脚本（按版本顺序追加，已执行的段落不要修改）
+-- =====================================================================
+
+-- ---------------------------------------------------------------------
+-- 向量索引任务解耦：文件维度独立记录向量索引状态（VECTOR_INDEX 任务维护）
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_file
+    ADD COLUMN VECTOR_INDEX_STATUS  VARCHAR(32)   NULL COMMENT '向量索引状态(NONE/PENDING/INDEXING/SUCCESS/FAILED)',
+    ADD COLUMN VECTOR_INDEX_MESSAGE VARCHAR(1000) NULL COMMENT '向量索引结果说明',
+    ADD COLUMN VECTOR_INDEXED_TIME  DATETIME      NULL COMMENT '向量索引完成时间';
+
+-- ---------------------------------------------------------------------
+-- 索引后端并发分发：文件维度记录文本索引状态（失败时仅重试失败的后端）
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_file
+    ADD COLUMN TEXT_INDEX_STATUS  VARCHAR(32)   NULL COMMENT '文本索引状态(PENDING/INDEXING/SUCCESS/FAILED)',
+    ADD COLUMN TEXT_INDEX_MESSAGE VARCHAR(1000) NULL COMMENT '文本索引结果说明',
+    ADD COLUMN TEXT_INDEXED_TIME  DATETIME      NULL COMMENT '文本索引完成时间';
+
+-- ---------------------------------------------------------------------
+-- 任务租约：持有节点 + 租约到期时间（心跳续期，过期由清扫任务重新排队）
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_job
+    ADD COLUMN OWNER_NODE        VARCHAR(128) NULL COMMENT '持有租约的节点标识',
+    ADD COLUMN LEASE_EXPIRE_TIME DATETIME     NULL COMMENT '租约到期时间';
+CREATE INDEX idx_kb_job_status_lease ON ic_kb_job (STATUS, LEASE_EXPIRE_TIME);
+
+-- ---------------------------------------------------------------------
+-- 任务优先级通道 + 按知识库轮转调度
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_job
+    ADD COLUMN PRIORITY INT NOT NULL DEFAULT 5 COMMENT '优先级(0: 交互式 5: 普通 9: 批量，数值越小越优先)';
+CREATE INDEX idx_kb_job_sched ON ic_kb_job (STATUS, JOB_TYPE, PRIORITY, KB_ID, id);
+
+-- ---------------------------------------------------------------------
+-- 失败重试：执行次数 + 最早可执行时间（指数退避）+ 错误分类；重试耗尽进入 DEAD
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_job
+    ADD COLUMN ATTEMPT_COUNT INT         NOT NULL DEFAULT 0 COMMENT '已执行次数',
+    ADD COLUMN NEXT_RUN_TIME DATETIME    NULL COMMENT '最早可执行时间',
+    ADD COLUMN ERROR_CLASS   VARCHAR(32) NULL COMMENT '错误分类(TRANSIENT/PERMANENT)';
+
+-- ---------------------------------------------------------------------
+-- 上传准入控制：按最近完成速率估算解析队列排空时间
+-- ---------------------------------------------------------------------
+CREATE INDEX idx_kb_job_type_end ON ic_kb_job (JOB_TYPE, END_TIME);
+
+-- ---------------------------------------------------------------------
+-- 协作式取消：取消标记（RUNNING 任务由执行节点在检查点停止并清理部分结果）
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_job
+    ADD COLUMN CANCEL_REQUESTED TINYINT NOT NULL DEFAULT 0 COMMENT '取消请求标记(1: 已请求 0: 无)';
+
+-- ---------------------------------------------------------------------
+-- 库级重建任务化（REINDEX_KB）：任务参数 + 断点（文件Id, chunkIndex），重启后续跑
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_job
+    ADD COLUMN JOB_PARAM              VARCHAR(255) NULL COMMENT '任务参数(REINDEX_KB: 指定后端名称，逗号分隔)',
+    ADD COLUMN CHECKPOINT_FILE_ID     BIGINT       NULL COMMENT '断点：最后处理的文件Id',
+    ADD COLUMN CHECKPOINT_CHUNK_INDEX INT          NULL COMMENT '断点：文件内最后写入的 chunkIndex(为空表示该文件已完成)';
+CREATE INDEX idx_kb_chunk_file_index ON ic_kb_chunk (FILE_ID, CHUNK_INDEX);
+
+-- ---------------------------------------------------------------------
+-- 任务表瘦身：领取查询专用索引 + 终态任务归档到历史表（主表只保留活跃与近期任务）
+-- ---------------------------------------------------------------------
+CREATE TABLE ic_kb_job_history LIKE ic_kb_job;
+-- 历史表只按知识库/目标/时间查询，去掉调度与租约用的索引，降低归档写入代价
+DROP INDEX idx_kb_job_sched ON ic_kb_job_history;
+DROP INDEX idx_kb_job_status_lease ON ic_kb_job_history;
+ALTER TABLE ic_kb_job_history
+    ADD COLUMN ARCHIVE_TIME DATETIME NOT NULL COMMENT '归档时间';
+CREATE INDEX idx_kb_job_history_kb_end ON ic_kb_job_history (KB_ID, END_TIME);
+
+CREATE INDEX idx_kb_job_claim ON ic_kb_job (STATUS, JOB_TYPE, PRIORITY, id);
+CREATE INDEX idx_kb_job_status_end ON ic_kb_job (STATUS, END_TIME);
+
+-- ---------------------------------------------------------------------
+-- 内容寻址存储：上传时计算 SHA-256，同库相同内容的文件复用已解析的分段与索引
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_file
+    ADD COLUMN CONTENT_SHA256 CHAR(64) NULL COMMENT '文件内容 SHA-256(十六进制小写)';
+CREATE INDEX idx_kb_file_kb_sha ON ic_kb_file (KB_ID, CONTENT_SHA256);
+
+-- ---------------------------------------------------------------------
+-- 按文档结构切片：分段记录所属章节路径与父分段（检索时一次取回上级章节上下文）
+-- ---------------------------------------------------------------------
+ALTER TABLE ic_kb_chunk
+    ADD COLUMN SECTION_PATH    VARCHAR(1000) NULL COMMENT '章节路径(各级标题以 " > " 连接，按结构切片时填写)',
+    ADD COLUMN PARENT_CHUNK_ID BIGINT        NULL COMMENT '父分段Id(上级章节的首个分段；同一章节的后续分段指向本章节首个分段)';